@@ -0,0 +1,77 @@
+/* Name: BenchmarkFiles
+ * Author: Devon McGrath
+ * Description: This class creates and deletes the corpora that the
+ * benchmarks read.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * <p>The {@code BenchmarkFiles} class writes a generated corpus to a
+ * temporary directory for a benchmark and deletes it afterwards. The
+ * temporary directory can be changed with the {@code java.io.tmpdir}
+ * system property, for example to put large corpora on a bigger disk.</p>
+ */
+final class BenchmarkFiles {
+	
+	private BenchmarkFiles() {}
+	
+	/**
+	 * <b><em>createCorpus</em></b>
+	 * 
+	 * <p>Writes a corpus to a new temporary directory.</p>
+	 * 
+	 * @param generator - the generator of the corpus.
+	 * @return the root directory of the corpus.
+	 * @throws IOException if the corpus could not be written.
+	 */
+	public static File createCorpus(CorpusGenerator generator)
+			throws IOException {
+		File root = Files.createTempDirectory("spamfilter-bench").toFile();
+		generator.generate(root);
+		return root;
+	}
+	
+	/**
+	 * <b><em>delete</em></b>
+	 * 
+	 * <p>Deletes a directory and everything in it.</p>
+	 * 
+	 * @param root - the directory, which may be null.
+	 * @throws IOException if a file could not be deleted.
+	 */
+	public static void delete(File root) throws IOException {
+		if (root == null || !root.exists()) {
+			return;
+		}
+		Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir,
+					IOException e) throws IOException {
+				if (e != null) {
+					throw e;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
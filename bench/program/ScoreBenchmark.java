@@ -0,0 +1,150 @@
+/* Name: ScoreBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how long it takes to classify a single
+ * e-mail with a trained spam filter.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>The {@code ScoreBenchmark} class measures the latency of classifying one
+ * e-mail. The filter is trained once on a generated corpus. The
+ * {@link #score()} benchmark scores e-mails that are already in memory and
+ * {@link #isSpam()} goes through {@link SpamFilter#isSpam(TestFile, String)},
+ * which also reads the file. Sampling mode is used so that JMH reports the
+ * percentiles of the latency and not just the average.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+	
+	/** The number of training e-mails of each class. */
+	@Param({"1000", "10000"})
+	public int trainFiles;
+	
+	/** The average number of words in an e-mail. */
+	@Param({"200"})
+	public int words;
+	
+	/** The root directory of the generated corpus. */
+	private File root;
+	
+	/** The trained spam filter. */
+	private SpamFilter filter;
+	
+	/** The compiled model of the filter. */
+	private ScoringModel model;
+	
+	/** The test e-mails in memory. */
+	private byte[][] documents;
+	
+	/** The paths of the test e-mails. */
+	private String[] paths;
+	
+	/** The e-mail to classify next, shared by all threads. */
+	private int next;
+	
+	/** The feature extractor of each thread. */
+	@State(Scope.Thread)
+	public static class Extractor {
+		
+		/** The feature extractor. */
+		public final FeatureExtractor extractor = new FeatureExtractor();
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		CorpusGenerator generator = new CorpusGenerator();
+		generator.setTrainHam(trainFiles);
+		generator.setTrainSpam(trainFiles);
+		generator.setWords(words);
+		this.root = BenchmarkFiles.createCorpus(generator);
+		this.filter = new SpamFilter(root);
+		this.filter.setParallelism(Runtime.getRuntime().availableProcessors());
+		this.filter.train();
+		this.model = filter.getModel();
+		
+		// Keep the test e-mails in memory and remember where they are
+		int count = generator.getTestHam() + generator.getTestSpam();
+		this.documents = new byte[count][];
+		this.paths = new String[count];
+		for (int i = 0; i < count; i ++) {
+			boolean isSpam = i >= generator.getTestHam();
+			int number = isSpam? i - generator.getTestHam() : i;
+			documents[i] = generator.document(generator.getFileCount()
+					- count + i, isSpam);
+			paths[i] = new File(root, SpamFilter.TEST_DIR + File.separator
+					+ (isSpam? SpamFilter.SPAM_DIR : SpamFilter.NON_SPAM_DIR)
+					+ File.separator + String.format("%08d.txt", number))
+					.getPath();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkFiles.delete(root);
+	}
+	
+	/**
+	 * Scores an e-mail that is in memory with the compiled model.
+	 * 
+	 * @param state - the feature extractor of the thread.
+	 * @return the spam probability.
+	 */
+	@Benchmark
+	public double score(Extractor state) {
+		byte[] text = documents[nextIndex()];
+		state.extractor.extract(text, 0, text.length, model.getIndex(),
+				ScoringBudget.FULL);
+		return model.score(state.extractor);
+	}
+	
+	/**
+	 * Reads and classifies a test file.
+	 * 
+	 * @return whether the file was classified as spam.
+	 */
+	@Benchmark
+	public boolean isSpam() {
+		int i = nextIndex();
+		return filter.isSpam(new TestFile(paths[i], 0, TestFile.SPAM),
+				paths[i]);
+	}
+	
+	/**
+	 * Gets the index of the next e-mail. Races between threads only change
+	 * which e-mail is picked, which does not matter here.
+	 * 
+	 * @return the index.
+	 */
+	private int nextIndex() {
+		int i = next;
+		this.next = (i + 1) % documents.length;
+		return i;
+	}
+}
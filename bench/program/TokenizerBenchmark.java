@@ -0,0 +1,113 @@
+/* Name: TokenizerBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how fast e-mails are split into words and
+ * looked up in a vocabulary.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p>The {@code TokenizerBenchmark} class measures the {@link Tokenizer} on
+ * its own and the {@link FeatureExtractor}, which adds the vocabulary lookup
+ * and the removal of repeated words. The e-mails are made by a
+ * {@link CorpusGenerator} and kept in memory, so no time is spent reading
+ * files. The score is in e-mails per second.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+	
+	/** The number of different e-mails to cycle through. */
+	private static final int DOCUMENTS = 1024;
+	
+	/** The average number of words in an e-mail. */
+	@Param({"50", "200", "1000"})
+	public int words;
+	
+	/** The e-mails. */
+	private byte[][] documents;
+	
+	/** The vocabulary of a model trained on the e-mails. */
+	private Vocabulary vocabulary;
+	
+	/** The tokenizer being measured. */
+	private Tokenizer tokenizer;
+	
+	/** The feature extractor being measured. */
+	private FeatureExtractor extractor;
+	
+	/** The e-mail to read next. */
+	private int next;
+	
+	@Setup
+	public void setup() {
+		CorpusGenerator generator = new CorpusGenerator();
+		generator.setWords(words);
+		this.documents = new byte[DOCUMENTS][];
+		this.vocabulary = new Vocabulary();
+		this.extractor = new FeatureExtractor();
+		for (int i = 0; i < DOCUMENTS; i ++) {
+			documents[i] = generator.document(i, (i & 1) == 1);
+			extractor.extract(documents[i], 0, documents[i].length,
+					vocabulary, true);
+		}
+		this.tokenizer = new Tokenizer();
+	}
+	
+	/**
+	 * Splits an e-mail into words.
+	 * 
+	 * @param blackhole - consumes the words.
+	 */
+	@Benchmark
+	public void tokenize(Blackhole blackhole) {
+		byte[] text = nextDocument();
+		tokenizer.tokenize(text, 0, text.length,
+				(word, start, len) -> blackhole.consume(len));
+	}
+	
+	/**
+	 * Finds the unique words of an e-mail in the vocabulary, as when it is
+	 * classified.
+	 * 
+	 * @return the number of unique words.
+	 */
+	@Benchmark
+	public int extract() {
+		byte[] text = nextDocument();
+		return extractor.extract(text, 0, text.length, vocabulary, false);
+	}
+	
+	/**
+	 * Gets the next e-mail.
+	 * 
+	 * @return the text of the e-mail.
+	 */
+	private byte[] nextDocument() {
+		byte[] text = documents[next];
+		this.next = (next + 1) % DOCUMENTS;
+		return text;
+	}
+}
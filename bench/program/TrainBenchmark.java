@@ -0,0 +1,95 @@
+/* Name: TrainBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how fast the spam filter is trained on
+ * corpora of different sizes.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>The {@code TrainBenchmark} class measures {@link SpamFilter#train()},
+ * which reads every training file, with a corpus written by a
+ * {@link CorpusGenerator}. The corpus is written once for each set of
+ * parameters, so after the first iteration the files are usually in the
+ * page cache and the benchmark measures the filter rather than the disk.
+ * The score is the time taken to train once.</p>
+ * 
+ * <p>Larger corpora can be measured by setting the parameters on the
+ * command line, for example {@code -p trainFiles=5000000}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrainBenchmark {
+	
+	/** The number of training e-mails of each class. */
+	@Param({"500", "5000", "50000"})
+	public int trainFiles;
+	
+	/** The average number of words in an e-mail. */
+	@Param({"200"})
+	public int words;
+	
+	/** The number of threads used to train. */
+	@Param({"1", "4"})
+	public int parallelism;
+	
+	/** The root directory of the generated corpus. */
+	private File root;
+	
+	/** The spam filter being trained. */
+	private SpamFilter filter;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		CorpusGenerator generator = new CorpusGenerator();
+		generator.setTrainHam(trainFiles);
+		generator.setTrainSpam(trainFiles);
+		generator.setTestHam(0);
+		generator.setTestSpam(0);
+		generator.setWords(words);
+		this.root = BenchmarkFiles.createCorpus(generator);
+		this.filter = new SpamFilter(root);
+		this.filter.setParallelism(parallelism);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkFiles.delete(root);
+	}
+	
+	/**
+	 * Trains the filter from scratch.
+	 * 
+	 * @return the trained vocabulary.
+	 */
+	@Benchmark
+	public Vocabulary train() {
+		filter.train();
+		return filter.getVocabulary();
+	}
+}
@@ -0,0 +1,589 @@
+/* Name: ClassificationServer
+ * Author: Devon McGrath
+ * Description: This class serves a trained spam filter over HTTP so that
+ * e-mails can be classified without writing them to a test directory.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added the result cache to the stats - Devon McGrath
+ * 1.2 - 10/16/2026 - Added retraining while serving - Devon McGrath
+ */
+
+package program;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>The {@code ClassificationServer} class keeps one trained
+ * {@link SpamFilter} in memory and scores the e-mails sent to it with the
+ * JDK's built-in {@link HttpServer}:</p>
+ * 
+ * <pre>
+ * POST /classify        the body is one e-mail
+ * POST /classify/batch  the body is a JSON array of e-mails as strings
+ * GET  /stats           the request counts, throughput and latency
+ * POST /train           retrain the filter from its root directory
+ * </pre>
+ * 
+ * <p>A single e-mail is answered with
+ * {@code {"probability":0.93,"spam":true}} and a batch with a JSON array of
+ * the same objects, in the order of the request. Requests are handled by a
+ * fixed pool of threads. Scoring goes through
+ * {@link SpamFilter#score(byte[], int, int)}, which shares nothing but the
+ * immutable {@link ScoringModel} between threads, so there is no lock on
+ * the path of a request.</p>
+ * 
+ * <p>Retraining runs on its own thread and is answered with status 202
+ * right away. The e-mails keep being scored by the old model until the new
+ * one is swapped in (see {@link SpamFilter#train(ProgressListener)}), so
+ * the server never stops answering. The new model is not saved.</p>
+ */
+public class ClassificationServer implements Closeable {
+	
+	/** The largest request body that is accepted, in bytes. */
+	public static final int MAX_BODY = 16 * 1024 * 1024;
+	
+	/** The spam filter that scores the e-mails. */
+	private final SpamFilter filter;
+	
+	/** The HTTP server. */
+	private final HttpServer server;
+	
+	/** The threads that handle the requests. */
+	private final ExecutorService executor;
+	
+	/** The time taken by each request. */
+	private final LatencyHistogram latency;
+	
+	/** The number of requests handled. */
+	private final LongAdder requests;
+	
+	/** The number of e-mails scored. */
+	private final LongAdder documents;
+	
+	/** The number of requests that were answered with an error status. */
+	private final LongAdder errors;
+	
+	/** Whether the filter is being retrained. */
+	private final AtomicBoolean training;
+	
+	/** Counts down when the server is closed. */
+	private final CountDownLatch closed;
+	
+	/** The time the server was started, in nanoseconds. */
+	private volatile long started;
+	
+	/**
+	 * Constructs a server for a trained spam filter. The server does not
+	 * accept requests until it is started.
+	 * 
+	 * @param filter - the trained spam filter.
+	 * @param address - the address to listen on.
+	 * @param threads - the number of threads that handle requests.
+	 * @throws IOException if the address could not be bound.
+	 * @see {@link #start()}
+	 */
+	public ClassificationServer(SpamFilter filter, InetSocketAddress address,
+			int threads) throws IOException {
+		this.filter = filter;
+		this.server = HttpServer.create(address, 0);
+		AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads),
+				r -> {
+					Thread thread = new Thread(r, "ClassificationServer-"
+							+ count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.latency = new LatencyHistogram();
+		this.requests = new LongAdder();
+		this.documents = new LongAdder();
+		this.errors = new LongAdder();
+		this.training = new AtomicBoolean();
+		this.closed = new CountDownLatch(1);
+		server.setExecutor(executor);
+		server.createContext("/classify", handler(this::classify));
+		server.createContext("/classify/batch", handler(this::batch));
+		server.createContext("/stats", handler(this::stats));
+		server.createContext("/train", handler(this::train));
+	}
+	
+	/**
+	 * <b><em>start</em></b>
+	 * 
+	 * <p>Starts accepting requests. The model of the filter is compiled now
+	 * if it is not already, so that the first request is not slow.</p>
+	 */
+	public void start() {
+		filter.getModel();
+		this.started = System.nanoTime();
+		server.start();
+	}
+	
+	/**
+	 * <b><em>close</em></b>
+	 * 
+	 * <p>Stops the server. Requests that are being handled are given up to
+	 * a second to finish.</p>
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+		closed.countDown();
+	}
+	
+	/**
+	 * <b><em>await</em></b>
+	 * 
+	 * <p>Waits until the server is closed.</p>
+	 * 
+	 * @throws InterruptedException if the thread was interrupted.
+	 */
+	public void await() throws InterruptedException {
+		closed.await();
+	}
+	
+	/**
+	 * <b><em>getAddress</em></b>
+	 * 
+	 * @return the address the server is listening on.
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+	
+	/**
+	 * <b><em>getLatency</em></b>
+	 * 
+	 * @return the histogram of the time taken by each request.
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+	
+	public long getRequestCount() {
+		return requests.sum();
+	}
+	
+	public long getDocumentCount() {
+		return documents.sum();
+	}
+	
+	public long getErrorCount() {
+		return errors.sum();
+	}
+	
+	/**
+	 * <b><em>isTraining</em></b>
+	 * 
+	 * @return true if the filter is being retrained.
+	 */
+	public boolean isTraining() {
+		return training.get();
+	}
+	
+	/**
+	 * Scores the one e-mail in the body of a request.
+	 * 
+	 * @param exchange - the request.
+	 * @throws IOException if the request could not be read or answered.
+	 */
+	private void classify(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			send(exchange, 405, "{\"error\":\"POST an e-mail\"}");
+			return;
+		}
+		byte[] body = readBody(exchange);
+		if (body == null) {
+			return;
+		}
+		double probability = filter.score(body, 0, body.length);
+		documents.increment();
+		send(exchange, 200, result(new StringBuilder(), probability)
+				.toString());
+	}
+	
+	/**
+	 * Scores the e-mails in the JSON array in the body of a request.
+	 * 
+	 * @param exchange - the request.
+	 * @throws IOException if the request could not be read or answered.
+	 */
+	private void batch(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			send(exchange, 405, "{\"error\":\"POST a JSON array\"}");
+			return;
+		}
+		byte[] body = readBody(exchange);
+		if (body == null) {
+			return;
+		}
+		List<String> emails;
+		try {
+			emails = parseStrings(new String(body, StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			send(exchange, 400, "{\"error\":" + quote(e.getMessage())
+					+ "}");
+			return;
+		}
+		
+		// Score each e-mail in order
+		StringBuilder sb = new StringBuilder(emails.size() * 40 + 2);
+		sb.append('[');
+		for (int i = 0; i < emails.size(); i ++) {
+			byte[] text = emails.get(i).getBytes(StandardCharsets.UTF_8);
+			if (i > 0) {
+				sb.append(',');
+			}
+			result(sb, filter.score(text, 0, text.length));
+		}
+		documents.add(emails.size());
+		send(exchange, 200, sb.append(']').toString());
+	}
+	
+	/**
+	 * Starts retraining the filter on a new thread, unless it is already
+	 * being retrained.
+	 * 
+	 * @param exchange - the request.
+	 * @throws IOException if the request could not be answered.
+	 */
+	private void train(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			send(exchange, 405, "{\"error\":\"POST to retrain\"}");
+			return;
+		}
+		if (!training.compareAndSet(false, true)) {
+			send(exchange, 409, "{\"error\":\"Already training\"}");
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				filter.train();
+			} finally {
+				training.set(false);
+			}
+		}, "ClassificationServer-train");
+		thread.setDaemon(true);
+		thread.start();
+		send(exchange, 202, "{\"training\":true}");
+	}
+	
+	/**
+	 * Answers with the request counts, throughput and latency.
+	 * 
+	 * @param exchange - the request.
+	 * @throws IOException if the request could not be answered.
+	 */
+	private void stats(HttpExchange exchange) throws IOException {
+		double seconds = (System.nanoTime() - started) / 1e9;
+		ScoringModel model = filter.getModel();
+		ResultCache cache = filter.getCache();
+		String json = String.format(Locale.ROOT, "{\"uptimeSeconds\":%.3f,"
+				+ "\"requests\":%d,\"documents\":%d,\"errors\":%d,"
+				+ "\"requestsPerSecond\":%.3f,\"documentsPerSecond\":%.3f,"
+				+ "\"vocabularySize\":%d,\"requestLatency\":%s,"
+				+ "\"scoreLatency\":%s,\"cache\":%s,\"training\":%b}",
+				seconds, requests.sum(), documents.sum(), errors.sum(),
+				requests.sum() / seconds, documents.sum() / seconds,
+				model.getIndex().size(), latency(latency),
+				latency(filter.getMetrics().getLatency()), cache(cache),
+				training.get());
+		send(exchange, 200, json);
+	}
+	
+	/**
+	 * Wraps a handler so that every request is counted and timed, and an
+	 * error is answered with status 500. Every request answered with a
+	 * status of 400 or more counts as an error.
+	 * 
+	 * @param handler - the handler.
+	 * @return the wrapped handler.
+	 */
+	private HttpHandler handler(HttpHandler handler) {
+		return exchange -> {
+			long start = System.nanoTime();
+			try {
+				handler.handle(exchange);
+			} catch (IOException | RuntimeException e) {
+				try {
+					send(exchange, 500, "{\"error\":" + quote(
+							String.valueOf(e)) + "}");
+				} catch (IOException | RuntimeException ignored) {
+					// The response was already started
+				}
+			} finally {
+				exchange.close();
+				if (exchange.getResponseCode() >= 400) {
+					errors.increment();
+				}
+				requests.increment();
+				latency.record(System.nanoTime() - start);
+			}
+		};
+	}
+	
+	/**
+	 * Reads the body of a request. If the body is too large, the request is
+	 * answered with status 413.
+	 * 
+	 * @param exchange - the request.
+	 * @return the body, or null if it was too large.
+	 * @throws IOException if the body could not be read.
+	 */
+	private byte[] readBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		byte[] buffer = new byte[8192];
+		try (InputStream in = exchange.getRequestBody()) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				if (out.size() + read > MAX_BODY) {
+					send(exchange, 413, "{\"error\":\"The body is larger "
+							+ "than " + MAX_BODY + " bytes\"}");
+					return null;
+				}
+				out.write(buffer, 0, read);
+			}
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Sends a JSON response.
+	 * 
+	 * @param exchange - the request.
+	 * @param status - the HTTP status code.
+	 * @param json - the body of the response.
+	 * @throws IOException if the response could not be sent.
+	 */
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+	
+	/**
+	 * Writes the result of one e-mail as a JSON object. The probability is
+	 * null if it is not a number, which happens while the filter has no
+	 * spam or no ham training files.
+	 * 
+	 * @param sb - the builder to write to.
+	 * @param probability - the spam probability of the e-mail.
+	 * @return the builder.
+	 */
+	private static StringBuilder result(StringBuilder sb,
+			double probability) {
+		return sb.append("{\"probability\":").append(number(probability))
+				.append(",\"spam\":")
+				.append(probability > SpamFilter.SPAM_THRESHOLD).append('}');
+	}
+	
+	/**
+	 * Writes a latency histogram as a JSON object in microseconds.
+	 * 
+	 * @param histogram - the histogram.
+	 * @return the JSON object.
+	 */
+	private static String latency(LatencyHistogram histogram) {
+		return String.format(Locale.ROOT, "{\"count\":%d,\"meanMicros\":%.1f,"
+				+ "\"p50Micros\":%.1f,\"p90Micros\":%.1f,\"p99Micros\":%.1f,"
+				+ "\"maxMicros\":%.1f}", histogram.getCount(),
+				histogram.getMean() / 1000,
+				histogram.getPercentile(50) / 1000.0,
+				histogram.getPercentile(90) / 1000.0,
+				histogram.getPercentile(99) / 1000.0,
+				histogram.getPercentile(100) / 1000.0);
+	}
+	
+	/**
+	 * Converts the statistics of a result cache to a JSON object.
+	 * 
+	 * @param cache - the cache, or null if there is none.
+	 * @return the JSON object, or null.
+	 */
+	private static String cache(ResultCache cache) {
+		if (cache == null) {
+			return "null";
+		}
+		return String.format(Locale.ROOT, "{\"size\":%d,\"maxSize\":%d,"
+				+ "\"hits\":%d,\"misses\":%d,\"evictions\":%d,"
+				+ "\"hitRate\":%.4f}", cache.size(), cache.getMaxSize(),
+				cache.getHits(), cache.getMisses(), cache.getEvictions(),
+				cache.getHitRate());
+	}
+	
+	/**
+	 * Converts a number to JSON, which has no NaN or infinity.
+	 * 
+	 * @param value - the number.
+	 * @return the JSON number, or null if it is not finite.
+	 */
+	private static String number(double value) {
+		return (Double.isNaN(value) || Double.isInfinite(value))? "null"
+				: Double.toString(value);
+	}
+	
+	/**
+	 * Converts a value to a JSON string.
+	 * 
+	 * @param value - the value.
+	 * @return the JSON string.
+	 */
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); i ++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+	
+	/**
+	 * Reads a JSON array of strings.
+	 * 
+	 * @param json - the JSON text.
+	 * @return the strings.
+	 * @throws IllegalArgumentException if the text is not an array of
+	 * strings.
+	 */
+	private static List<String> parseStrings(String json) {
+		List<String> strings = new ArrayList<>();
+		int i = skipSpace(json, 0);
+		if (i >= json.length() || json.charAt(i) != '[') {
+			throw new IllegalArgumentException("Expected a JSON array");
+		}
+		i = skipSpace(json, i + 1);
+		if (i < json.length() && json.charAt(i) == ']') {
+			i = skipSpace(json, i + 1);
+		} else {
+			while (true) {
+				if (i >= json.length() || json.charAt(i) != '"') {
+					throw new IllegalArgumentException(
+							"Expected a string at " + i);
+				}
+				
+				// Read the string
+				StringBuilder sb = new StringBuilder();
+				i = readString(json, i + 1, sb);
+				strings.add(sb.toString());
+				
+				// Then a comma or the end of the array
+				i = skipSpace(json, i);
+				if (i < json.length() && json.charAt(i) == ',') {
+					i = skipSpace(json, i + 1);
+				} else if (i < json.length() && json.charAt(i) == ']') {
+					i = skipSpace(json, i + 1);
+					break;
+				} else {
+					throw new IllegalArgumentException(
+							"Expected ',' or ']' at " + i);
+				}
+			}
+		}
+		if (i < json.length()) {
+			throw new IllegalArgumentException(
+					"Unexpected text after the array at " + i);
+		}
+		return strings;
+	}
+	
+	/**
+	 * Reads the rest of a JSON string.
+	 * 
+	 * @param json - the JSON text.
+	 * @param i - the index after the opening quote.
+	 * @param sb - the builder to add the characters of the string to.
+	 * @return the index after the closing quote.
+	 * @throws IllegalArgumentException if the string is not valid.
+	 */
+	private static int readString(String json, int i, StringBuilder sb) {
+		while (i < json.length()) {
+			char c = json.charAt(i ++);
+			if (c == '"') {
+				return i;
+			}
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (i >= json.length()) {
+				break;
+			}
+			char e = json.charAt(i ++);
+			switch (e) {
+			case '"': case '\\': case '/': sb.append(e); break;
+			case 'b': sb.append('\b'); break;
+			case 'f': sb.append('\f'); break;
+			case 'n': sb.append('\n'); break;
+			case 'r': sb.append('\r'); break;
+			case 't': sb.append('\t'); break;
+			case 'u':
+				if (i + 4 > json.length()) {
+					throw new IllegalArgumentException(
+							"Bad unicode escape at " + i);
+				}
+				try {
+					sb.append((char) Integer.parseInt(
+							json.substring(i, i + 4), 16));
+				} catch (NumberFormatException ex) {
+					throw new IllegalArgumentException(
+							"Bad unicode escape at " + i);
+				}
+				i += 4;
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Bad escape at " + (i - 1));
+			}
+		}
+		throw new IllegalArgumentException("Unterminated string");
+	}
+	
+	/**
+	 * Skips white space in JSON text.
+	 * 
+	 * @param json - the JSON text.
+	 * @param i - the index to start at.
+	 * @return the index of the next character that is not white space.
+	 */
+	private static int skipSpace(String json, int i) {
+		while (i < json.length() && (json.charAt(i) == ' '
+				|| json.charAt(i) == '\t' || json.charAt(i) == '\n'
+				|| json.charAt(i) == '\r')) {
+			i ++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,904 @@
+/* Name: CommandLine
+ * Author: Devon McGrath
+ * Description: This class runs the spam filter from the command line, without
+ * a display, and writes the results as CSV or JSON lines.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Print the metrics of the filter - Devon McGrath
+ * 1.2 - 10/16/2026 - Added serving the filter over HTTP - Devon McGrath
+ * 1.3 - 10/16/2026 - Added the size of the result cache - Devon McGrath
+ * 1.4 - 10/16/2026 - Added the scoring budget - Devon McGrath
+ * 1.5 - 10/16/2026 - Added pruning the vocabulary - Devon McGrath
+ * 1.6 - 10/16/2026 - Added hashed training - Devon McGrath
+ * 1.7 - 10/16/2026 - Added off-heap models - Devon McGrath
+ * 1.8 - 10/16/2026 - Added the corpus layout - Devon McGrath
+ * 1.9 - 10/16/2026 - Added the number of read threads - Devon McGrath
+ * 1.10 - 10/16/2026 - Mentioned archive files in the usage - Devon McGrath
+ * 1.11 - 10/16/2026 - Added cross-validation - Devon McGrath
+ */
+
+package program;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * <p>The {@code CommandLine} class is the headless mode of the program. It
+ * never starts the JavaFX toolkit, so it can run on a server without a
+ * display. The spam filter is trained (or loaded, see
+ * {@link SpamFilter#loadOrTrain()}) from a root directory and then either the
+ * test directories of the root or the files and directories given on the
+ * command line are classified:</p>
+ * 
+ * <pre>
+ * java program.ProgramManager {@value #HEADLESS} [options] [file|dir ...]
+ * 
+ * -root dir        the root directory with the training files (default .)
+ * -format csv|json write CSV or one JSON object per line (default csv)
+ * -output file     write the results to a file instead of stdout
+ * -threads n       the number of threads to use (default all processors)
+ * -readers n       the number of threads that read files (default 2)
+ * -retrain         train the filter even if a saved model is up to date
+ * -cache n         the number of results to cache, or 0 for none
+ * -bytes n         only read the first n bytes of each file
+ * -tokens n        only read the first n words of each file
+ * -strongest n     only add up the n strongest words of each file
+ * -drift           compare the budget to full scoring on root/test
+ * -minfiles n      prune the words in fewer than n training files
+ * -maxwords n      prune all but the n words in the most training files
+ * -topwords n      prune all but the n best words
+ * -rank ig|logodds rank the best words by information gain or log-odds
+ * -hash n          train with the words hashed into n buckets
+ * -hashcheck       also train with every word kept and print the error
+ * -offheap         keep the model in native memory instead of the heap
+ * -trainfolders f  the labelled training folders, like train/ham=ham,...
+ * -testfolders f   the labelled testing folders, like test/spam=spam,...
+ * -manifest file   read the labelled files from a manifest instead
+ * -recursive       include the files in sub-folders
+ * -parallelscan    list the sub-folders on more than one thread
+ * -serve port      serve the filter over HTTP on localhost instead
+ * -folds k         cross-validate on the training files with k folds instead
+ * -seed n          the seed of the random order of the folds (default 0)
+ * -smoothing a,... the smoothing values to cross-validate (default 1)
+ * -thresholds t,.. the thresholds to cross-validate (default 0.6)
+ * </pre>
+ * 
+ * <p>Directories given on the command line are searched for files
+ * recursively. The results are written one batch at a time as they are
+ * classified, so memory use does not grow with the number of files. When
+ * the test directories are classified, the accuracy and precision are
+ * printed at the end, along with the metrics of the filter (see
+ * {@link FilterMetrics}). The summary goes to stderr so that the results can
+ * be piped from stdout.</p>
+ * 
+ * <p>The {@code -bytes}, {@code -tokens} and {@code -strongest} options set
+ * the {@link ScoringBudget} of the filter. With {@code -drift}, nothing is
+ * classified. Instead, the {@link DriftReport} of the budget is printed.</p>
+ * 
+ * <p>The {@code -minfiles}, {@code -maxwords} and {@code -topwords} options
+ * prune the trained vocabulary with a {@link VocabularyPruner} and print the
+ * {@link PruningReport} before anything else is done. The pruned model is
+ * not saved.</p>
+ * 
+ * <p>With {@code -hash}, the filter is trained with a hashed vocabulary (see
+ * {@link SpamFilter#setHashBuckets(int)}) and that model is saved. Adding
+ * {@code -hashcheck} trains a second filter with every word kept and prints
+ * the {@link HashingReport} of the hashed one.</p>
+ * 
+ * <p>With {@code -offheap}, the model is loaded or compiled into an
+ * {@link OffHeapModel} (see {@link SpamFilter#setOffHeap(boolean)}), which
+ * gives the same results with less of the heap.</p>
+ * 
+ * <p>The {@code -trainfolders}, {@code -testfolders}, {@code -manifest},
+ * {@code -recursive} and {@code -parallelscan} options set the
+ * {@link CorpusLayout} of the filter, which is where the training and
+ * testing files are found. Folders that are not given keep their default
+ * layout.</p>
+ * 
+ * <p>With {@code -serve}, nothing is classified. The trained filter is
+ * served by a {@link ClassificationServer} on the loopback address until the
+ * program is stopped.</p>
+ * 
+ * <p>With {@code -folds}, nothing is trained or classified. The training
+ * files are read once into a {@link CrossValidator} and the
+ * {@link CrossValidationReport} of every smoothing value and threshold is
+ * printed.</p>
+ */
+public class CommandLine {
+	
+	/** The argument that starts the program in headless mode. */
+	public static final String HEADLESS = "-headless";
+	
+	/** The exit code for bad arguments. */
+	private static final int USAGE_ERROR = 2;
+	
+	/** The root directory of the spam filter. */
+	private File root = new File(".");
+	
+	/** Whether the results are written as JSON lines instead of CSV. */
+	private boolean json;
+	
+	/** The file to write the results to, or null for stdout. */
+	private File output;
+	
+	/** The number of threads to use. */
+	private int threads = Runtime.getRuntime().availableProcessors();
+	
+	/** The number of threads that read files. */
+	private int readers = SpamFilter.DEFAULT_READ_THREADS;
+	
+	/** Whether the filter is trained even if a saved model is up to date. */
+	private boolean retrain;
+	
+	/** The number of classification results to cache. */
+	private int cacheSize = SpamFilter.DEFAULT_CACHE_SIZE;
+	
+	/** The number of bytes read from each file, or 0 for all. */
+	private int maxBytes;
+	
+	/** The number of words read from each file, or 0 for all. */
+	private int maxTokens;
+	
+	/** The number of strongest words added up, or 0 for all. */
+	private int strongestWords;
+	
+	/** Whether the budget is compared to full scoring instead of
+	 * classifying. */
+	private boolean drift;
+	
+	/** The number of training files a word must be in to be kept. */
+	private int minFiles;
+	
+	/** The number of words in the most training files to keep, or 0 for
+	 * all. */
+	private int maxWords;
+	
+	/** The number of best words to keep, or 0 for all. */
+	private int topWords;
+	
+	/** The ranking of the best words. */
+	private VocabularyPruner.Ranking ranking =
+			VocabularyPruner.Ranking.INFORMATION_GAIN;
+	
+	/** The number of buckets to hash the words into, or 0 for none. */
+	private int hashBuckets;
+	
+	/** Whether the hashed model is compared to an exact one. */
+	private boolean hashCheck;
+	
+	/** Whether the model is kept off the heap. */
+	private boolean offHeap;
+	
+	/** The labelled training folders, or null for the default ones. */
+	private Map<String, Boolean> trainFolders;
+	
+	/** The labelled testing folders, or null for the default ones. */
+	private Map<String, Boolean> testFolders;
+	
+	/** The manifest of the labelled files, or null to use the folders. */
+	private File manifest;
+	
+	/** Whether the files in sub-folders are included. */
+	private boolean recursive;
+	
+	/** Whether the sub-folders are listed on more than one thread. */
+	private boolean parallelScan;
+	
+	/** The port to serve the filter on, or -1 to classify files. */
+	private int port = -1;
+	
+	/** The number of folds to cross-validate with, or 0 to classify
+	 * files. */
+	private int folds;
+	
+	/** The seed of the random order of the folds. */
+	private int seed;
+	
+	/** The smoothing values to cross-validate. */
+	private double[] smoothing = {1};
+	
+	/** The thresholds to cross-validate. */
+	private double[] thresholds = {SpamFilter.SPAM_THRESHOLD};
+	
+	/** The files and directories to classify. */
+	private final List<File> inputs = new ArrayList<>();
+	
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+	
+	/**
+	 * <b><em>isHeadless</em></b>
+	 * 
+	 * @param args - the command line arguments of the program.
+	 * @return true if the program should run without a display.
+	 */
+	public static boolean isHeadless(String[] args) {
+		return args.length > 0 && HEADLESS.equals(args[0]);
+	}
+	
+	/**
+	 * <b><em>run</em></b>
+	 * 
+	 * <p>Runs the spam filter with command line arguments (see
+	 * {@link CommandLine}). The first argument may be {@value #HEADLESS},
+	 * which is ignored.</p>
+	 * 
+	 * @param args - the command line arguments.
+	 * @return the exit code, which is 0 on success.
+	 */
+	public static int run(String[] args) {
+		CommandLine cli = new CommandLine();
+		try {
+			cli.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage(System.err);
+			return USAGE_ERROR;
+		}
+		try {
+			if (cli.port >= 0) {
+				cli.serve();
+			} else if (cli.drift) {
+				cli.drift();
+			} else if (cli.folds > 0) {
+				cli.crossValidate();
+			} else {
+				cli.classify();
+			}
+		} catch (IOException | IllegalStateException e) {
+			System.err.println("Error: " + e.getMessage());
+			return 1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return 0;
+	}
+	
+	/**
+	 * <b><em>printUsage</em></b>
+	 * 
+	 * <p>Prints the arguments that the headless mode accepts.</p>
+	 * 
+	 * @param out - the stream to print to.
+	 */
+	public static void printUsage(PrintStream out) {
+		out.println("Usage: java program.ProgramManager " + HEADLESS
+				+ " [options] [file|dir ...]");
+		out.println("  -root dir         the root directory with the "
+				+ "training files (default .)");
+		out.println("  -format csv|json  write CSV or JSON lines "
+				+ "(default csv)");
+		out.println("  -output file      write the results to a file "
+				+ "instead of stdout");
+		out.println("  -threads n        the number of threads to use");
+		out.println("  -readers n        the number of threads that read "
+				+ "files (default " + SpamFilter.DEFAULT_READ_THREADS + ")");
+		out.println("  -retrain          train even if a saved model is "
+				+ "up to date");
+		out.println("  -cache n          the number of results to cache "
+				+ "(default " + SpamFilter.DEFAULT_CACHE_SIZE + ", 0 for "
+				+ "none)");
+		out.println("  -bytes n          only read the first n bytes of "
+				+ "each file");
+		out.println("  -tokens n         only read the first n words of "
+				+ "each file");
+		out.println("  -strongest n      only add up the n strongest words "
+				+ "of each file");
+		out.println("  -drift            compare the budget to full "
+				+ "scoring on root/" + SpamFilter.TEST_DIR);
+		out.println("  -minfiles n       prune the words in fewer than n "
+				+ "training files");
+		out.println("  -maxwords n       prune all but the n words in the "
+				+ "most training files");
+		out.println("  -topwords n       prune all but the n best words");
+		out.println("  -rank ig|logodds  rank the best words by "
+				+ "information gain or log-odds (default ig)");
+		out.println("  -hash n           train with the words hashed into "
+				+ "n buckets");
+		out.println("  -hashcheck        also train with every word kept "
+				+ "and print the error");
+		out.println("  -offheap          keep the model in native memory "
+				+ "instead of the heap");
+		out.println("  -trainfolders f   the training folders and labels "
+				+ "(default train/ham=ham,...)");
+		out.println("  -testfolders f    the testing folders and labels "
+				+ "(default test/ham=ham,...)");
+		out.println("  -manifest file    read the labelled files from a "
+				+ "manifest");
+		out.println("  -recursive        include the files in sub-folders");
+		out.println("  -parallelscan     list the sub-folders on more than "
+				+ "one thread");
+		out.println("  -serve port       serve the filter over HTTP on "
+				+ "localhost");
+		out.println("  -folds k          cross-validate on the training "
+				+ "files with k folds");
+		out.println("  -seed n           the seed of the random order of "
+				+ "the folds (default 0)");
+		out.println("  -smoothing a,...  the smoothing values to "
+				+ "cross-validate (default 1)");
+		out.println("  -thresholds t,... the thresholds to cross-validate "
+				+ "(default " + SpamFilter.SPAM_THRESHOLD + ")");
+		out.println("With no files, root/" + SpamFilter.TEST_DIR
+				+ " is classified and the accuracy and precision are "
+				+ "printed.");
+		out.println("Each e-mail in a .mbox, .zip, .tar, .tar.gz, .tgz or "
+				+ ".gz file is a file of its own.");
+	}
+	
+	/**
+	 * Reads the command line arguments.
+	 * 
+	 * @param args - the command line arguments.
+	 * @throws IllegalArgumentException if an argument is not valid.
+	 */
+	private void parse(String[] args) {
+		for (int i = isHeadless(args)? 1 : 0; i < args.length; i ++) {
+			String arg = args[i];
+			if (arg.equals("-root")) {
+				this.root = new File(value(args, ++ i, arg));
+			} else if (arg.equals("-format")) {
+				String format = value(args, ++ i, arg);
+				if (!format.equals("csv") && !format.equals("json")) {
+					throw new IllegalArgumentException(
+							"Unknown format: " + format);
+				}
+				this.json = format.equals("json");
+			} else if (arg.equals("-output")) {
+				this.output = new File(value(args, ++ i, arg));
+			} else if (arg.equals("-threads")) {
+				this.threads = number(args, ++ i, arg);
+			} else if (arg.equals("-readers")) {
+				this.readers = number(args, ++ i, arg);
+			} else if (arg.equals("-retrain")) {
+				this.retrain = true;
+			} else if (arg.equals("-cache")) {
+				this.cacheSize = number(args, ++ i, arg);
+			} else if (arg.equals("-bytes")) {
+				this.maxBytes = number(args, ++ i, arg);
+			} else if (arg.equals("-tokens")) {
+				this.maxTokens = number(args, ++ i, arg);
+			} else if (arg.equals("-strongest")) {
+				this.strongestWords = number(args, ++ i, arg);
+			} else if (arg.equals("-drift")) {
+				this.drift = true;
+			} else if (arg.equals("-minfiles")) {
+				this.minFiles = number(args, ++ i, arg);
+			} else if (arg.equals("-maxwords")) {
+				this.maxWords = number(args, ++ i, arg);
+			} else if (arg.equals("-topwords")) {
+				this.topWords = number(args, ++ i, arg);
+			} else if (arg.equals("-hash")) {
+				this.hashBuckets = number(args, ++ i, arg);
+			} else if (arg.equals("-hashcheck")) {
+				this.hashCheck = true;
+			} else if (arg.equals("-offheap")) {
+				this.offHeap = true;
+			} else if (arg.equals("-trainfolders")) {
+				this.trainFolders = CorpusLayout.parseFolders(
+						value(args, ++ i, arg));
+			} else if (arg.equals("-testfolders")) {
+				this.testFolders = CorpusLayout.parseFolders(
+						value(args, ++ i, arg));
+			} else if (arg.equals("-manifest")) {
+				this.manifest = new File(value(args, ++ i, arg));
+				if (!manifest.isFile()) {
+					throw new IllegalArgumentException(
+							"No such file: " + manifest);
+				}
+			} else if (arg.equals("-recursive")) {
+				this.recursive = true;
+			} else if (arg.equals("-parallelscan")) {
+				this.parallelScan = true;
+			} else if (arg.equals("-rank")) {
+				String rank = value(args, ++ i, arg);
+				if (rank.equals("ig")) {
+					this.ranking = VocabularyPruner.Ranking.INFORMATION_GAIN;
+				} else if (rank.equals("logodds")) {
+					this.ranking = VocabularyPruner.Ranking.LOG_ODDS;
+				} else {
+					throw new IllegalArgumentException(
+							"Unknown ranking: " + rank);
+				}
+			} else if (arg.equals("-serve")) {
+				this.port = number(args, ++ i, arg);
+				if (port < 0 || port > 65535) {
+					throw new IllegalArgumentException(
+							"Not a port: " + port);
+				}
+			} else if (arg.equals("-folds")) {
+				this.folds = number(args, ++ i, arg);
+				if (folds < 2) {
+					throw new IllegalArgumentException(
+							"There must be at least 2 folds: " + folds);
+				}
+			} else if (arg.equals("-seed")) {
+				this.seed = number(args, ++ i, arg);
+			} else if (arg.equals("-smoothing")) {
+				this.smoothing = numbers(args, ++ i, arg);
+				for (double value : smoothing) {
+					if (!(value > 0) || Double.isInfinite(value)) {
+						throw new IllegalArgumentException(
+								"Not a smoothing value: " + value);
+					}
+				}
+			} else if (arg.equals("-thresholds")) {
+				this.thresholds = numbers(args, ++ i, arg);
+				for (double value : thresholds) {
+					if (!(value >= 0 && value <= 1)) {
+						throw new IllegalArgumentException(
+								"Not a threshold: " + value);
+					}
+				}
+			} else if (arg.startsWith("-")) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			} else if (!new File(arg).exists()) {
+				throw new IllegalArgumentException("No such file: " + arg);
+			} else {
+				inputs.add(new File(arg));
+			}
+		}
+		if (!root.isDirectory()) {
+			throw new IllegalArgumentException(
+					"Not a directory: " + root);
+		}
+		if (hashCheck && hashBuckets <= 0) {
+			throw new IllegalArgumentException(
+					"-hashcheck needs -hash");
+		}
+		if (manifest != null && (trainFolders != null
+				|| testFolders != null)) {
+			throw new IllegalArgumentException(
+					"-manifest cannot be used with folders");
+		}
+	}
+	
+	/**
+	 * Creates the layout of the corpus from the arguments.
+	 * 
+	 * @return the layout.
+	 */
+	private CorpusLayout layout() {
+		if (manifest != null) {
+			return new CorpusLayout(manifest, recursive, parallelScan);
+		}
+		CorpusLayout layout = CorpusLayout.DEFAULT;
+		return new CorpusLayout((trainFolders == null)? layout.getFolders(
+				FilterMetrics.Phase.TRAIN) : trainFolders,
+				(testFolders == null)? layout.getFolders(
+				FilterMetrics.Phase.TEST) : testFolders, recursive,
+				parallelScan);
+	}
+	
+	/**
+	 * Gets the value of an option.
+	 * 
+	 * @param args - the command line arguments.
+	 * @param i - the index of the value.
+	 * @param option - the option the value is for.
+	 * @return the value.
+	 * @throws IllegalArgumentException if the value is missing.
+	 */
+	private static String value(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(
+					"Missing value for " + option);
+		}
+		return args[i];
+	}
+	
+	/**
+	 * Gets the value of an option that is a number.
+	 * 
+	 * @param args - the command line arguments.
+	 * @param i - the index of the value.
+	 * @param option - the option the value is for.
+	 * @return the value.
+	 * @throws IllegalArgumentException if the value is missing or is not a
+	 * number.
+	 */
+	private static int number(String[] args, int i, String option) {
+		String value = value(args, i, option);
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(
+					"Not a number for " + option + ": " + value);
+		}
+	}
+	
+	/**
+	 * Gets the value of an option that is a list of numbers separated by
+	 * commas.
+	 * 
+	 * @param args - the command line arguments.
+	 * @param i - the index of the value.
+	 * @param option - the option the value is for.
+	 * @return the numbers.
+	 * @throws IllegalArgumentException if the value is missing or is not a
+	 * list of numbers.
+	 */
+	private static double[] numbers(String[] args, int i, String option) {
+		String[] values = value(args, i, option).split(",");
+		double[] numbers = new double[values.length];
+		for (int j = 0; j < values.length; j ++) {
+			try {
+				numbers[j] = Double.parseDouble(values[j].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Not a number for " + option + ": " + values[j]);
+			}
+		}
+		return numbers;
+	}
+	
+	/**
+	 * Creates the filter with the options that were given, before it is
+	 * trained.
+	 * 
+	 * @return the filter.
+	 */
+	private SpamFilter newFilter() {
+		SpamFilter filter = new SpamFilter(root);
+		filter.setParallelism(threads);
+		filter.setReadThreads(readers);
+		filter.setCacheSize(cacheSize);
+		filter.setBudget(new ScoringBudget(maxBytes, maxTokens,
+				strongestWords));
+		filter.setHashBuckets(hashBuckets);
+		filter.setOffHeap(offHeap);
+		filter.setLayout(layout());
+		return filter;
+	}
+	
+	/**
+	 * Trains the filter, or loads it if the saved model is up to date and
+	 * retraining was not asked for, then prunes it if pruning was asked for.
+	 * 
+	 * @return the trained filter.
+	 * @throws IOException if the model could not be saved.
+	 */
+	private SpamFilter train() throws IOException {
+		SpamFilter filter = newFilter();
+		if (retrain) {
+			filter.train();
+			filter.save(new File(root, SpamFilter.MODEL_FILE));
+		} else {
+			filter.loadOrTrain();
+		}
+		
+		// Measure the error of hashing the words
+		if (hashCheck) {
+			SpamFilter exact = new SpamFilter(root);
+			exact.setParallelism(threads);
+			exact.setReadThreads(readers);
+			exact.setLayout(filter.getLayout());
+			exact.train();
+			System.err.println(exact.compareHashed(filter));
+		}
+		
+		// Prune the vocabulary
+		if (minFiles > 0 || maxWords > 0 || topWords > 0) {
+			System.err.println(filter.prune(new VocabularyPruner(minFiles,
+					topWords, ranking, maxWords)));
+		}
+		return filter;
+	}
+	
+	/**
+	 * Trains the filter and serves it over HTTP until the program is
+	 * stopped.
+	 * 
+	 * @throws IOException if the model could not be saved or the port could
+	 * not be bound.
+	 * @throws InterruptedException if the thread was interrupted.
+	 */
+	private void serve() throws IOException, InterruptedException {
+		SpamFilter filter = train();
+		ClassificationServer server = new ClassificationServer(filter,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+				threads);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		server.start();
+		System.err.println("Serving on http://"
+				+ server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + "/classify");
+		server.await();
+	}
+	
+	/**
+	 * Trains the filter and prints how much the scoring budget changes the
+	 * results on the test files.
+	 * 
+	 * @throws IOException if the model could not be saved.
+	 */
+	private void drift() throws IOException {
+		SpamFilter filter = train();
+		System.err.println(filter.compare(filter.getBudget()));
+		for (String failure : filter.getMetrics().getRecentFailures()) {
+			System.err.println("Failed: " + failure);
+		}
+	}
+	
+	/**
+	 * Reads the training files once and prints the results of
+	 * cross-validating every smoothing value and threshold on them.
+	 * 
+	 * @throws IllegalStateException if there are too few training files.
+	 */
+	private void crossValidate() {
+		SpamFilter filter = newFilter();
+		CrossValidator validator = filter.newCrossValidator(folds, seed,
+				null);
+		System.err.println(filter.getMetrics().getPhase(
+				FilterMetrics.Phase.CROSS_VALIDATE));
+		System.err.println(validator.validate(smoothing, thresholds,
+				threads));
+		for (String failure : filter.getMetrics().getRecentFailures()) {
+			System.err.println("Failed: " + failure);
+		}
+	}
+	
+	/**
+	 * Trains the filter, classifies the files and writes the results.
+	 * 
+	 * @throws IOException if the results could not be written.
+	 */
+	private void classify() throws IOException {
+		
+		// Train the filter
+		SpamFilter filter = train();
+		
+		// Classify the files and write the results as they come in
+		OutputStream out = (output == null)? System.out
+				: new FileOutputStream(output);
+		try (ResultWriter results = new ResultWriter(new BufferedWriter(
+				new OutputStreamWriter(out, StandardCharsets.UTF_8)), json)) {
+			if (inputs.isEmpty()) {
+				filter.test(results);
+			} else {
+				for (File input : inputs) {
+					classify(filter, input, results);
+				}
+			}
+			results.finish();
+			
+			// Print the summary
+			System.err.println("Files: " + results.files
+					+ ", spam: " + results.spamGuesses);
+			if (inputs.isEmpty() && results.files > 0) {
+				System.err.println("Accuracy: " + results.getAccuracy());
+				System.err.println("Precision: " + results.getPrecision());
+			}
+			System.err.println(filter.getMetrics());
+			if (filter.getCache() != null) {
+				System.err.println(filter.getCache());
+			}
+			for (String failure : filter.getMetrics().getRecentFailures()) {
+				System.err.println("Failed: " + failure);
+			}
+		}
+	}
+	
+	/**
+	 * Classifies a file, or every file in a directory and its
+	 * sub-directories.
+	 * 
+	 * @param filter - the trained spam filter.
+	 * @param input - the file or directory.
+	 * @param results - the writer for the results.
+	 * @throws IOException if the directory could not be read or the results
+	 * could not be written.
+	 */
+	private static void classify(SpamFilter filter, File input,
+			ResultWriter results) throws IOException {
+		if (!input.isDirectory()) {
+			filter.classify(Collections.singletonList(input).iterator(),
+					null, results);
+			results.finish();
+			return;
+		}
+		
+		// Walk the directory without listing all of the files first
+		try (Stream<Path> paths = Files.walk(input.toPath())) {
+			Iterator<File> files = paths.filter(Files::isRegularFile)
+					.map(Path::toFile).iterator();
+			filter.classify(files, null, results);
+		}
+		results.finish();
+	}
+	
+	/** The {@code ResultWriter} class writes each batch of classified test
+	 * files as soon as it is received and keeps count of the guesses. */
+	private static class ResultWriter implements ProgressListener,
+			AutoCloseable {
+		
+		/** The writer for the results. */
+		private final Writer writer;
+		
+		/** Whether the results are written as JSON lines. */
+		private final boolean json;
+		
+		/** The error that stopped the results from being written. */
+		private IOException error;
+		
+		/** The number of files classified. */
+		private long files;
+		
+		/** The number of files classified as spam. */
+		private long spamGuesses;
+		
+		/** The number of spam files classified as spam. */
+		private long correctSpamGuesses;
+		
+		/** The number of files classified as their actual class. */
+		private long correctGuesses;
+		
+		public ResultWriter(Writer writer, boolean json) throws IOException {
+			this.writer = writer;
+			this.json = json;
+			if (!json) {
+				writer.write("file,actual,predicted,probability\n");
+			}
+		}
+		
+		@Override
+		public void tested(List<TestFile> batch) {
+			try {
+				for (TestFile file : batch) {
+					write(file);
+				}
+				writer.flush();
+			} catch (IOException e) {
+				this.error = e;
+			}
+		}
+		
+		@Override
+		public boolean isCancelled() {
+			return error != null;
+		}
+		
+		/**
+		 * Throws the error that stopped the results from being written, if
+		 * there was one.
+		 * 
+		 * @throws IOException if the results could not be written.
+		 */
+		public void finish() throws IOException {
+			if (error != null) {
+				throw error;
+			}
+		}
+		
+		/**
+		 * Gets the accuracy, which is the fraction of the files that were
+		 * classified as their actual class.
+		 * 
+		 * @return the accuracy.
+		 */
+		public double getAccuracy() {
+			return (files == 0)? 0 : 1.0*correctGuesses / files;
+		}
+		
+		/**
+		 * Gets the precision, which is the fraction of the files classified
+		 * as spam that were actually spam.
+		 * 
+		 * @return the precision.
+		 */
+		public double getPrecision() {
+			return (spamGuesses == 0)? 0 : 1.0*correctSpamGuesses / spamGuesses;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+		
+		/**
+		 * Writes the result of a test file and counts the guess.
+		 * 
+		 * @param file - the classified test file.
+		 * @throws IOException if the result could not be written.
+		 */
+		private void write(TestFile file) throws IOException {
+			String predicted = file.getPredictedClass();
+			String actual = file.getActualClass();
+			files ++;
+			if (TestFile.SPAM.equals(predicted)) {
+				spamGuesses ++;
+				if (TestFile.SPAM.equals(actual)) {
+					correctSpamGuesses ++;
+				}
+			}
+			if (predicted.equals(actual)) {
+				correctGuesses ++;
+			}
+			
+			// Write the result
+			if (json) {
+				writer.write("{\"file\":" + quote(file.getFilename())
+						+ ",\"actual\":" + quote(actual)
+						+ ",\"predicted\":" + quote(predicted)
+						+ ",\"probability\":"
+						+ number(file.getSpamProbability()) + "}\n");
+			} else {
+				writer.write(csv(file.getFilename()) + ","
+						+ csv(actual) + "," + predicted + ","
+						+ file.getSpamProbability() + "\n");
+			}
+		}
+		
+		/**
+		 * Escapes a CSV field if it has to be quoted.
+		 * 
+		 * @param value - the value of the field, which may be null.
+		 * @return the field.
+		 */
+		private static String csv(String value) {
+			if (value == null) {
+				return "";
+			}
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+					&& value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+				return value;
+			}
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		
+		/**
+		 * Converts a number to JSON, which has no NaN or infinity.
+		 * 
+		 * @param value - the number.
+		 * @return the JSON number, or null if it is not finite.
+		 */
+		private static String number(double value) {
+			return (Double.isNaN(value) || Double.isInfinite(value))
+					? "null" : Double.toString(value);
+		}
+		
+		/**
+		 * Converts a value to a JSON string.
+		 * 
+		 * @param value - the value, which may be null.
+		 * @return the JSON string, or null.
+		 */
+		private static String quote(String value) {
+			if (value == null) {
+				return "null";
+			}
+			StringBuilder sb = new StringBuilder(value.length() + 2);
+			sb.append('"');
+			for (int i = 0; i < value.length(); i ++) {
+				char c = value.charAt(i);
+				if (c == '"' || c == '\\') {
+					sb.append('\\').append(c);
+				} else if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+			return sb.append('"').toString();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/* Name: CorpusFingerprint
+ * Author: Devon McGrath
+ * Description: This class sums up the training files of a spam filter so
+ * that a saved model can tell if the files changed after it was trained.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * <p>The {@code CorpusFingerprint} class is the number of training files,
+ * their total size and a hash of the name, class, size and time last
+ * modified of each of them. The hash is a sum, so it does not depend on the
+ * order the files are found in. Editing, replacing, adding, removing or
+ * moving a file to a folder of the other class changes the fingerprint,
+ * even when the time of the folder does not change.</p>
+ * 
+ * <p>The fingerprint of the files a model was trained on is saved with the
+ * model (see {@link SpamFilter#save(File)}) and compared to the files that
+ * are there now by {@link SpamFilter#loadOrTrain()}. Only the files are
+ * looked at, not their contents, so an archive counts as one file.</p>
+ * 
+ * <p>A fingerprint is filled in by one thread and is not thread-safe.</p>
+ */
+public class CorpusFingerprint {
+	
+	/** The number of bytes a fingerprint takes in a saved model. */
+	public static final int BYTES = 4 + 8 + 8;
+	
+	/** The number of files. */
+	private int files;
+	
+	/** The total size of the files in bytes. */
+	private long bytes;
+	
+	/** The sum of the hashes of the files. */
+	private long hash;
+	
+	/** Constructs the fingerprint of no files. */
+	public CorpusFingerprint() {
+	}
+	
+	/**
+	 * Constructs a fingerprint that was saved.
+	 * 
+	 * @param files - the number of files.
+	 * @param bytes - the total size of the files.
+	 * @param hash - the sum of the hashes of the files.
+	 */
+	private CorpusFingerprint(int files, long bytes, long hash) {
+		this.files = files;
+		this.bytes = bytes;
+		this.hash = hash;
+	}
+	
+	/**
+	 * <b><em>scan</em></b>
+	 * 
+	 * <p>Finds the fingerprint of the training files of a layout, without
+	 * reading them.</p>
+	 * 
+	 * @param root - the root directory.
+	 * @param layout - where the training files are.
+	 * @param parallelism - the number of threads that list the folders.
+	 * @param metrics - the metrics to record folders that could not be
+	 * listed in, which may be null.
+	 * @return the fingerprint.
+	 */
+	public static CorpusFingerprint scan(File root, CorpusLayout layout,
+			int parallelism, FilterMetrics metrics) {
+		CorpusFingerprint fingerprint = new CorpusFingerprint();
+		try (CorpusScanner files = new CorpusScanner(root, layout,
+				FilterMetrics.Phase.TRAIN, parallelism, metrics)) {
+			while (files.hasNext()) {
+				fingerprint.add(files.next());
+			}
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds a training file to the fingerprint.</p>
+	 * 
+	 * @param entry - the file with its actual class.
+	 */
+	public void add(CorpusScanner.Entry entry) {
+		File file = entry.getFile();
+		long size = file.length();
+		long h = file.getName().hashCode() * 0x9E3779B97F4A7C15L;
+		h = (h ^ file.lastModified()) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ size) * 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		this.files ++;
+		this.bytes += size;
+		this.hash += entry.isSpam()? h : ~h;
+	}
+	
+	/**
+	 * <b><em>track</em></b>
+	 * 
+	 * <p>Adds each file to the fingerprint as it is taken from an
+	 * iterator.</p>
+	 * 
+	 * @param files - the training files.
+	 * @return an iterator of the same files.
+	 */
+	public Iterator<CorpusScanner.Entry> track(
+			final Iterator<CorpusScanner.Entry> files) {
+		return new Iterator<CorpusScanner.Entry>() {
+			@Override
+			public boolean hasNext() {
+				return files.hasNext();
+			}
+			
+			@Override
+			public CorpusScanner.Entry next() {
+				CorpusScanner.Entry entry = files.next();
+				add(entry);
+				return entry;
+			}
+		};
+	}
+	
+	/**
+	 * <b><em>write</em></b>
+	 * 
+	 * <p>Writes the fingerprint in {@value #BYTES} bytes.</p>
+	 * 
+	 * @param out - the output to write to.
+	 * @throws IOException if it could not be written.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(files);
+		out.writeLong(bytes);
+		out.writeLong(hash);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads a fingerprint written by {@link #write(DataOutput)}.</p>
+	 * 
+	 * @param in - the buffer to read from.
+	 * @return the fingerprint.
+	 * @throws IOException if the buffer ends before the fingerprint does.
+	 */
+	public static CorpusFingerprint read(ByteBuffer in) throws IOException {
+		try {
+			return new CorpusFingerprint(in.getInt(), in.getLong(),
+					in.getLong());
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of fingerprint", e);
+		}
+	}
+	
+	/**
+	 * <b><em>unknown</em></b>
+	 * 
+	 * <p>Gets a fingerprint that is not equal to that of any files, for a
+	 * model that was not trained on exactly the files of a corpus.</p>
+	 * 
+	 * @return the fingerprint.
+	 */
+	public static CorpusFingerprint unknown() {
+		return new CorpusFingerprint(-1, -1, 0);
+	}
+	
+	public int getFiles() {
+		return files;
+	}
+	
+	public long getBytes() {
+		return bytes;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof CorpusFingerprint)) {
+			return false;
+		}
+		CorpusFingerprint other = (CorpusFingerprint) obj;
+		return files >= 0 && files == other.files && bytes == other.bytes
+				&& hash == other.hash;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Long.hashCode(hash);
+	}
+	
+	@Override
+	public String toString() {
+		return files + " files, " + bytes + " bytes, hash "
+				+ Long.toHexString(hash);
+	}
+}
@@ -0,0 +1,418 @@
+/* Name: CorpusGenerator
+ * Author: Devon McGrath
+ * Description: This class writes synthetic e-mails for training and testing
+ * the spam filter, so that it can be measured with corpora of any size.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * <p>The {@code CorpusGenerator} class creates a corpus in the layout that
+ * {@link SpamFilter} reads:<br>
+ * <em>root</em>/train/spam<br>
+ * <em>root</em>/train/ham<br>
+ * <em>root</em>/test/spam<br>
+ * <em>root</em>/test/ham</p>
+ * 
+ * <p>The words of every e-mail are drawn from a Zipfian distribution, where
+ * the n-th most common word shows up in proportion to 1 / n^s, which is how
+ * words are spread out in real text. A fraction of the words (the signal)
+ * are instead drawn from a smaller vocabulary that only spam or only ham
+ * e-mails use, so the filter has something to learn.</p>
+ * 
+ * <p>The corpus is deterministic: each e-mail is generated from its own
+ * random seed, which depends only on the seed of the generator and the
+ * number of the e-mail. The same settings always write the same files, no
+ * matter how many threads are used to write them. The generator can be run
+ * from the command line:</p>
+ * 
+ * <pre>
+ * java program.CorpusGenerator root [-trainHam n] [-trainSpam n]
+ *     [-testHam n] [-testSpam n] [-words n] [-vocabulary n] [-exponent s]
+ *     [-signal f] [-seed n]
+ * </pre>
+ */
+public class CorpusGenerator {
+	
+	/** The number of words on each line of an e-mail. */
+	private static final int WORDS_PER_LINE = 12;
+	
+	/** The number of ham files to write in the training directory. */
+	private int trainHam = 1000;
+	
+	/** The number of spam files to write in the training directory. */
+	private int trainSpam = 1000;
+	
+	/** The number of ham files to write in the test directory. */
+	private int testHam = 250;
+	
+	/** The number of spam files to write in the test directory. */
+	private int testSpam = 250;
+	
+	/** The average number of words in an e-mail. */
+	private int words = 200;
+	
+	/** The number of words that both classes share. */
+	private int vocabulary = 50000;
+	
+	/** The exponent of the Zipfian distribution. */
+	private double exponent = 1.0;
+	
+	/** The fraction of the words that only one class uses. */
+	private double signal = 0.1;
+	
+	/** The seed that every e-mail is generated from. */
+	private long seed = 2017;
+	
+	/** The cumulative distribution of the shared words, or null if the
+	 * settings have changed. */
+	private double[] shared;
+	
+	/** The cumulative distribution of the words of each class. */
+	private double[] classWords;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: java program.CorpusGenerator root "
+					+ "[-trainHam n] [-trainSpam n] [-testHam n] "
+					+ "[-testSpam n] [-words n] [-vocabulary n] "
+					+ "[-exponent s] [-signal f] [-seed n]");
+			System.exit(2);
+		}
+		
+		// Read the options
+		CorpusGenerator generator = new CorpusGenerator();
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "-trainHam": generator.setTrainHam(
+					Integer.parseInt(value)); break;
+			case "-trainSpam": generator.setTrainSpam(
+					Integer.parseInt(value)); break;
+			case "-testHam": generator.setTestHam(
+					Integer.parseInt(value)); break;
+			case "-testSpam": generator.setTestSpam(
+					Integer.parseInt(value)); break;
+			case "-words": generator.setWords(
+					Integer.parseInt(value)); break;
+			case "-vocabulary": generator.setVocabulary(
+					Integer.parseInt(value)); break;
+			case "-exponent": generator.setExponent(
+					Double.parseDouble(value)); break;
+			case "-signal": generator.setSignal(
+					Double.parseDouble(value)); break;
+			case "-seed": generator.setSeed(
+					Long.parseLong(value)); break;
+			default:
+				throw new IllegalArgumentException(
+						"Unknown option: " + args[i]);
+			}
+		}
+		
+		long start = System.nanoTime();
+		generator.generate(new File(args[0]));
+		System.err.println("Wrote " + generator.getFileCount()
+				+ " files in " + (System.nanoTime() - start) / 1000000
+				+ " ms");
+	}
+	
+	/**
+	 * <b><em>generate</em></b>
+	 * 
+	 * <p>Writes the training and test files under a root directory. The
+	 * files are written in parallel. Files that already exist are
+	 * replaced.</p>
+	 * 
+	 * @param root - the root directory, which is created if needed.
+	 * @throws IOException if a file could not be written.
+	 */
+	public void generate(File root) throws IOException {
+		long offset = 0;
+		offset = write(root, SpamFilter.TRAIN_DIR, SpamFilter.NON_SPAM_DIR,
+				false, trainHam, offset);
+		offset = write(root, SpamFilter.TRAIN_DIR, SpamFilter.SPAM_DIR,
+				true, trainSpam, offset);
+		offset = write(root, SpamFilter.TEST_DIR, SpamFilter.NON_SPAM_DIR,
+				false, testHam, offset);
+		write(root, SpamFilter.TEST_DIR, SpamFilter.SPAM_DIR, true, testSpam,
+				offset);
+	}
+	
+	/**
+	 * <b><em>document</em></b>
+	 * 
+	 * <p>Generates the text of a single e-mail. This is what is written to
+	 * each file by {@link #generate(File)}, and it can also be used to
+	 * measure the filter without reading files.</p>
+	 * 
+	 * @param number - the number of the e-mail, which its seed is made
+	 * from.
+	 * @param isSpam - the class of the e-mail.
+	 * @return the UTF-8 text of the e-mail.
+	 */
+	public byte[] document(long number, boolean isSpam) {
+		prepare();
+		SplittableRandom random = new SplittableRandom(
+				seed ^ (number * 0x9E3779B97F4A7C15L));
+		int count = Math.max(1, words/2 + random.nextInt(words + 1));
+		byte[] text = new byte[count * 8];
+		int length = 0;
+		for (int i = 0; i < count; i ++) {
+			
+			// Pick a shared word or a word of the class
+			long id;
+			if (random.nextDouble() < signal) {
+				id = vocabulary + sample(classWords, random)
+						+ (isSpam? classWords.length : 0);
+			} else {
+				id = sample(shared, random);
+			}
+			
+			// Write the word and a space or a new line
+			if (text.length - length < 16) {
+				text = Arrays.copyOf(text, text.length * 2);
+			}
+			length = word(id, text, length);
+			text[length ++] = (byte) ((i % WORDS_PER_LINE
+					== WORDS_PER_LINE - 1)? '\n' : ' ');
+		}
+		return Arrays.copyOf(text, length);
+	}
+	
+	/**
+	 * <b><em>getFileCount</em></b>
+	 * 
+	 * @return the total number of files written by {@link #generate(File)}.
+	 */
+	public long getFileCount() {
+		return (long) trainHam + trainSpam + testHam + testSpam;
+	}
+	
+	public int getTrainHam() {
+		return trainHam;
+	}
+	
+	public void setTrainHam(int trainHam) {
+		this.trainHam = Math.max(0, trainHam);
+	}
+	
+	public int getTrainSpam() {
+		return trainSpam;
+	}
+	
+	public void setTrainSpam(int trainSpam) {
+		this.trainSpam = Math.max(0, trainSpam);
+	}
+	
+	public int getTestHam() {
+		return testHam;
+	}
+	
+	public void setTestHam(int testHam) {
+		this.testHam = Math.max(0, testHam);
+	}
+	
+	public int getTestSpam() {
+		return testSpam;
+	}
+	
+	public void setTestSpam(int testSpam) {
+		this.testSpam = Math.max(0, testSpam);
+	}
+	
+	public int getWords() {
+		return words;
+	}
+	
+	/**
+	 * <b><em>setWords</em></b>
+	 * 
+	 * <p>Sets the average number of words in an e-mail. The length of each
+	 * e-mail is picked evenly from half to one and a half times this.</p>
+	 * 
+	 * @param words - the average number of words.
+	 */
+	public void setWords(int words) {
+		this.words = Math.max(1, words);
+	}
+	
+	public int getVocabulary() {
+		return vocabulary;
+	}
+	
+	/**
+	 * <b><em>setVocabulary</em></b>
+	 * 
+	 * <p>Sets the number of words that both classes share. Each class also
+	 * has its own words, a tenth as many.</p>
+	 * 
+	 * @param vocabulary - the number of shared words.
+	 */
+	public void setVocabulary(int vocabulary) {
+		this.vocabulary = Math.max(10, vocabulary);
+		this.shared = null;
+	}
+	
+	public double getExponent() {
+		return exponent;
+	}
+	
+	/**
+	 * <b><em>setExponent</em></b>
+	 * 
+	 * <p>Sets the exponent of the Zipfian distribution. 1.0 is close to
+	 * English text and larger values make the common words more
+	 * common.</p>
+	 * 
+	 * @param exponent - the exponent, which must be positive.
+	 */
+	public void setExponent(double exponent) {
+		if (!(exponent > 0)) {
+			throw new IllegalArgumentException(
+					"The exponent must be positive: " + exponent);
+		}
+		this.exponent = exponent;
+		this.shared = null;
+	}
+	
+	public double getSignal() {
+		return signal;
+	}
+	
+	/**
+	 * <b><em>setSignal</em></b>
+	 * 
+	 * <p>Sets the fraction of the words that are drawn from the words of
+	 * only one class. At 0, spam and ham cannot be told apart.</p>
+	 * 
+	 * @param signal - the fraction, from 0 to 1.
+	 */
+	public void setSignal(double signal) {
+		this.signal = Math.min(1, Math.max(0, signal));
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Writes the files of one directory in parallel.
+	 * 
+	 * @param root - the root directory.
+	 * @param dir - the training or test directory.
+	 * @param name - the spam or ham directory.
+	 * @param isSpam - the class of the files.
+	 * @param count - the number of files.
+	 * @param offset - the number of the first e-mail.
+	 * @return the number of the e-mail after the last one written.
+	 * @throws IOException if a file could not be written.
+	 */
+	private long write(File root, String dir, String name, boolean isSpam,
+			int count, long offset) throws IOException {
+		File directory = new File(root, dir + File.separator + name);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		prepare();
+		try {
+			LongStream.range(0, count).parallel().forEach(i -> {
+				File file = new File(directory,
+						String.format("%08d.txt", i));
+				try (OutputStream out = new BufferedOutputStream(
+						new FileOutputStream(file))) {
+					out.write(document(offset + i, isSpam));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return offset + count;
+	}
+	
+	/** Computes the distributions of the words, if the settings have
+	 * changed. */
+	private synchronized void prepare() {
+		if (shared == null) {
+			this.shared = zipf(vocabulary, exponent);
+			this.classWords = zipf(Math.max(1, vocabulary / 10), exponent);
+		}
+	}
+	
+	/**
+	 * Computes the cumulative Zipfian distribution of a number of words.
+	 * 
+	 * @param n - the number of words.
+	 * @param s - the exponent.
+	 * @return the cumulative probability of each word, the last of which is
+	 * 1.
+	 */
+	private static double[] zipf(int n, double s) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i ++) {
+			sum += 1.0 / Math.pow(i + 1, s);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i ++) {
+			cdf[i] /= sum;
+		}
+		cdf[n - 1] = 1.0;
+		return cdf;
+	}
+	
+	/**
+	 * Picks a word from a cumulative distribution.
+	 * 
+	 * @param cdf - the cumulative distribution.
+	 * @param random - the random number generator.
+	 * @return the rank of the word, from 0.
+	 */
+	private static int sample(double[] cdf, SplittableRandom random) {
+		int i = Arrays.binarySearch(cdf, random.nextDouble());
+		return (i < 0)? -i - 1 : i;
+	}
+	
+	/**
+	 * Writes the word with an id, which is the id written in base 26 with
+	 * the letters a to z.
+	 * 
+	 * @param id - the id of the word.
+	 * @param text - the text to write the word to.
+	 * @param length - the index to write the word at.
+	 * @return the index after the word.
+	 */
+	private static int word(long id, byte[] text, int length) {
+		int start = length;
+		do {
+			text[length ++] = (byte) ('a' + id % 26);
+			id /= 26;
+		} while (id > 0);
+		
+		// The letters were written backwards
+		for (int i = start, j = length - 1; i < j; i ++, j --) {
+			byte b = text[i];
+			text[i] = text[j];
+			text[j] = b;
+		}
+		return length;
+	}
+}
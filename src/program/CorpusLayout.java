@@ -0,0 +1,200 @@
+/* Name: CorpusLayout
+ * Author: Devon McGrath
+ * Description: This class describes where the training and testing files of
+ * a spam filter are and whether they are spam or ham.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>The {@code CorpusLayout} class maps the files under the root directory
+ * of a {@link SpamFilter} to their classes (see
+ * {@link SpamFilter#setLayout(CorpusLayout)}). The files are found by a
+ * {@link CorpusScanner} in one of two ways:</p>
+ * 
+ * <ul>
+ * <li><b>folders</b> - each folder, relative to the root, is labelled spam
+ * or ham for training or testing. Every file in the folder has that label,
+ * and so does every file in its sub-folders if the layout is recursive.
+ * This is what the {@link #DEFAULT} layout does.</li>
+ * <li><b>manifest</b> - a text file with one labelled file or folder per
+ * line, as the phase, the label and the path separated by spaces or
+ * tabs:
+ * <pre>
+ * # phase  label  path (relative to the manifest)
+ * train    ham    train/ham
+ * train    spam   archive/2017/junk.eml
+ * test     spam   test/spam
+ * </pre>
+ * Blank lines and lines starting with {@code #} are skipped.</li>
+ * </ul>
+ * 
+ * <p>The files are listed in the order of the folders or lines, and in
+ * directory order within a folder. With {@code parallel}, the sub-folders
+ * are listed on more than one thread, which is faster on a deep tree but
+ * gives the files in no particular order. A layout is never modified.</p>
+ */
+public class CorpusLayout {
+	
+	/** The label of spam files in a folder list or manifest. */
+	public static final String SPAM = "spam";
+	
+	/** The label of ham files in a folder list or manifest. */
+	public static final String HAM = "ham";
+	
+	/** The layout of the original program: root/{@value
+	 * SpamFilter#TRAIN_DIR} has the folders {@value SpamFilter#NON_SPAM_DIR},
+	 * {@value SpamFilter#NON_SPAM_DIR_2} and {@value SpamFilter#SPAM_DIR},
+	 * and root/{@value SpamFilter#TEST_DIR} has the folders {@value
+	 * SpamFilter#NON_SPAM_DIR} and {@value SpamFilter#SPAM_DIR}. */
+	public static final CorpusLayout DEFAULT = new CorpusLayout(
+			parseFolders(SpamFilter.TRAIN_DIR + "/" + SpamFilter.NON_SPAM_DIR
+			+ "=" + HAM + "," + SpamFilter.TRAIN_DIR + "/"
+			+ SpamFilter.NON_SPAM_DIR_2 + "=" + HAM + ","
+			+ SpamFilter.TRAIN_DIR + "/" + SpamFilter.SPAM_DIR + "=" + SPAM),
+			parseFolders(SpamFilter.TEST_DIR + "/" + SpamFilter.NON_SPAM_DIR
+			+ "=" + HAM + "," + SpamFilter.TEST_DIR + "/"
+			+ SpamFilter.SPAM_DIR + "=" + SPAM), false, false);
+	
+	/** The training folders and whether their files are spam. */
+	private final Map<String, Boolean> trainFolders;
+	
+	/** The testing folders and whether their files are spam. */
+	private final Map<String, Boolean> testFolders;
+	
+	/** The manifest of the files, or null if the folders are used. */
+	private final File manifest;
+	
+	/** Whether the files in sub-folders are included. */
+	private final boolean recursive;
+	
+	/** Whether the sub-folders are listed on more than one thread. */
+	private final boolean parallel;
+	
+	/**
+	 * Constructs a layout of labelled folders.
+	 * 
+	 * @param trainFolders - the training folders, relative to the root,
+	 * and whether their files are spam (see {@link #parseFolders(String)}).
+	 * @param testFolders - the testing folders and whether their files are
+	 * spam.
+	 * @param recursive - true to include the files in sub-folders.
+	 * @param parallel - true to list the sub-folders on more than one
+	 * thread.
+	 */
+	public CorpusLayout(Map<String, Boolean> trainFolders,
+			Map<String, Boolean> testFolders, boolean recursive,
+			boolean parallel) {
+		this.trainFolders = Collections.unmodifiableMap(
+				new LinkedHashMap<>(trainFolders));
+		this.testFolders = Collections.unmodifiableMap(
+				new LinkedHashMap<>(testFolders));
+		this.manifest = null;
+		this.recursive = recursive;
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Constructs a layout from a manifest. The manifest is only read when
+	 * the files are listed.
+	 * 
+	 * @param manifest - the manifest file.
+	 * @param recursive - true to include the files in sub-folders of the
+	 * folders in the manifest.
+	 * @param parallel - true to list the sub-folders on more than one
+	 * thread.
+	 */
+	public CorpusLayout(File manifest, boolean recursive, boolean parallel) {
+		this.trainFolders = Collections.emptyMap();
+		this.testFolders = Collections.emptyMap();
+		this.manifest = manifest;
+		this.recursive = recursive;
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * <b><em>parseFolders</em></b>
+	 * 
+	 * <p>Reads a list of labelled folders such as
+	 * {@code "train/ham=ham,train/spam=spam"}.</p>
+	 * 
+	 * @param folders - the folders and labels, separated by commas.
+	 * @return the folders, in order, and whether their files are spam.
+	 * @throws IllegalArgumentException if a folder has no label or the label
+	 * is not {@value #SPAM} or {@value #HAM}.
+	 */
+	public static Map<String, Boolean> parseFolders(String folders) {
+		Map<String, Boolean> labels = new LinkedHashMap<>();
+		for (String folder : folders.split(",")) {
+			int split = folder.lastIndexOf('=');
+			if (split <= 0) {
+				throw new IllegalArgumentException(
+						"No label for folder: " + folder);
+			}
+			labels.put(folder.substring(0, split).trim(),
+					isSpam(folder.substring(split + 1)));
+		}
+		return labels;
+	}
+	
+	/**
+	 * <b><em>isSpam</em></b>
+	 * 
+	 * @param label - the label, which is not case sensitive.
+	 * @return true for {@value #SPAM}, false for {@value #HAM}.
+	 * @throws IllegalArgumentException if it is neither.
+	 */
+	public static boolean isSpam(String label) {
+		String name = label.trim().toLowerCase(Locale.ROOT);
+		if (!name.equals(SPAM) && !name.equals(HAM)) {
+			throw new IllegalArgumentException("Unknown label: " + label);
+		}
+		return name.equals(SPAM);
+	}
+	
+	/**
+	 * <b><em>getFolders</em></b>
+	 * 
+	 * @param phase - {@link FilterMetrics.Phase#TRAIN} or
+	 * {@link FilterMetrics.Phase#TEST}.
+	 * @return the folders of the phase and whether their files are spam,
+	 * which is empty for a manifest or any other phase.
+	 */
+	public Map<String, Boolean> getFolders(FilterMetrics.Phase phase) {
+		if (phase == FilterMetrics.Phase.TRAIN) {
+			return trainFolders;
+		} else if (phase == FilterMetrics.Phase.TEST) {
+			return testFolders;
+		}
+		return Collections.emptyMap();
+	}
+	
+	public File getManifest() {
+		return manifest;
+	}
+	
+	public boolean isRecursive() {
+		return recursive;
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	@Override
+	public String toString() {
+		String files = (manifest != null)? "manifest=" + manifest
+				: "train=" + trainFolders + ", test=" + testFolders;
+		return files + (recursive? ", recursive" : "")
+				+ (parallel? ", parallel" : "");
+	}
+}
@@ -0,0 +1,634 @@
+/* Name: CorpusScanner
+ * Author: Devon McGrath
+ * Description: This class lists the labelled training or testing files of a
+ * spam filter one at a time, without listing all of them first.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added e-mails from archives - Devon McGrath
+ */
+
+package program;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The {@code CorpusScanner} class finds the files of one phase of a
+ * {@link CorpusLayout} with NIO directory streams. The folders are read as
+ * the files are asked for, so only the folders being read are open and no
+ * list of every file is ever made, even for folders with millions of files.
+ * The attributes of each entry are read once, which is all it takes to tell
+ * files from folders.</p>
+ * 
+ * <p>Links to files are followed, as are links to the folders named by the
+ * layout, but links to sub-folders are not, so a cycle of links cannot be
+ * followed forever. Folders that do not exist are skipped, and folders that
+ * cannot be read are recorded as failures in the metrics.</p>
+ * 
+ * <p>If the layout is parallel, the folders are read by a pool of threads
+ * that stays up to {@value #QUEUE_SIZE} files ahead of the reader. A
+ * scanner must be closed, which stops the threads and closes the folders
+ * that are still open. It is used by one thread.</p>
+ */
+public class CorpusScanner implements Iterator<CorpusScanner.Entry>,
+		AutoCloseable {
+	
+	/** The number of files parallel listing can get ahead of the reader. */
+	private static final int QUEUE_SIZE = 4096;
+	
+	/** How long a thread waits for room in the queue before checking if
+	 * the scanner was closed, in milliseconds. */
+	private static final long OFFER_TIMEOUT = 100;
+	
+	/** The type of an entry that is neither a file nor a folder, or could
+	 * not be read. */
+	private static final int OTHER = 0;
+	
+	/** The type of an entry that is a file. */
+	private static final int FILE = 1;
+	
+	/** The type of an entry that is a folder. */
+	private static final int FOLDER = 2;
+	
+	/** Marks the end of the files in the queue. */
+	private static final Entry END = new Entry(null, null);
+	
+	/** The root directory of the spam filter. */
+	private final File root;
+	
+	/** The layout of the files. */
+	private final CorpusLayout layout;
+	
+	/** The phase of the files, either training or testing. */
+	private final FilterMetrics.Phase phase;
+	
+	/** The number of threads to list the folders with. */
+	private final int parallelism;
+	
+	/** The metrics to record failures in, or null. */
+	private final FilterMetrics metrics;
+	
+	/** The folders of the layout that have not been read yet. */
+	private Iterator<Map.Entry<String, Boolean>> folders;
+	
+	/** The reader of the manifest, or null. */
+	private BufferedReader manifest;
+	
+	/** The number of lines read from the manifest. */
+	private int line;
+	
+	/** The open folders, with the one being read first. */
+	private final Deque<Listing> listings;
+	
+	/** The pool that lists the folders in parallel, or null. */
+	private ForkJoinPool pool;
+	
+	/** The files listed in parallel that have not been read yet. */
+	private BlockingQueue<Entry> queue;
+	
+	/** The next file, or null if it has not been found yet. */
+	private Entry next;
+	
+	/** Whether the files have started to be listed. */
+	private boolean started;
+	
+	/** Whether all of the files have been listed. */
+	private boolean finished;
+	
+	/** Whether the scanner was closed. */
+	private volatile boolean closed;
+	
+	/**
+	 * Constructs a scanner for the files of one phase. Nothing is read until
+	 * the first file is asked for.
+	 * 
+	 * @param root - the root directory of the spam filter.
+	 * @param layout - the layout of the files.
+	 * @param phase - {@link FilterMetrics.Phase#TRAIN} or
+	 * {@link FilterMetrics.Phase#TEST}.
+	 * @param parallelism - the number of threads to list the folders with if
+	 * the layout is parallel.
+	 * @param metrics - the metrics to record failures in, which may be null.
+	 */
+	public CorpusScanner(File root, CorpusLayout layout,
+			FilterMetrics.Phase phase, int parallelism,
+			FilterMetrics metrics) {
+		this.root = root;
+		this.layout = layout;
+		this.phase = phase;
+		this.parallelism = parallelism;
+		this.metrics = metrics;
+		this.listings = new ArrayDeque<>();
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			if (!started) {
+				start();
+			}
+			next = (pool == null)? advance() : take();
+			finished = next == null;
+		}
+		return next != null;
+	}
+	
+	@Override
+	public Entry next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Entry entry = next;
+		this.next = null;
+		return entry;
+	}
+	
+	/**
+	 * <b><em>close</em></b>
+	 * 
+	 * <p>Stops listing the files and closes the folders and the manifest.</p>
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		this.finished = true;
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+		while (!listings.isEmpty()) {
+			listings.pop().close();
+		}
+		if (manifest != null) {
+			try {
+				manifest.close();
+			} catch (IOException e) {
+				// Nothing is read from it after this
+			}
+		}
+	}
+	
+	/**
+	 * Opens the manifest or the list of folders, and starts the threads if
+	 * the folders are listed in parallel.
+	 */
+	private void start() {
+		this.started = true;
+		File file = layout.getManifest();
+		if (file == null) {
+			this.folders = layout.getFolders(phase).entrySet().iterator();
+		} else {
+			try {
+				this.manifest = Files.newBufferedReader(file.toPath(),
+						StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				failed(file.toPath(), e);
+			}
+		}
+		if (layout.isParallel() && parallelism > 1) {
+			this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+			this.pool = new ForkJoinPool(parallelism);
+			pool.execute(new ScanTask());
+		}
+	}
+	
+	/**
+	 * Finds the next file on this thread.
+	 * 
+	 * @return the file, or null if there are no more.
+	 */
+	private Entry advance() {
+		while (true) {
+			
+			// Start the next folder or file of the layout
+			Listing listing = listings.peek();
+			if (listing == null) {
+				Source source = nextSource();
+				if (source == null) {
+					return null;
+				}
+				int type = type(source.path, true);
+				if (type == FILE) {
+					return new Entry(source.path.toFile(), source.label);
+				} else if (type == FOLDER) {
+					open(source.path, source.label);
+				}
+				continue;
+			}
+			
+			// Or get the next entry of the folder being read
+			Path path;
+			try {
+				if (!listing.paths.hasNext()) {
+					listings.pop().close();
+					continue;
+				}
+				path = listing.paths.next();
+			} catch (DirectoryIteratorException e) {
+				failed(listing.folder, e.getCause());
+				listings.pop().close();
+				continue;
+			}
+			int type = type(path, false);
+			if (type == FILE) {
+				return new Entry(path.toFile(), listing.label);
+			} else if (type == FOLDER && layout.isRecursive()) {
+				open(path, listing.label);
+			}
+		}
+	}
+	
+	/**
+	 * Waits for the next file listed by the threads.
+	 * 
+	 * @return the file, or null if there are no more.
+	 */
+	private Entry take() {
+		try {
+			Entry entry = queue.take();
+			return (entry == END)? null : entry;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+	
+	/**
+	 * Opens a folder to be read before the rest of the folders.
+	 * 
+	 * @param folder - the folder.
+	 * @param label - the class of the files in it.
+	 */
+	private void open(Path folder, String label) {
+		try {
+			listings.push(new Listing(folder, label,
+					Files.newDirectoryStream(folder)));
+		} catch (IOException e) {
+			failed(folder, e);
+		}
+	}
+	
+	/**
+	 * Gets the next labelled folder or file of the layout.
+	 * 
+	 * @return the folder or file, or null if there are no more.
+	 */
+	private Source nextSource() {
+		
+		// Get the next folder
+		if (folders != null) {
+			if (!folders.hasNext()) {
+				return null;
+			}
+			Map.Entry<String, Boolean> folder = folders.next();
+			return new Source(new File(root, folder.getKey()).toPath(),
+					label(folder.getValue()));
+		}
+		
+		// Or the next line of the manifest for the phase
+		Path base = layout.getManifest().getAbsoluteFile().toPath()
+				.getParent();
+		try {
+			String text;
+			while (manifest != null && (text = manifest.readLine()) != null) {
+				this.line ++;
+				text = text.trim();
+				if (text.isEmpty() || text.startsWith("#")) {
+					continue;
+				}
+				String[] fields = text.split("\\s+", 3);
+				if (fields.length < 3) {
+					failed(layout.getManifest().toPath(),
+							new IllegalArgumentException("Line " + line
+							+ " has no path"));
+					continue;
+				}
+				if (!fields[0].equalsIgnoreCase(phase.name())) {
+					continue;
+				}
+				try {
+					return new Source(base.resolve(fields[2]),
+							label(CorpusLayout.isSpam(fields[1])));
+				} catch (IllegalArgumentException e) {
+					failed(layout.getManifest().toPath(),
+							new IllegalArgumentException("Line " + line
+							+ ": " + e.getMessage()));
+				}
+			}
+		} catch (IOException e) {
+			failed(layout.getManifest().toPath(), e);
+		}
+		return null;
+	}
+	
+	/**
+	 * Reads the attributes of an entry to tell what it is.
+	 * 
+	 * @param path - the entry.
+	 * @param named - true if the entry was named by the layout.
+	 * @return {@link #FILE}, {@link #FOLDER} or {@link #OTHER}.
+	 */
+	private int type(Path path, boolean named) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path,
+					BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			
+			// Only follow a link to a folder named by the layout
+			if (attributes.isSymbolicLink()) {
+				attributes = Files.readAttributes(path,
+						BasicFileAttributes.class);
+				if (attributes.isDirectory() && !named) {
+					return OTHER;
+				}
+			}
+			return attributes.isRegularFile()? FILE
+					: attributes.isDirectory()? FOLDER : OTHER;
+		} catch (NoSuchFileException e) {
+			
+			// The folder does not exist or the file was deleted
+			return OTHER;
+		} catch (IOException e) {
+			failed(path, e);
+			return OTHER;
+		}
+	}
+	
+	/**
+	 * Records an entry that could not be read, unless the scanner was
+	 * closed while it was being read.
+	 * 
+	 * @param path - the entry.
+	 * @param e - the error.
+	 */
+	private void failed(Path path, Exception e) {
+		if (metrics != null && !closed) {
+			metrics.failed(path.toFile(), e);
+		}
+	}
+	
+	/**
+	 * Gives a file listed by a thread to the reader, waiting for room in
+	 * the queue.
+	 * 
+	 * @param entry - the file.
+	 */
+	private void put(Entry entry) {
+		try {
+			while (!closed && !queue.offer(entry, OFFER_TIMEOUT,
+					TimeUnit.MILLISECONDS)) {
+				// The reader is behind
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * <b><em>label</em></b>
+	 * 
+	 * @param isSpam - whether the files are spam.
+	 * @return the actual class of the files for a {@link TestFile}.
+	 */
+	private static String label(boolean isSpam) {
+		return isSpam? TestFile.SPAM : TestFile.NOT_SPAM;
+	}
+	
+	/** The {@code Entry} class is a file found by a scanner with its
+	 * actual class, or an e-mail read out of an archive file (see
+	 * {@link MessageIterator}). */
+	public static class Entry {
+		
+		/** The file. */
+		private final File file;
+		
+		/** The actual class of the file, or null if it is not known. */
+		private final String actualClass;
+		
+		/** The name of the e-mail in the archive, or null for a file. */
+		private final String message;
+		
+		/** The bytes of the e-mail, or null for a file. */
+		private final byte[] text;
+		
+		/** The number of bytes of the e-mail. */
+		private final int length;
+		
+		/**
+		 * Constructs an entry.
+		 * 
+		 * @param file - the file.
+		 * @param actualClass - the actual class of the file
+		 * ({@link TestFile#SPAM} or {@link TestFile#NOT_SPAM}), or null.
+		 */
+		public Entry(File file, String actualClass) {
+			this(file, actualClass, null, null, 0);
+		}
+		
+		/**
+		 * Constructs an entry for an e-mail in an archive.
+		 * 
+		 * @param file - the archive.
+		 * @param actualClass - the actual class of the e-mail, or null.
+		 * @param message - the name of the e-mail in the archive.
+		 * @param text - the array with the bytes of the e-mail.
+		 * @param length - the number of bytes.
+		 */
+		public Entry(File file, String actualClass, String message,
+				byte[] text, int length) {
+			this.file = file;
+			this.actualClass = actualClass;
+			this.message = message;
+			this.text = text;
+			this.length = length;
+		}
+		
+		public File getFile() {
+			return file;
+		}
+		
+		public String getActualClass() {
+			return actualClass;
+		}
+		
+		public String getMessage() {
+			return message;
+		}
+		
+		/**
+		 * <b><em>getText</em></b>
+		 * 
+		 * @return the array with the bytes of the e-mail, or null if the
+		 * entry is a file. The array is reused for the next e-mail of the
+		 * archive, so it is only valid until the next entry is asked for.
+		 */
+		public byte[] getText() {
+			return text;
+		}
+		
+		public int getLength() {
+			return length;
+		}
+		
+		/**
+		 * <b><em>getName</em></b>
+		 * 
+		 * @param fullPath - true for the path of the file, false for its
+		 * name.
+		 * @return the name of the file, followed by '#' and the name of the
+		 * e-mail if it is in an archive.
+		 */
+		public String getName(boolean fullPath) {
+			String name = fullPath? file.getPath() : file.getName();
+			return (message == null)? name : name + "#" + message;
+		}
+		
+		/**
+		 * <b><em>isSpam</em></b>
+		 * 
+		 * @return true if the actual class of the file is spam.
+		 */
+		public boolean isSpam() {
+			return TestFile.SPAM.equals(actualClass);
+		}
+	}
+	
+	/** The {@code Source} class is a folder or file named by the layout
+	 * with its class. */
+	private static class Source {
+		
+		/** The folder or file. */
+		private final Path path;
+		
+		/** The class of the files. */
+		private final String label;
+		
+		public Source(Path path, String label) {
+			this.path = path;
+			this.label = label;
+		}
+	}
+	
+	/** The {@code Listing} class is a folder that is being read. */
+	private static class Listing {
+		
+		/** The folder. */
+		private final Path folder;
+		
+		/** The class of the files in the folder. */
+		private final String label;
+		
+		/** The stream of the entries of the folder. */
+		private final DirectoryStream<Path> stream;
+		
+		/** The entries that have not been read yet. */
+		private final Iterator<Path> paths;
+		
+		public Listing(Path folder, String label,
+				DirectoryStream<Path> stream) {
+			this.folder = folder;
+			this.label = label;
+			this.stream = stream;
+			this.paths = stream.iterator();
+		}
+		
+		/** Closes the stream of the folder. */
+		public void close() {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// Nothing more is read from it
+			}
+		}
+	}
+	
+	/** The {@code ScanTask} class reads the layout on one of the threads
+	 * and lists each of its folders in a {@link FolderTask}. Once they are
+	 * all done, it marks the end of the files. */
+	private class ScanTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected void compute() {
+			try {
+				List<FolderTask> tasks = new ArrayList<>();
+				Source source;
+				while (!closed && (source = nextSource()) != null) {
+					int type = type(source.path, true);
+					if (type == FILE) {
+						put(new Entry(source.path.toFile(), source.label));
+					} else if (type == FOLDER) {
+						tasks.add(new FolderTask(source.path, source.label));
+					}
+				}
+				invokeAll(tasks);
+			} finally {
+				put(END);
+			}
+		}
+	}
+	
+	/** The {@code FolderTask} class lists the files in a folder and lists
+	 * each of its sub-folders in another task, if the layout is
+	 * recursive. */
+	private class FolderTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** The folder. */
+		private final Path folder;
+		
+		/** The class of the files in the folder. */
+		private final String label;
+		
+		public FolderTask(Path folder, String label) {
+			this.folder = folder;
+			this.label = label;
+		}
+		
+		@Override
+		protected void compute() {
+			List<FolderTask> tasks = new ArrayList<>();
+			try (DirectoryStream<Path> paths =
+					Files.newDirectoryStream(folder)) {
+				for (Path path : paths) {
+					if (closed) {
+						return;
+					}
+					int type = type(path, false);
+					if (type == FILE) {
+						put(new Entry(path.toFile(), label));
+					} else if (type == FOLDER && layout.isRecursive()) {
+						tasks.add(new FolderTask(path, label));
+					}
+				}
+			} catch (IOException e) {
+				failed(folder, e);
+			} catch (DirectoryIteratorException e) {
+				failed(folder, e.getCause());
+			}
+			invokeAll(tasks);
+		}
+	}
+}
@@ -0,0 +1,314 @@
+/* Name: CorpusWatcher
+ * Author: Devon McGrath
+ * Description: This class keeps a spam filter up to date with the files in
+ * its training directories as they are added, changed and deleted.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Watch the folders of the corpus layout - Devon McGrath
+ * 1.2 - 10/16/2026 - Record failures in the metrics - Devon McGrath
+ * 1.3 - 10/16/2026 - Add the e-mails of archive files - Devon McGrath
+ * 1.4 - 10/16/2026 - Retrain if a file could not be removed - Devon McGrath
+ */
+
+package program;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>The {@code CorpusWatcher} class follows the training directories of a
+ * {@link SpamFilter} (by default root/{@value SpamFilter#TRAIN_DIR}/{@value
+ * SpamFilter#NON_SPAM_DIR}, {@value SpamFilter#NON_SPAM_DIR_2} and {@value
+ * SpamFilter#SPAM_DIR}, see {@link SpamFilter#getLayout()}) with a
+ * {@link WatchService}. Only the files that were created, changed or
+ * deleted are added to or removed from the filter, so keeping the model
+ * current costs time in proportion to the change instead of the size of the
+ * corpus. The training folders of the layout are watched without their
+ * sub-folders, and the files of a manifest are not watched.</p>
+ * 
+ * <p>When it is started, the watcher trains the filter from scratch with
+ * {@link SpamFilter#addDocuments(File, boolean)} and keeps the
+ * {@link Document} of every training file, or of every e-mail in an mbox
+ * file or archive, so the filter ends up the same as with
+ * {@link SpamFilter#train()}. This is what allows a file to be removed from
+ * the model after it has been deleted, but it means the words of every file
+ * are held in memory while the watcher runs. If the filter is retrained,
+ * loaded, pruned or cleared by something else while it is being watched,
+ * the documents can no longer be removed, so the watcher trains it from
+ * scratch again the next time a file changes.</p>
+ * 
+ * <p>Files and directories that could not be read are recorded as failures
+ * in the metrics of the filter (see {@link SpamFilter#getMetrics()}).</p>
+ */
+public class CorpusWatcher implements Runnable, Closeable {
+	
+	/** The spam filter to keep up to date. */
+	private final SpamFilter filter;
+	
+	/** The watch service for the training directories. */
+	private WatchService service;
+	
+	/** The class of the files in each watched directory (true for spam). */
+	private final Map<WatchKey, Boolean> labels;
+	
+	/** The directory of each watch key. */
+	private final Map<WatchKey, Path> directories;
+	
+	/** The words added to the filter by each training file, with one
+	 * document for each e-mail in an archive. */
+	private final Map<Path, List<Document>> documents;
+	
+	/** The number of documents in {@link #documents}. */
+	private int documentCount;
+	
+	/** The thread that handles the changes. */
+	private Thread thread;
+	
+	/**
+	 * Constructs a watcher for the training directories of a spam filter.
+	 * 
+	 * @param filter - the spam filter to keep up to date.
+	 */
+	public CorpusWatcher(SpamFilter filter) {
+		this.filter = filter;
+		this.labels = new HashMap<>();
+		this.directories = new HashMap<>();
+		this.documents = new HashMap<>();
+	}
+	
+	/**
+	 * <b><em>start</em></b>
+	 * 
+	 * <p>Trains the filter with the files that are in the training
+	 * directories now and then starts a daemon thread that applies any
+	 * changes to them.</p>
+	 * 
+	 * @throws IOException if the directories could not be watched.
+	 * @see {@link #close()}
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) {
+			return;
+		}
+		
+		// Watch the directories before reading them so no change is missed
+		this.service = FileSystems.getDefault().newWatchService();
+		filter.clear();
+		for (Map.Entry<String, Boolean> folder : filter.getLayout()
+				.getFolders(FilterMetrics.Phase.TRAIN).entrySet()) {
+			watch(folder.getKey(), folder.getValue());
+		}
+		for (WatchKey key : directories.keySet()) {
+			rescan(key);
+		}
+		
+		this.thread = new Thread(this, "CorpusWatcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * <b><em>close</em></b>
+	 * 
+	 * <p>Stops watching the training directories. The filter keeps the model
+	 * it had when the watcher was closed.</p>
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (service != null) {
+			service.close();
+		}
+		this.thread = null;
+	}
+	
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				synchronized (this) {
+					handle(key);
+				}
+				if (!key.reset()) {
+					synchronized (this) {
+						labels.remove(key);
+						directories.remove(key);
+					}
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// The watcher was closed
+		}
+	}
+	
+	/**
+	 * <b><em>getDocumentCount</em></b>
+	 * 
+	 * @return the number of training files the watcher is keeping track of,
+	 * counting each e-mail in an archive.
+	 */
+	public synchronized int getDocumentCount() {
+		return documentCount;
+	}
+	
+	/**
+	 * Watches one of the training directories, if it exists.
+	 * 
+	 * @param name - the path of the directory in the root directory.
+	 * @param isSpam - the class of the files in the directory.
+	 * @throws IOException if the directory could not be watched.
+	 */
+	private void watch(String name, boolean isSpam) throws IOException {
+		Path dir = new File(filter.getRoot(), name).toPath();
+		if (!Files.isDirectory(dir)) {
+			return;
+		}
+		WatchKey key = dir.register(service,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		labels.put(key, isSpam);
+		directories.put(key, dir);
+	}
+	
+	/**
+	 * Applies the changes reported for one of the directories.
+	 * 
+	 * @param key - the watch key of the directory.
+	 */
+	private void handle(WatchKey key) {
+		Path dir = directories.get(key);
+		if (dir == null) {
+			return;
+		}
+		for (WatchEvent<?> event : key.pollEvents()) {
+			
+			// Events were lost, so check the whole directory
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				rescan(key);
+				continue;
+			}
+			
+			// Take the old version of the file out and put the new one in
+			Path path = dir.resolve((Path) event.context());
+			if (!remove(path)) {
+				retrain();
+				return;
+			}
+			if (event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+				add(path, labels.get(key));
+			}
+		}
+	}
+	
+	/**
+	 * Adds the files in a directory that are not in the filter yet and
+	 * removes the files that are no longer in the directory.
+	 * 
+	 * @param key - the watch key of the directory.
+	 */
+	private void rescan(WatchKey key) {
+		Path dir = directories.get(key);
+		boolean isSpam = labels.get(key);
+		Set<Path> found = new HashSet<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path path : files) {
+				found.add(path);
+				if (!documents.containsKey(path)) {
+					add(path, isSpam);
+				}
+			}
+		} catch (IOException e) {
+			filter.getMetrics().failed(dir.toFile(), e);
+			return;
+		}
+		List<Path> removed = new ArrayList<>();
+		for (Path path : documents.keySet()) {
+			if (path.getParent().equals(dir) && !found.contains(path)) {
+				removed.add(path);
+			}
+		}
+		for (Path path : removed) {
+			if (!remove(path)) {
+				retrain();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Trains the filter from scratch with the files in all of the watched
+	 * directories, after the documents of the watcher stopped matching it.
+	 */
+	private void retrain() {
+		filter.clear();
+		documents.clear();
+		documentCount = 0;
+		for (WatchKey key : directories.keySet()) {
+			rescan(key);
+		}
+	}
+	
+	/**
+	 * Adds a training file to the filter.
+	 * 
+	 * @param path - the file.
+	 * @param isSpam - the class of the file.
+	 */
+	private void add(Path path, boolean isSpam) {
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+		try {
+			List<Document> added = filter.addDocuments(path.toFile(),
+					isSpam);
+			documents.put(path, added);
+			documentCount += added.size();
+		} catch (IOException e) {
+			filter.getMetrics().failed(path.toFile(), e);
+		}
+	}
+	
+	/**
+	 * Removes a training file, or each e-mail of an archive, from the
+	 * filter, if it was added.
+	 * 
+	 * @param path - the file.
+	 * @return false if the file could not be removed because the filter was
+	 * retrained since it was added, in which case the documents no longer
+	 * match the filter.
+	 */
+	private boolean remove(Path path) {
+		List<Document> removed = documents.remove(path);
+		if (removed == null) {
+			return true;
+		}
+		documentCount -= removed.size();
+		try {
+			for (Document document : removed) {
+				filter.removeDocument(document);
+			}
+			return true;
+		} catch (IllegalArgumentException e) {
+			filter.getMetrics().failed(path.toFile(), e);
+			return false;
+		}
+	}
+}
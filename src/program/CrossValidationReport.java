@@ -0,0 +1,342 @@
+/* Name: CrossValidationReport
+ * Author: Devon McGrath
+ * Description: This class holds how well the spam filter classified each
+ * fold of a cross-validation, for each smoothing value and threshold.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code CrossValidationReport} class is the result of
+ * {@link CrossValidator#validate(double[], double[], int)}. Each pair of a
+ * smoothing value and a threshold is a setting, numbered from 0 with the
+ * thresholds of the first smoothing value first. For every fold and setting
+ * it has the number of files classified correctly and the number of spam
+ * guesses, so the accuracy, precision and recall can be found for one fold
+ * or for all of them added up.</p>
+ * 
+ * <p>Each fold of a report is filled in by one thread. The report is not
+ * thread-safe until it is returned.</p>
+ */
+public class CrossValidationReport {
+	
+	/** The smoothing values that were tried. */
+	private final double[] smoothing;
+	
+	/** The thresholds that were tried. */
+	private final double[] thresholds;
+	
+	/** The number of training files of each fold. */
+	private final int[] trainingFiles;
+	
+	/** The number of spam test files of each fold. */
+	private final int[] spamFiles;
+	
+	/** The number of ham test files of each fold. */
+	private final int[] hamFiles;
+	
+	/** The number of test files classified correctly, by fold and
+	 * setting. */
+	private final int[][] correct;
+	
+	/** The number of test files classified as spam, by fold and setting. */
+	private final int[][] spamGuesses;
+	
+	/** The number of spam test files classified as spam, by fold and
+	 * setting. */
+	private final int[][] correctSpamGuesses;
+	
+	/** The time taken to test all of the folds, in nanoseconds. */
+	private long nanos;
+	
+	/**
+	 * Constructs a report with no test files.
+	 * 
+	 * @param folds - the number of folds.
+	 * @param smoothing - the smoothing values, which are not copied.
+	 * @param thresholds - the thresholds, which are not copied.
+	 */
+	CrossValidationReport(int folds, double[] smoothing,
+			double[] thresholds) {
+		int settings = smoothing.length * thresholds.length;
+		this.smoothing = smoothing;
+		this.thresholds = thresholds;
+		this.trainingFiles = new int[folds];
+		this.spamFiles = new int[folds];
+		this.hamFiles = new int[folds];
+		this.correct = new int[folds][settings];
+		this.spamGuesses = new int[folds][settings];
+		this.correctSpamGuesses = new int[folds][settings];
+	}
+	
+	/**
+	 * Records the files of a fold.
+	 * 
+	 * @param fold - the fold.
+	 * @param training - the number of training files.
+	 * @param spam - the number of spam test files.
+	 * @param ham - the number of ham test files.
+	 */
+	void trained(int fold, int training, int spam, int ham) {
+		this.trainingFiles[fold] = training;
+		this.spamFiles[fold] = spam;
+		this.hamFiles[fold] = ham;
+	}
+	
+	/**
+	 * Records the classification of a test file.
+	 * 
+	 * @param fold - the fold of the file.
+	 * @param setting - the setting it was classified with.
+	 * @param isSpam - the actual class of the file.
+	 * @param guess - whether it was classified as spam.
+	 */
+	void scored(int fold, int setting, boolean isSpam, boolean guess) {
+		this.correct[fold][setting] += (guess == isSpam)? 1 : 0;
+		this.spamGuesses[fold][setting] += guess? 1 : 0;
+		this.correctSpamGuesses[fold][setting] += (guess && isSpam)? 1 : 0;
+	}
+	
+	void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+	
+	public int getFolds() {
+		return trainingFiles.length;
+	}
+	
+	/**
+	 * <b><em>getSettings</em></b>
+	 * 
+	 * @return the number of pairs of a smoothing value and a threshold.
+	 */
+	public int getSettings() {
+		return correct[0].length;
+	}
+	
+	public double[] getSmoothing() {
+		return smoothing.clone();
+	}
+	
+	public double[] getThresholds() {
+		return thresholds.clone();
+	}
+	
+	/**
+	 * <b><em>getSmoothing</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the smoothing value of the setting.
+	 */
+	public double getSmoothing(int setting) {
+		return smoothing[setting / thresholds.length];
+	}
+	
+	/**
+	 * <b><em>getThreshold</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the threshold of the setting.
+	 */
+	public double getThreshold(int setting) {
+		return thresholds[setting % thresholds.length];
+	}
+	
+	/**
+	 * <b><em>getFiles</em></b>
+	 * 
+	 * @param fold - the fold.
+	 * @return the number of test files in the fold.
+	 */
+	public int getFiles(int fold) {
+		return spamFiles[fold] + hamFiles[fold];
+	}
+	
+	/**
+	 * <b><em>getTrainingFiles</em></b>
+	 * 
+	 * @param fold - the fold.
+	 * @return the number of files the fold was trained on, which is all of
+	 * the files in the other folds.
+	 */
+	public int getTrainingFiles(int fold) {
+		return trainingFiles[fold];
+	}
+	
+	/**
+	 * <b><em>getAccuracy</em></b>
+	 * 
+	 * @param fold - the fold.
+	 * @param setting - the setting.
+	 * @return the fraction of the files of the fold classified correctly.
+	 */
+	public double getAccuracy(int fold, int setting) {
+		int files = getFiles(fold);
+		return (files == 0)? 0 : (double) correct[fold][setting] / files;
+	}
+	
+	/**
+	 * <b><em>getPrecision</em></b>
+	 * 
+	 * @param fold - the fold.
+	 * @param setting - the setting.
+	 * @return the fraction of the spam guesses in the fold that were right,
+	 * or 0 if there were none.
+	 */
+	public double getPrecision(int fold, int setting) {
+		int guesses = spamGuesses[fold][setting];
+		return (guesses == 0)? 0
+				: (double) correctSpamGuesses[fold][setting] / guesses;
+	}
+	
+	/**
+	 * <b><em>getRecall</em></b>
+	 * 
+	 * @param fold - the fold.
+	 * @param setting - the setting.
+	 * @return the fraction of the spam files in the fold that were
+	 * classified as spam.
+	 */
+	public double getRecall(int fold, int setting) {
+		return (spamFiles[fold] == 0)? 0
+				: (double) correctSpamGuesses[fold][setting] / spamFiles[fold];
+	}
+	
+	/**
+	 * <b><em>getAccuracy</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the fraction of the files of all of the folds classified
+	 * correctly.
+	 */
+	public double getAccuracy(int setting) {
+		int files = 0;
+		for (int fold = 0; fold < getFolds(); fold ++) {
+			files += getFiles(fold);
+		}
+		return (files == 0)? 0 : (double) sum(correct, setting) / files;
+	}
+	
+	/**
+	 * <b><em>getPrecision</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the fraction of the spam guesses in all of the folds that were
+	 * right, or 0 if there were none.
+	 */
+	public double getPrecision(int setting) {
+		int guesses = sum(spamGuesses, setting);
+		return (guesses == 0)? 0
+				: (double) sum(correctSpamGuesses, setting) / guesses;
+	}
+	
+	/**
+	 * <b><em>getRecall</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the fraction of the spam files in all of the folds that were
+	 * classified as spam.
+	 */
+	public double getRecall(int setting) {
+		int spam = 0;
+		for (int files : spamFiles) {
+			spam += files;
+		}
+		return (spam == 0)? 0
+				: (double) sum(correctSpamGuesses, setting) / spam;
+	}
+	
+	/**
+	 * <b><em>getAccuracyDeviation</em></b>
+	 * 
+	 * @param setting - the setting.
+	 * @return the standard deviation of the accuracy of the folds.
+	 */
+	public double getAccuracyDeviation(int setting) {
+		int folds = getFolds();
+		double mean = 0;
+		for (int fold = 0; fold < folds; fold ++) {
+			mean += getAccuracy(fold, setting);
+		}
+		mean /= folds;
+		double variance = 0;
+		for (int fold = 0; fold < folds; fold ++) {
+			double d = getAccuracy(fold, setting) - mean;
+			variance += d * d;
+		}
+		return Math.sqrt(variance / folds);
+	}
+	
+	/**
+	 * <b><em>getBestSetting</em></b>
+	 * 
+	 * @return the setting with the highest accuracy over all of the folds,
+	 * or the first of them if more than one does.
+	 */
+	public int getBestSetting() {
+		int best = 0;
+		for (int setting = 1; setting < getSettings(); setting ++) {
+			if (sum(correct, setting) > sum(correct, best)) {
+				best = setting;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * <b><em>getNanos</em></b>
+	 * 
+	 * @return the time taken to test all of the folds, in nanoseconds, not
+	 * counting reading the files.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+	
+	/**
+	 * Adds up a count of a setting over all of the folds.
+	 * 
+	 * @param counts - the counts by fold and setting.
+	 * @param setting - the setting.
+	 * @return the total.
+	 */
+	private static int sum(int[][] counts, int setting) {
+		int total = 0;
+		for (int[] fold : counts) {
+			total += fold[setting];
+		}
+		return total;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(String.format(
+				"Cross-validation: %d folds, %d settings in %.1f ms",
+				getFolds(), getSettings(), nanos / 1e6));
+		for (int setting = 0; setting < getSettings(); setting ++) {
+			sb.append(String.format("%nSmoothing %s, threshold %s: "
+					+ "accuracy %.4f (+/- %.4f), precision %.4f, "
+					+ "recall %.4f", getSmoothing(setting),
+					getThreshold(setting), getAccuracy(setting),
+					getAccuracyDeviation(setting), getPrecision(setting),
+					getRecall(setting)));
+		}
+		
+		// Show each fold with the best setting
+		int best = getBestSetting();
+		sb.append(String.format("%nBest: smoothing %s, threshold %s",
+				getSmoothing(best), getThreshold(best)));
+		for (int fold = 0; fold < getFolds(); fold ++) {
+			sb.append(String.format("%nFold %d: %d files (%d spam), "
+					+ "trained on %d, accuracy %.4f, precision %.4f, "
+					+ "recall %.4f", fold + 1, getFiles(fold),
+					spamFiles[fold], trainingFiles[fold],
+					getAccuracy(fold, best), getPrecision(fold, best),
+					getRecall(fold, best)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,414 @@
+/* Name: CrossValidator
+ * Author: Devon McGrath
+ * Description: This class keeps the training files as the ids of their words
+ * so that the spam filter can be cross-validated without reading them again.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>The {@code CrossValidator} class runs k-fold cross-validation of the
+ * spam filter on its training files. The files are read once (see
+ * {@link SpamFilter#newCrossValidator(int, long, ProgressListener)}) and
+ * each one is kept as the ids of its unique words, all in one array, along
+ * with the number of spam and ham files that have each word.</p>
+ * 
+ * <p>The files are split into folds with the same share of spam in each.
+ * To test a fold, its files are subtracted from the counts of all of the
+ * files, which gives the same counts as training on the other folds, and
+ * the weights are computed from those (see
+ * {@link ScoringModel#weight(int, int, int, int, double)}). The files of the
+ * fold are then scored with every word, as with {@link ScoringBudget#FULL},
+ * and classified with every threshold. The folds are tested in parallel by
+ * {@link #validate(double[], double[], int)}, which can be called again with
+ * other smoothing values and thresholds without reading the files.</p>
+ * 
+ * <p>The files are added by one thread and the class is not thread-safe
+ * until they all have been, after which it is never modified.</p>
+ */
+public class CrossValidator {
+	
+	/** The number of word ids and files the arrays start with. */
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	/** The number of folds. */
+	private final int folds;
+	
+	/** The seed of the random order the files are put in folds. */
+	private final long seed;
+	
+	/** The word ids of every file, one file after another. */
+	private int[] terms;
+	
+	/** The number of word ids used in {@link #terms}. */
+	private int termCount;
+	
+	/** The index in {@link #terms} after the last word of each file. */
+	private int[] ends;
+	
+	/** Whether each file is spam. */
+	private boolean[] spam;
+	
+	/** The hash of the name of each file, which orders the files before
+	 * they are shuffled. */
+	private long[] keys;
+	
+	/** The number of files added. */
+	private int files;
+	
+	/** The number of spam files with each word. */
+	private int[] spamCounts;
+	
+	/** The number of ham files with each word. */
+	private int[] hamCounts;
+	
+	/** The number of words, which is 1 more than the largest id. */
+	private int words;
+	
+	/** The number of spam files. */
+	private int spamFiles;
+	
+	/** The number of ham files. */
+	private int hamFiles;
+	
+	/** The files of each fold, one fold after another, or null until the
+	 * folds are chosen. */
+	private int[] order;
+	
+	/** The index in {@link #order} where each fold starts, with the end of
+	 * the last fold at the end. */
+	private int[] foldStarts;
+	
+	/**
+	 * Constructs a cross-validator with no files.
+	 * 
+	 * @param folds - the number of folds, which must be at least 2.
+	 * @param seed - the seed of the random order the files are put in folds.
+	 * @throws IllegalArgumentException if there are fewer than 2 folds.
+	 */
+	public CrossValidator(int folds, long seed) {
+		if (folds < 2) {
+			throw new IllegalArgumentException(
+					"There must be at least 2 folds: " + folds);
+		}
+		this.folds = folds;
+		this.seed = seed;
+		this.terms = new int[INITIAL_CAPACITY];
+		this.ends = new int[INITIAL_CAPACITY];
+		this.spam = new boolean[INITIAL_CAPACITY];
+		this.keys = new long[INITIAL_CAPACITY];
+		this.spamCounts = new int[INITIAL_CAPACITY];
+		this.hamCounts = new int[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds the last document read by a feature extractor as a training
+	 * file.</p>
+	 * 
+	 * @param extractor - the feature extractor.
+	 * @param isSpam - the actual class of the file.
+	 * @param name - the name of the file, which decides its fold along with
+	 * the seed.
+	 */
+	void add(FeatureExtractor extractor, boolean isSpam, String name) {
+		int n = extractor.size();
+		if (termCount + n > terms.length) {
+			terms = Arrays.copyOf(terms, Math.max(termCount + n,
+					terms.length * 2));
+		}
+		if (files == ends.length) {
+			ends = Arrays.copyOf(ends, files * 2);
+			spam = Arrays.copyOf(spam, files * 2);
+			keys = Arrays.copyOf(keys, files * 2);
+		}
+		
+		// Count the words of the file
+		int[] counts = isSpam? spamCounts : hamCounts;
+		for (int i = 0; i < n; i ++) {
+			int id = extractor.id(i);
+			if (id >= counts.length) {
+				int capacity = Math.max(id + 1, counts.length * 2);
+				spamCounts = Arrays.copyOf(spamCounts, capacity);
+				hamCounts = Arrays.copyOf(hamCounts, capacity);
+				counts = isSpam? spamCounts : hamCounts;
+			}
+			counts[id] ++;
+			words = Math.max(words, id + 1);
+			terms[termCount ++] = id;
+		}
+		ends[files] = termCount;
+		spam[files] = isSpam;
+		keys[files] = key(name);
+		files ++;
+		spamFiles += isSpam? 1 : 0;
+		hamFiles += isSpam? 0 : 1;
+		order = null;
+	}
+	
+	/**
+	 * <b><em>validate</em></b>
+	 * 
+	 * <p>Tests every fold with every pair of a smoothing value and a
+	 * threshold. A file is classified as spam when its probability is
+	 * greater than the threshold, as with
+	 * {@link SpamFilter#SPAM_THRESHOLD}.</p>
+	 * 
+	 * @param smoothing - the smoothing values, which must be greater than 0
+	 * (the filter uses 1).
+	 * @param thresholds - the thresholds, from 0 to 1.
+	 * @param parallelism - the number of folds to test at the same time.
+	 * @return the results of each fold.
+	 * @throws IllegalArgumentException if a smoothing value or threshold is
+	 * not valid.
+	 * @throws IllegalStateException if there are fewer than 2 spam or 2 ham
+	 * files.
+	 */
+	public CrossValidationReport validate(double[] smoothing,
+			double[] thresholds, int parallelism) {
+		if (smoothing.length == 0 || thresholds.length == 0) {
+			throw new IllegalArgumentException(
+					"No smoothing values or thresholds");
+		}
+		for (double value : smoothing) {
+			if (!(value > 0) || Double.isInfinite(value)) {
+				throw new IllegalArgumentException(
+						"Not a smoothing value: " + value);
+			}
+		}
+		for (double value : thresholds) {
+			if (!(value >= 0 && value <= 1)) {
+				throw new IllegalArgumentException(
+						"Not a threshold: " + value);
+			}
+		}
+		if (spamFiles < 2 || hamFiles < 2) {
+			throw new IllegalStateException("Too few training files: "
+					+ spamFiles + " spam, " + hamFiles + " ham");
+		}
+		if (order == null) {
+			assignFolds();
+		}
+		
+		// Test each fold on a thread of its own
+		long start = System.nanoTime();
+		CrossValidationReport report = new CrossValidationReport(folds,
+				smoothing.clone(), thresholds.clone());
+		FoldTask[] tasks = new FoldTask[folds];
+		for (int fold = 0; fold < folds; fold ++) {
+			tasks[fold] = new FoldTask(fold, report);
+		}
+		int threads = Math.min(Math.max(1, parallelism), folds);
+		if (threads == 1) {
+			for (FoldTask task : tasks) {
+				task.invoke();
+			}
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				for (FoldTask task : tasks) {
+					pool.execute(task);
+				}
+				for (FoldTask task : tasks) {
+					task.join();
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+		report.setNanos(System.nanoTime() - start);
+		return report;
+	}
+	
+	/**
+	 * Puts the files in folds. The files are sorted by the hashes of their
+	 * names, so that the folds do not depend on the order the files were
+	 * read in, then shuffled with the seed. The spam and ham files are then
+	 * dealt out to the folds separately.
+	 */
+	private void assignFolds() {
+		Integer[] sorted = new Integer[files];
+		for (int i = 0; i < files; i ++) {
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, (a, b) -> (keys[a] != keys[b])? Long.compare(
+				keys[a], keys[b]) : Boolean.compare(spam[a], spam[b]));
+		Random random = new Random(seed);
+		for (int i = files - 1; i > 0; i --) {
+			int j = random.nextInt(i + 1);
+			Integer swap = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = swap;
+		}
+		
+		// Deal out the files and group them by fold
+		int[] fold = new int[files];
+		int[] starts = new int[folds + 1];
+		int spamNext = 0, hamNext = 0;
+		for (Integer file : sorted) {
+			fold[file] = spam[file]? spamNext ++ % folds
+					: hamNext ++ % folds;
+			starts[fold[file] + 1] ++;
+		}
+		for (int i = 0; i < folds; i ++) {
+			starts[i + 1] += starts[i];
+		}
+		int[] next = Arrays.copyOf(starts, folds);
+		int[] order = new int[files];
+		for (int file = 0; file < files; file ++) {
+			order[next[fold[file]] ++] = file;
+		}
+		this.foldStarts = starts;
+		this.order = order;
+	}
+	
+	/**
+	 * Tests one fold with every setting of a report.
+	 * 
+	 * @param fold - the fold.
+	 * @param report - the report, which is given the results of the fold.
+	 */
+	private void validate(int fold, CrossValidationReport report) {
+		
+		// Subtract the fold from the counts of all of the files
+		int[] spamCounts = Arrays.copyOf(this.spamCounts, words);
+		int[] hamCounts = Arrays.copyOf(this.hamCounts, words);
+		int spamTests = 0, hamTests = 0;
+		for (int i = foldStarts[fold]; i < foldStarts[fold + 1]; i ++) {
+			int file = order[i];
+			int[] counts = spam[file]? spamCounts : hamCounts;
+			for (int t = start(file); t < ends[file]; t ++) {
+				counts[terms[t]] --;
+			}
+			spamTests += spam[file]? 1 : 0;
+			hamTests += spam[file]? 0 : 1;
+		}
+		int spamTrained = spamFiles - spamTests;
+		int hamTrained = hamFiles - hamTests;
+		report.trained(fold, spamTrained + hamTrained, spamTests, hamTests);
+		
+		// Score the fold with the weights of each smoothing value
+		double[] weights = new double[words];
+		double[] smoothing = report.getSmoothing();
+		double[] thresholds = report.getThresholds();
+		for (int s = 0; s < smoothing.length; s ++) {
+			for (int id = 0; id < words; id ++) {
+				int inSpam = spamCounts[id], inHam = hamCounts[id];
+				weights[id] = (inSpam == 0 && inHam == 0)? 0
+						: ScoringModel.weight(inSpam, inHam, spamTrained,
+						hamTrained, smoothing[s]);
+			}
+			for (int i = foldStarts[fold]; i < foldStarts[fold + 1]; i ++) {
+				int file = order[i];
+				double eta = 0;
+				for (int t = start(file); t < ends[file]; t ++) {
+					eta += weights[terms[t]];
+				}
+				double p = ScoringModel.probability(eta);
+				for (int t = 0; t < thresholds.length; t ++) {
+					report.scored(fold, s * thresholds.length + t,
+							spam[file], p > thresholds[t]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets where the words of a file start.
+	 * 
+	 * @param file - the index of the file.
+	 * @return the index in {@link #terms} of its first word.
+	 */
+	private int start(int file) {
+		return (file == 0)? 0 : ends[file - 1];
+	}
+	
+	/**
+	 * Hashes the name of a file with FNV-1a over its characters.
+	 * 
+	 * @param name - the name of the file.
+	 * @return the hash.
+	 */
+	private static long key(String name) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i ++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * <b><em>memoryFootprint</em></b>
+	 * 
+	 * <p>Gets the approximate number of bytes used by the word ids, files
+	 * and counts.</p>
+	 * 
+	 * @return the memory used in bytes.
+	 */
+	public long memoryFootprint() {
+		return 4L * terms.length + 13L * ends.length
+				+ 8L * spamCounts.length
+				+ ((order == null)? 0 : 4L * order.length);
+	}
+	
+	public int getFolds() {
+		return folds;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	public int getFiles() {
+		return files;
+	}
+	
+	public int getSpamFiles() {
+		return spamFiles;
+	}
+	
+	public int getHamFiles() {
+		return hamFiles;
+	}
+	
+	public int getWordCount() {
+		return words;
+	}
+	
+	public int getTermCount() {
+		return termCount;
+	}
+	
+	/** The {@code FoldTask} class tests one fold on a thread of a
+	 * {@link ForkJoinPool}. */
+	private class FoldTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** The fold to test. */
+		private final int fold;
+		
+		/** The report to give the results to. */
+		private final CrossValidationReport report;
+		
+		private FoldTask(int fold, CrossValidationReport report) {
+			this.fold = fold;
+			this.report = report;
+		}
+		
+		@Override
+		protected void compute() {
+			validate(fold, report);
+		}
+	}
+}
@@ -5,17 +5,36 @@
  * 
  * Version History:
  * 1.0 - 01/29/2017 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Load a saved model instead of training - Devon McGrath
+ * 1.2 - 10/16/2026 - Train and test in the background - Devon McGrath
+ * 1.3 - 10/16/2026 - Show the metrics of the filter - Devon McGrath
+ * 1.4 - 10/16/2026 - Page, sort and filter large results - Devon McGrath
+ * 1.5 - 10/16/2026 - Keep the results in a result store - Devon McGrath
  */
 
 package program;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 
 /**
@@ -31,24 +50,99 @@ import javafx.scene.layout.*;
  * with the spam and non-spam (ham) files. Then, the test emails will be used
  * with the trained spam filter to try to accurately classify the files as
  * spam or ham.</p>
+ * 
+ * <p>Training and testing are done on a background thread so that the
+ * display stays responsive. The progress is shown at the top of the view,
+ * the test files are added to the table in batches as they are classified
+ * and the work can be cancelled at any time.</p>
+ * 
+ * <p>The test files are kept in a {@link ResultStore} and the table only
+ * holds views of one page of {@value #PAGE_SIZE} of them at a time, so it
+ * stays fast with millions of them. Sorting by the columns and filtering by
+ * class or spam probability (see {@link ResultFilter}) are done over every
+ * test file on a background thread, and the page is replaced when they are
+ * done.</p>
  */
 public class DirectoryView extends Scene {
 	
+	/** The minimum time between two progress messages, in nanoseconds. */
+	private static final long UPDATE_INTERVAL =
+			TimeUnit.MILLISECONDS.toNanos(100);
+	
+	/** The number of test files on each page of the table. */
+	private static final int PAGE_SIZE = 1000;
+	
 	/** The root directory. */
 	private File directory;
 	
 	/** The spam filter that will be trained and used for testing. */
 	private SpamFilter filter;
-
+	
 	/** The list of testing files. */
 	private TableView<TestFile> fileList;
 	
+	/** The pages of the list of testing files. */
+	private Pagination pages;
+	
+	/** The box that chooses the class of the test files shown. */
+	private ComboBox<ResultFilter.Show> show;
+	
+	/** The field with the lowest spam probability shown. */
+	private TextField minProbability;
+	
+	/** The field with the highest spam probability shown. */
+	private TextField maxProbability;
+	
+	/** The label that displays the number of test files shown. */
+	private Label shown;
+	
+	/** Every test file that was classified, in the order they came in. */
+	private ResultStore results;
+	
+	/** The rows of the results that are shown, in order, or null if
+	 * nothing is filtered or sorted. */
+	private int[] rows;
+	
+	/** The column of the results shown in each column of the table. */
+	private final Map<TableColumn<TestFile, ?>, ResultStore.Column>
+			columns = new HashMap<>();
+	
+	/** The test files that are shown. */
+	private ResultFilter resultFilter = ResultFilter.ALL;
+	
+	/** The columns the test files are sorted by, most important first. */
+	private ResultStore.Column[] sortColumns = new ResultStore.Column[0];
+	
+	/** Whether each of the sort columns is sorted from high to low. */
+	private boolean[] descending = new boolean[0];
+	
+	/** The columns and sort types the order was made from. */
+	private List<Object> orderKey = Collections.emptyList();
+	
+	/** The task that is filtering and sorting the test files, or null. */
+	private QueryTask query;
+	
+	/** Whether more test files came in while the query was running. */
+	private boolean stale;
+	
 	/** The field that displays the accuracy of the system to the user. */
 	private TextField accuracy;
 	
 	/** The field that displays the precision of the system to the user. */
 	private TextField precision;
 	
+	/** The bar that displays the progress of training and testing. */
+	private ProgressBar progress;
+	
+	/** The label that displays what the spam filter is doing. */
+	private Label status;
+	
+	/** The button that cancels training and testing. */
+	private Button cancel;
+	
+	/** The task that is training and testing the spam filter. */
+	private FilterTask task;
+	
 	/** Constructs a directory view with the root directory being the current
 	 * working directory. */
 	public DirectoryView() {
@@ -70,26 +164,66 @@ public class DirectoryView extends Scene {
 		
 		BorderPane layout = (BorderPane) getRoot();
 		
-		// Create the table
-		TableColumn<TestFile, String> fileCol = new TableColumn<>("File");
-		fileCol.setCellValueFactory(new PropertyValueFactory<>("filename"));
-		TableColumn<TestFile, String> pClassCol = new TableColumn<>(
-				"Predicted Class");
-		pClassCol.setCellValueFactory(
-				new PropertyValueFactory<>("predictedClass"));
-		TableColumn<TestFile, String> classCol = new TableColumn<>(
-				"Actual Class");
-		classCol.setCellValueFactory(
-				new PropertyValueFactory<>("actualClass"));
-		TableColumn<TestFile, Double> probCol = new TableColumn<>(
-				"Spam Probability");
-		probCol.setCellValueFactory(
-				new PropertyValueFactory<>("spamProbRounded"));
+		// Create the table, which is sorted in the background
 		this.fileList = new TableView<>();
-		this.fileList.getColumns().add(fileCol);
-		this.fileList.getColumns().add(pClassCol);
-		this.fileList.getColumns().add(classCol);
-		this.fileList.getColumns().add(probCol);
+		addColumn("File", TestFile::getFilename, ResultStore.Column.FILE);
+		addColumn("Predicted Class", TestFile::getPredictedClass,
+				ResultStore.Column.PREDICTED_CLASS);
+		addColumn("Actual Class", TestFile::getActualClass,
+				ResultStore.Column.ACTUAL_CLASS);
+		addColumn("Spam Probability", TestFile::getSpamProbRounded,
+				ResultStore.Column.SPAM_PROBABILITY);
+		this.fileList.setSortPolicy(table -> {
+			sort();
+			return true;
+		});
+		this.results = new ResultStore();
+		this.pages = new Pagination(1);
+		this.pages.setPageFactory(index -> {
+			showPage(index);
+			return fileList;
+		});
+		
+		// Create the filter panel
+		HBox filters = new HBox(5);
+		filters.setPadding(new Insets(5));
+		this.show = new ComboBox<>(FXCollections.observableArrayList(
+				ResultFilter.Show.values()));
+		this.show.setValue(ResultFilter.Show.ALL);
+		this.show.setOnAction(e -> filter());
+		this.minProbability = new TextField("0");
+		this.minProbability.setPrefColumnCount(5);
+		this.minProbability.setOnAction(e -> filter());
+		this.maxProbability = new TextField("1");
+		this.maxProbability.setPrefColumnCount(5);
+		this.maxProbability.setOnAction(e -> filter());
+		this.shown = new Label();
+		filters.getChildren().add(new Label("Show:"));
+		filters.getChildren().add(show);
+		filters.getChildren().add(new Label("Spam probability from"));
+		filters.getChildren().add(minProbability);
+		filters.getChildren().add(new Label("to"));
+		filters.getChildren().add(maxProbability);
+		filters.getChildren().add(shown);
+		BorderPane table = new BorderPane();
+		table.setTop(filters);
+		table.setCenter(pages);
+		
+		// Create the progress panel
+		HBox header = new HBox(5);
+		header.setPadding(new Insets(5));
+		this.progress = new ProgressBar(0);
+		this.status = new Label();
+		this.cancel = new Button("Cancel");
+		this.cancel.setDisable(true);
+		this.cancel.setOnAction(e -> {
+			if (task != null) {
+				task.cancel(false);
+			}
+		});
+		header.getChildren().add(progress);
+		header.getChildren().add(cancel);
+		header.getChildren().add(status);
 		
 		// Create the bottom panel
 		FlowPane top = new FlowPane();
@@ -107,12 +241,13 @@ public class DirectoryView extends Scene {
 		bottom.getChildren().add(precision);
 		
 		// Add the components
-		layout.setCenter(fileList);
+		layout.setTop(header);
+		layout.setCenter(table);
 		grid.add(top, 0, 0);
 		grid.add(bottom, 0, 1);
 		layout.setBottom(grid);setPrecision(0);
 	}
-
+	
 	/**
 	 * <b><em>getDirectory</em></b>
 	 * 
@@ -126,7 +261,7 @@ public class DirectoryView extends Scene {
 	public File getDirectory() {
 		return directory;
 	}
-
+	
 	/**
 	 * <b><em>setDirectory</em></b>
 	 * 
@@ -135,7 +270,11 @@ public class DirectoryView extends Scene {
 	 * file, the root directory is set to the current working directory.</p>
 	 * 
 	 * <p>Once the new root directory is set, the spam filter will be retrained
-	 * and the display will be updated.</p>
+	 * (or loaded from a model saved by a previous run, see
+	 * {@link SpamFilter#loadOrTrain()}) and the display will be updated. This
+	 * is done in the background, so this method returns right away. Any
+	 * training or testing still running for the old directory is
+	 * cancelled.</p>
 	 * 
 	 * @param directory - the root directory.
 	 * 
@@ -143,21 +282,32 @@ public class DirectoryView extends Scene {
 	 */
 	public void setDirectory(File directory) {
 		
-		// Re-train the filter
+		// Stop working on the old directory
+		if (task != null) {
+			task.cancel(false);
+		}
+		
+		// Create a new filter
 		this.directory = (directory == null)? new File(".") : directory;
 		this.filter = new SpamFilter(this.directory);
-		this.filter.train();
-		
-		// Test the filter
-		this.fileList.getItems().clear();
-		ObservableList<TestFile> files = filter.test();
-		this.fileList.setItems(files);
+		this.filter.setParallelism(Runtime.getRuntime().availableProcessors());
+		if (query != null) {
+			query.cancel(false);
+			this.query = null;
+		}
+		this.results = new ResultStore();
+		showRows(null);
+		setAccuracy(0);
+		setPrecision(0);
 		
-		// Calculate the accuracy and precision
-		setAccuracy((1.0*filter.getCorrectGuessCount())/
-				(filter.getHamFiles()+filter.getSpamFiles()));
-		setPrecision((1.0*filter.getCorrectSpamGuesses())
-				/filter.getCorrectGuessCount());
+		// Re-train and test the filter in the background
+		this.task = new FilterTask(filter);
+		this.progress.progressProperty().bind(task.progressProperty());
+		this.status.textProperty().bind(task.messageProperty());
+		this.cancel.setDisable(false);
+		Thread thread = new Thread(task, "DirectoryView");
+		thread.setDaemon(true);
+		thread.start();
 	}
 	
 	/**
@@ -171,7 +321,7 @@ public class DirectoryView extends Scene {
 	 * {@link #setPrecision(double)}
 	 */
 	public double getAccuracy() {
-
+		
 		// Parse the text from the text field
 		try {
 			return Double.parseDouble(accuracy.getText());
@@ -235,4 +385,392 @@ public class DirectoryView extends Scene {
 	public void setPrecision(double precision) {
 		this.precision.setText(""+(((int)(100000*precision))/(100000.0)));
 	}
+	
+	/**
+	 * Adds a column to the table. Each cell is given its value directly
+	 * rather than looking up a property by name.
+	 * 
+	 * @param name - the name of the column.
+	 * @param value - gets the value of a test file shown in the column.
+	 * @param sortColumn - the column of the results to sort by.
+	 */
+	private void addColumn(String name, Function<TestFile, String> value,
+			ResultStore.Column sortColumn) {
+		TableColumn<TestFile, String> column = new TableColumn<>(name);
+		column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(
+				value.apply(cell.getValue())));
+		columns.put(column, sortColumn);
+		fileList.getColumns().add(column);
+	}
+	
+	/**
+	 * Reads the filter panel and shows the test files that pass the new
+	 * filter. A probability that is not a number is reset to the end of the
+	 * range.
+	 */
+	private void filter() {
+		double min = parseProbability(minProbability, 0);
+		double max = parseProbability(maxProbability, 1);
+		this.resultFilter = new ResultFilter(show.getValue(), min, max);
+		query(true);
+	}
+	
+	/**
+	 * Reads a spam probability from a field.
+	 * 
+	 * @param field - the field.
+	 * @param value - the value to use if the field is not a number.
+	 * @return the probability.
+	 */
+	private static double parseProbability(TextField field, double value) {
+		try {
+			return Double.parseDouble(field.getText().trim());
+		} catch (NumberFormatException e) {
+			field.setText(String.valueOf(value));
+			return value;
+		}
+	}
+	
+	/**
+	 * Sorts the test files by the sort order of the table. This is the sort
+	 * policy of the table, so it replaces sorting the page in place.
+	 */
+	private void sort() {
+		List<TableColumn<TestFile, ?>> order = fileList.getSortOrder();
+		List<Object> key = new ArrayList<>();
+		ResultStore.Column[] sortColumns = new ResultStore.Column[
+				order.size()];
+		boolean[] descending = new boolean[order.size()];
+		for (int i = 0; i < sortColumns.length; i ++) {
+			TableColumn<TestFile, ?> column = order.get(i);
+			sortColumns[i] = columns.get(column);
+			descending[i] = (column.getSortType()
+					== TableColumn.SortType.DESCENDING);
+			key.add(column);
+			key.add(column.getSortType());
+		}
+		
+		// The table asks again when the page changes, which is already sorted
+		if (key.equals(orderKey)) {
+			return;
+		}
+		this.orderKey = key;
+		this.sortColumns = sortColumns;
+		this.descending = descending;
+		query(true);
+	}
+	
+	/**
+	 * Filters and sorts the test files, on a background thread unless every
+	 * test file is shown in the order they came in.
+	 * 
+	 * @param changed - true if the filter or order changed, false if more
+	 * test files came in.
+	 */
+	private void query(boolean changed) {
+		
+		// Special case
+		if (resultFilter.isAll() && sortColumns.length == 0) {
+			if (query != null) {
+				query.cancel(false);
+				this.query = null;
+			}
+			this.stale = false;
+			showRows(null);
+			return;
+		}
+		
+		// Let a running query finish if only more test files came in
+		if (query != null) {
+			if (!changed) {
+				this.stale = true;
+				return;
+			}
+			query.cancel(false);
+		}
+		this.stale = false;
+		this.query = new QueryTask(results.snapshot(), resultFilter,
+				sortColumns, descending);
+		Thread thread = new Thread(query, "DirectoryView-query");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Shows the test files that passed the filter, in order, keeping the
+	 * current page if it still exists.
+	 * 
+	 * @param rows - the rows of the results, or null for all of them.
+	 */
+	private void showRows(int[] rows) {
+		this.rows = rows;
+		int size = rowCount();
+		int count = (size + PAGE_SIZE - 1) / PAGE_SIZE;
+		pages.setPageCount(Math.max(1, count));
+		showPage(pages.getCurrentPageIndex());
+		shown.setText(String.format("%d of %d files", size,
+				results.size()));
+	}
+	
+	/**
+	 * Gets the number of test files that are shown.
+	 * 
+	 * @return the number of rows.
+	 */
+	private int rowCount() {
+		return (rows == null)? results.size() : rows.length;
+	}
+	
+	/**
+	 * Puts a page of test files in the table.
+	 * 
+	 * @param page - the index of the page.
+	 */
+	private void showPage(int page) {
+		int from = Math.min(page * PAGE_SIZE, rowCount());
+		int to = Math.min(from + PAGE_SIZE, rowCount());
+		List<TestFile> views = new ArrayList<>(to - from);
+		for (int i = from; i < to; i ++) {
+			views.add(results.get((rows == null)? i : rows[i]));
+		}
+		fileList.getItems().setAll(views);
+	}
+	
+	/** The {@code QueryTask} class filters and sorts a snapshot of the
+	 * results on a background thread and shows them once it is done. */
+	private class QueryTask extends Task<int[]> {
+		
+		/** The snapshot of the results. */
+		private final ResultStore snapshot;
+		
+		/** The filter of the test files. */
+		private final ResultFilter filter;
+		
+		/** The columns to sort by, most important first. */
+		private final ResultStore.Column[] sortColumns;
+		
+		/** Whether each column is sorted from high to low. */
+		private final boolean[] descending;
+		
+		public QueryTask(ResultStore snapshot, ResultFilter filter,
+				ResultStore.Column[] sortColumns, boolean[] descending) {
+			this.snapshot = snapshot;
+			this.filter = filter;
+			this.sortColumns = sortColumns;
+			this.descending = descending;
+		}
+		
+		@Override
+		protected int[] call() throws Exception {
+			int[] rows = new int[snapshot.size()];
+			int size = 0;
+			for (int row = 0; row < rows.length; row ++) {
+				if (filter.test(snapshot, row)) {
+					rows[size ++] = row;
+				}
+			}
+			if (isCancelled()) {
+				return null;
+			}
+			
+			// The sort is stable, so equal files stay in the order they came
+			rows = Arrays.copyOf(rows, size);
+			snapshot.sort(rows, size, sortColumns, descending);
+			return rows;
+		}
+		
+		@Override
+		protected void succeeded() {
+			if (query != this) {
+				return;
+			}
+			query = null;
+			showRows(getValue());
+			if (stale) {
+				query(false);
+			}
+		}
+		
+		@Override
+		protected void failed() {
+			getException().printStackTrace();
+			if (query == this) {
+				query = null;
+			}
+		}
+	}
+	
+	/** The {@code FilterTask} class trains and tests a spam filter on a
+	 * background thread and shows the results in the directory view. */
+	private class FilterTask extends Task<Boolean>
+			implements ProgressListener {
+		
+		/** The spam filter to train and test. */
+		private final SpamFilter filter;
+		
+		/** The batches of test files that are not in the table yet. */
+		private final Queue<List<TestFile>> batches;
+		
+		/** Whether the batches are waiting to be added to the table. */
+		private final AtomicBoolean flushing;
+		
+		/** The time of the last progress message, in nanoseconds. */
+		private final AtomicLong updated;
+		
+		/** What the filter is doing now. */
+		private volatile String phase;
+		
+		/** The time the filter started doing it, in nanoseconds. */
+		private volatile long started;
+		
+		public FilterTask(SpamFilter filter) {
+			this.filter = filter;
+			this.batches = new ConcurrentLinkedQueue<>();
+			this.flushing = new AtomicBoolean();
+			this.updated = new AtomicLong();
+		}
+		
+		@Override
+		protected Boolean call() throws Exception {
+			begin("Training");
+			filter.loadOrTrain(this);
+			if (isCancelled()) {
+				return false;
+			}
+			begin("Testing");
+			return filter.test(this);
+		}
+		
+		@Override
+		public void progress(int done, int total) {
+			
+			// Only update the display every so often
+			long now = System.nanoTime(), last = updated.get();
+			if ((total < 0 || done < total) && (now - last < UPDATE_INTERVAL
+					|| !updated.compareAndSet(last, now))) {
+				return;
+			}
+			
+			// The number of files is not known while they are being found
+			double seconds = (now - started) / 1e9;
+			updateProgress(done, total);
+			updateMessage(String.format("%s: %d%s files (%.0f files/s)",
+					phase, done, (total < 0)? "" : " of " + total,
+					(seconds > 0)? done / seconds : 0));
+		}
+		
+		@Override
+		public void tested(List<TestFile> files) {
+			batches.add(files);
+			if (flushing.compareAndSet(false, true)) {
+				Platform.runLater(this::flush);
+			}
+		}
+		
+		@Override
+		protected void succeeded() {
+			flush();
+			if (!finish(summary())) {
+				return;
+			}
+			
+			// Calculate the accuracy and precision
+			setAccuracy((1.0*filter.getCorrectGuessCount())/
+					(filter.getHamFiles()+filter.getSpamFiles()));
+			setPrecision((1.0*filter.getCorrectSpamGuesses())
+					/filter.getCorrectGuessCount());
+		}
+		
+		@Override
+		protected void cancelled() {
+			finish("Cancelled");
+		}
+		
+		@Override
+		protected void failed() {
+			getException().printStackTrace();
+			finish("Failed: " + getException());
+		}
+		
+		/**
+		 * Starts timing the next part of the work.
+		 * 
+		 * @param phase - what the filter is about to do.
+		 */
+		private void begin(String phase) {
+			this.phase = phase;
+			this.started = System.nanoTime();
+			updateProgress(-1, 1);
+			updateMessage(phase + "...");
+		}
+		
+		/**
+		 * Describes how long training and testing took.
+		 * 
+		 * @return the description.
+		 */
+		private String summary() {
+			FilterMetrics metrics = filter.getMetrics();
+			FilterMetrics.PhaseStats train = metrics.getPhase(
+					FilterMetrics.Phase.TRAIN);
+			FilterMetrics.PhaseStats load = metrics.getPhase(
+					FilterMetrics.Phase.LOAD);
+			FilterMetrics.PhaseStats test = metrics.getPhase(
+					FilterMetrics.Phase.TEST);
+			StringBuilder sb = new StringBuilder("Done.");
+			if (train != null) {
+				sb.append(String.format(" Trained on %d files in %.0f ms.",
+						train.getFiles(), train.getNanos() / 1e6));
+			} else if (load != null) {
+				sb.append(String.format(" Loaded %d words in %.0f ms.",
+						load.getVocabularySize(), load.getNanos() / 1e6));
+			}
+			if (test != null) {
+				sb.append(String.format(" Tested %d files at %.0f files/s,"
+						+ " p99 %.0f us.", test.getFiles(),
+						test.getFilesPerSecond(), metrics.getLatency()
+						.getPercentile(99) / 1000.0));
+			}
+			if (metrics.getFailureCount() > 0) {
+				sb.append(" " + metrics.getFailureCount()
+						+ " files could not be read.");
+			}
+			return sb.toString();
+		}
+		
+		/** Adds the waiting batches to the table, on the JavaFX thread. */
+		private void flush() {
+			flushing.set(false);
+			List<TestFile> files;
+			boolean added = false;
+			while ((files = batches.poll()) != null) {
+				if (task == this) {
+					results.addAll(files);
+					added = true;
+				}
+			}
+			if (added) {
+				query(false);
+			}
+		}
+		
+		/**
+		 * Stops showing the progress of this task, if it is still the task
+		 * of the directory view.
+		 * 
+		 * @param message - the final message to display.
+		 * @return true if this is the task of the directory view.
+		 */
+		private boolean finish(String message) {
+			if (task != this) {
+				return false;
+			}
+			progress.progressProperty().unbind();
+			status.textProperty().unbind();
+			progress.setProgress(isCancelled()? 0 : 1);
+			status.setText(message);
+			cancel.setDisable(true);
+			return true;
+		}
+	}
 }
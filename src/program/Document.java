@@ -0,0 +1,111 @@
+/* Name: Document
+ * Author: Devon McGrath
+ * Description: This class holds the words a training e-mail added to the
+ * spam filter so that they can be taken back out later.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Keep the generation of the word ids - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code Document} class is the result of adding a training file to a
+ * {@link SpamFilter} with {@link SpamFilter#addDocument(java.io.File,
+ * boolean)}. It keeps the ids of the unique words in the file, the number of
+ * times each word showed up and the class of the file, which is everything
+ * needed to remove the file from the model again, even after the file itself
+ * has been changed or deleted.</p>
+ * 
+ * <p>The word ids belong to the vocabulary of the filter at the time the
+ * document was added, so a document can no longer be removed once the filter
+ * is retrained, loaded from a file, pruned or cleared. An off-heap model
+ * keeps the same ids (see {@link SpamFilter#setOffHeap(boolean)}), so
+ * compiling one does not stop a document from being removed.</p>
+ */
+public class Document {
+	
+	/** The generation of the word ids of the filter the document was added
+	 * to. */
+	private final long generation;
+	
+	/** The ids of the unique words. */
+	private final int[] ids;
+	
+	/** The number of times each word showed up. */
+	private final int[] counts;
+	
+	/** The actual class of the document. */
+	private final boolean spam;
+	
+	/**
+	 * Constructs a document from the last document read by a feature
+	 * extractor.
+	 * 
+	 * @param generation - the generation of the word ids of the filter.
+	 * @param extractor - the feature extractor.
+	 * @param spam - the actual class of the document.
+	 */
+	public Document(long generation, FeatureExtractor extractor,
+			boolean spam) {
+		int size = extractor.size();
+		this.generation = generation;
+		this.ids = new int[size];
+		this.counts = new int[size];
+		for (int i = 0; i < size; i ++) {
+			ids[i] = extractor.id(i);
+			counts[i] = extractor.count(i);
+		}
+		this.spam = spam;
+	}
+	
+	/**
+	 * <b><em>getGeneration</em></b>
+	 * 
+	 * @return the generation of the word ids, which changes each time the
+	 * words of the filter are replaced.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of unique words in the document.
+	 */
+	public int size() {
+		return ids.length;
+	}
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * @param i - the index of the word, from 0 to {@link #size()} - 1.
+	 * @return the id of the i-th unique word.
+	 */
+	public int id(int i) {
+		return ids[i];
+	}
+	
+	/**
+	 * <b><em>count</em></b>
+	 * 
+	 * @param i - the index of the word, from 0 to {@link #size()} - 1.
+	 * @return the number of times the i-th unique word showed up.
+	 */
+	public int count(int i) {
+		return counts[i];
+	}
+	
+	public boolean isSpam() {
+		return spam;
+	}
+	
+	@Override
+	public String toString() {
+		return "Document[" + (spam? TestFile.SPAM : TestFile.NOT_SPAM)
+				+ ", words=" + ids.length + "]";
+	}
+}
@@ -0,0 +1,223 @@
+/* Name: DriftReport
+ * Author: Devon McGrath
+ * Description: This class compares scoring e-mails with a budget to scoring
+ * them in full, so that the loss of accuracy can be weighed against the
+ * time saved.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code DriftReport} class is the result of
+ * {@link SpamFilter#compare(ScoringBudget)}. Each test file is scored twice,
+ * once with the {@link ScoringBudget} and once in full, and the report
+ * counts:</p>
+ * 
+ * <ul>
+ * <li>how often the two agree on whether a file is spam</li>
+ * <li>the accuracy of each</li>
+ * <li>how far the spam probability moves (the drift)</li>
+ * <li>the time, bytes and tokens that each one read</li>
+ * </ul>
+ * 
+ * <p>A report is filled in by one thread and is not thread-safe.</p>
+ */
+public class DriftReport {
+	
+	/** The budget that was compared to full scoring. */
+	private final ScoringBudget budget;
+	
+	/** The number of files compared. */
+	private int files;
+	
+	/** The number of files that both ways put in the same class. */
+	private int agreements;
+	
+	/** The number of files classified correctly in full. */
+	private int fullCorrect;
+	
+	/** The number of files classified correctly with the budget. */
+	private int budgetCorrect;
+	
+	/** The sum of the differences of the spam probabilities. */
+	private double totalDrift;
+	
+	/** The largest difference of the spam probabilities. */
+	private double maxDrift;
+	
+	/** The time taken to read and score the files in full. */
+	private long fullNanos;
+	
+	/** The time taken to read and score the files with the budget. */
+	private long budgetNanos;
+	
+	/** The number of bytes read in full. */
+	private long fullBytes;
+	
+	/** The number of bytes read with the budget. */
+	private long budgetBytes;
+	
+	/** The number of tokens read in full. */
+	private long fullTokens;
+	
+	/** The number of tokens read with the budget. */
+	private long budgetTokens;
+	
+	/**
+	 * Constructs an empty report.
+	 * 
+	 * @param budget - the budget that is compared to full scoring.
+	 */
+	public DriftReport(ScoringBudget budget) {
+		this.budget = budget;
+	}
+	
+	/**
+	 * <b><em>scored</em></b>
+	 * 
+	 * <p>Counts a file that was scored both ways.</p>
+	 * 
+	 * @param isSpam - the actual class of the file.
+	 * @param full - the spam probability when scored in full.
+	 * @param budgeted - the spam probability when scored with the budget.
+	 */
+	void scored(boolean isSpam, double full, double budgeted) {
+		boolean fullSpam = full > SpamFilter.SPAM_THRESHOLD;
+		boolean budgetSpam = budgeted > SpamFilter.SPAM_THRESHOLD;
+		double drift = Math.abs(full - budgeted);
+		this.files ++;
+		this.agreements += (fullSpam == budgetSpam)? 1 : 0;
+		this.fullCorrect += (fullSpam == isSpam)? 1 : 0;
+		this.budgetCorrect += (budgetSpam == isSpam)? 1 : 0;
+		this.totalDrift += drift;
+		this.maxDrift = Math.max(maxDrift, drift);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Counts the work of reading and scoring a file one way.</p>
+	 * 
+	 * @param budgeted - true if the file was scored with the budget, false
+	 * if it was scored in full.
+	 * @param extractor - the feature extractor that read the file.
+	 * @param nanos - the time taken to read and score the file.
+	 */
+	void read(boolean budgeted, FeatureExtractor extractor, long nanos) {
+		if (budgeted) {
+			this.budgetNanos += nanos;
+			this.budgetBytes += extractor.getByteCount();
+			this.budgetTokens += extractor.getTokenCount();
+		} else {
+			this.fullNanos += nanos;
+			this.fullBytes += extractor.getByteCount();
+			this.fullTokens += extractor.getTokenCount();
+		}
+	}
+	
+	public ScoringBudget getBudget() {
+		return budget;
+	}
+	
+	public int getFiles() {
+		return files;
+	}
+	
+	/**
+	 * <b><em>getAgreement</em></b>
+	 * 
+	 * @return the fraction of the files that were put in the same class both
+	 * ways, or 1 if no files were compared.
+	 */
+	public double getAgreement() {
+		return (files == 0)? 1 : (double) agreements / files;
+	}
+	
+	/**
+	 * <b><em>getFullAccuracy</em></b>
+	 * 
+	 * @return the fraction of the files classified correctly in full.
+	 */
+	public double getFullAccuracy() {
+		return (files == 0)? 0 : (double) fullCorrect / files;
+	}
+	
+	/**
+	 * <b><em>getBudgetAccuracy</em></b>
+	 * 
+	 * @return the fraction of the files classified correctly with the
+	 * budget.
+	 */
+	public double getBudgetAccuracy() {
+		return (files == 0)? 0 : (double) budgetCorrect / files;
+	}
+	
+	/**
+	 * <b><em>getMeanDrift</em></b>
+	 * 
+	 * @return the average difference of the spam probabilities.
+	 */
+	public double getMeanDrift() {
+		return (files == 0)? 0 : totalDrift / files;
+	}
+	
+	/**
+	 * <b><em>getMaxDrift</em></b>
+	 * 
+	 * @return the largest difference of the spam probabilities.
+	 */
+	public double getMaxDrift() {
+		return maxDrift;
+	}
+	
+	public long getFullNanos() {
+		return fullNanos;
+	}
+	
+	public long getBudgetNanos() {
+		return budgetNanos;
+	}
+	
+	public long getFullBytes() {
+		return fullBytes;
+	}
+	
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+	
+	public long getFullTokens() {
+		return fullTokens;
+	}
+	
+	public long getBudgetTokens() {
+		return budgetTokens;
+	}
+	
+	/**
+	 * <b><em>getSpeedup</em></b>
+	 * 
+	 * @return the time taken in full divided by the time taken with the
+	 * budget.
+	 */
+	public double getSpeedup() {
+		return (budgetNanos <= 0)? 0 : (double) fullNanos / budgetNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Budget: %s%n"
+				+ "Files: %d, agreement: %.2f%%%n"
+				+ "Accuracy: %.4f in full, %.4f with the budget%n"
+				+ "Drift: mean %.4f, max %.4f%n"
+				+ "Read: %d of %d bytes, %d of %d tokens%n"
+				+ "Time: %.1f ms in full, %.1f ms with the budget (%.2fx)",
+				budget, files, getAgreement() * 100, getFullAccuracy(),
+				getBudgetAccuracy(), getMeanDrift(), maxDrift, budgetBytes,
+				fullBytes, budgetTokens, fullTokens, fullNanos / 1e6,
+				budgetNanos / 1e6, getSpeedup());
+	}
+}
@@ -0,0 +1,322 @@
+/* Name: FeatureExtractor
+ * Author: Devon McGrath
+ * Description: This class turns an e-mail into the set of unique word ids
+ * it contains and the number of times each word shows up.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Count the bytes and tokens - Devon McGrath
+ * 1.2 - 10/16/2026 - Read a file before extracting it - Devon McGrath
+ * 1.3 - 10/16/2026 - Added the scoring budget - Devon McGrath
+ * 1.4 - 10/16/2026 - Look up words in any word index - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>The {@code FeatureExtractor} class reads the words of a document with a
+ * {@link Tokenizer} and looks them up in a {@link Vocabulary}, or any other
+ * {@link WordIndex} when new words are not added. The result is
+ * the list of unique word ids in the order they first show up, along with the
+ * number of times each word was found. It is used for both training and
+ * testing so that they see a document the same way.</p>
+ * 
+ * <p>Repeated words are found in constant time by stamping the id of each
+ * word with the number of the current document. A word was already seen if
+ * its stamp matches, so nothing has to be cleared between documents and the
+ * time taken is linear in the length of the document.</p>
+ * 
+ * <p>The result is only valid until the next document is extracted. An
+ * extractor is not thread-safe, but it can be reused with any vocabulary.</p>
+ */
+public class FeatureExtractor implements Tokenizer.TokenHandler {
+	
+	/** The tokenizer that reads the words. */
+	private final Tokenizer tokenizer;
+	
+	/** The document number each word id was last seen in. */
+	private int[] stamps;
+	
+	/** The index in {@link #ids} of each word id in the current document. */
+	private int[] positions;
+	
+	/** The current document number. */
+	private int epoch;
+	
+	/** The unique word ids of the document. */
+	private int[] ids;
+	
+	/** The number of times each word in {@link #ids} shows up. */
+	private int[] counts;
+	
+	/** The number of unique words in the document. */
+	private int size;
+	
+	/** The number of bytes in the document. */
+	private int bytes;
+	
+	/** The number of words in the document, including repeated words and
+	 * words that are not in the vocabulary. */
+	private int tokens;
+	
+	/** The words used for the current document. */
+	private WordIndex index;
+	
+	/** The vocabulary that new words are added to, or null if they are
+	 * skipped. */
+	private Vocabulary vocabulary;
+	
+	/** Constructs a feature extractor. */
+	public FeatureExtractor() {
+		this.tokenizer = new Tokenizer();
+		this.stamps = new int[256];
+		this.positions = new int[256];
+		this.ids = new int[64];
+		this.counts = new int[64];
+	}
+	
+	/**
+	 * <b><em>extract</em></b>
+	 * 
+	 * <p>Reads a file and finds the unique words in it.</p>
+	 * 
+	 * @param file - the file to read.
+	 * @param vocabulary - the vocabulary to look the words up in.
+	 * @param grow - true if words that are not in the vocabulary should be
+	 * added to it, false if they should be skipped.
+	 * @return the number of unique words.
+	 * @throws IOException if the file could not be read.
+	 */
+	public int extract(File file, Vocabulary vocabulary, boolean grow)
+			throws IOException {
+		read(file);
+		return extract(vocabulary, grow);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads a file without finding the words in it yet. This allows the
+	 * content of the file to be checked with {@link #hash()} first. The words
+	 * are found with {@link #extract(Vocabulary, boolean)}.</p>
+	 * 
+	 * @param file - the file to read.
+	 * @return the number of bytes read.
+	 * @throws IOException if the file could not be read.
+	 */
+	public int read(File file) throws IOException {
+		return read(file, 0);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads the start of a file without finding the words in it yet (see
+	 * {@link Tokenizer#read(File, int)}).</p>
+	 * 
+	 * @param file - the file to read.
+	 * @param maxBytes - the number of bytes to read, or 0 for all of them.
+	 * @return the number of bytes kept.
+	 * @throws IOException if the file could not be read.
+	 */
+	public int read(File file, int maxBytes) throws IOException {
+		this.size = 0;
+		this.tokens = 0;
+		this.bytes = 0;
+		this.bytes = tokenizer.read(file, maxBytes);
+		return bytes;
+	}
+	
+	/**
+	 * <b><em>hash</em></b>
+	 * 
+	 * @return the content hash of the last file read by {@link #read(File)}.
+	 * @see {@link ResultCache#hash(byte[], int, int)}
+	 */
+	public long hash() {
+		return tokenizer.hash();
+	}
+	
+	/**
+	 * <b><em>extract</em></b>
+	 * 
+	 * <p>Finds the unique words in the last file read by
+	 * {@link #read(File)}.</p>
+	 * 
+	 * @param vocabulary - the vocabulary to look the words up in.
+	 * @param grow - true if words that are not in the vocabulary should be
+	 * added to it, false if they should be skipped.
+	 * @return the number of unique words.
+	 */
+	public int extract(Vocabulary vocabulary, boolean grow) {
+		begin(vocabulary, grow? vocabulary : null);
+		tokenizer.tokenize(this);
+		return size;
+	}
+	
+	/**
+	 * <b><em>extract</em></b>
+	 * 
+	 * <p>Finds the unique words in the part of the last file read by
+	 * {@link #read(File, int)} that is within the byte and token limits of a
+	 * scoring budget. New words are never added.</p>
+	 * 
+	 * @param index - the words to look the words up in.
+	 * @param budget - the scoring budget.
+	 * @return the number of unique words.
+	 */
+	public int extract(WordIndex index, ScoringBudget budget) {
+		begin(index, null);
+		tokenizer.tokenize(this, budget.getMaxBytes(),
+				budget.getMaxTokens());
+		return size;
+	}
+	
+	/**
+	 * <b><em>extract</em></b>
+	 * 
+	 * <p>Finds the unique words in a range of UTF-8 bytes.</p>
+	 * 
+	 * @param text - the bytes of the document.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param vocabulary - the vocabulary to look the words up in.
+	 * @param grow - true if words that are not in the vocabulary should be
+	 * added to it, false if they should be skipped.
+	 * @return the number of unique words.
+	 */
+	public int extract(byte[] text, int start, int end,
+			Vocabulary vocabulary, boolean grow) {
+		begin(vocabulary, grow? vocabulary : null);
+		this.bytes = end - start;
+		tokenizer.tokenize(text, start, end, this);
+		return size;
+	}
+	
+	/**
+	 * <b><em>extract</em></b>
+	 * 
+	 * <p>Finds the unique words in the part of a range of UTF-8 bytes that is
+	 * within the byte and token limits of a scoring budget. New words are
+	 * never added.</p>
+	 * 
+	 * @param text - the bytes of the document.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param index - the words to look the words up in.
+	 * @param budget - the scoring budget.
+	 * @return the number of unique words.
+	 */
+	public int extract(byte[] text, int start, int end, WordIndex index,
+			ScoringBudget budget) {
+		begin(index, null);
+		end = Tokenizer.prefix(text, start, end, budget.getMaxBytes());
+		this.bytes = end - start;
+		tokenizer.tokenize(text, start, end, this, budget.getMaxTokens());
+		return size;
+	}
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of unique words in the last document.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * @param i - the index of the word, from 0 to {@link #size()} - 1.
+	 * @return the id of the i-th unique word in the last document.
+	 */
+	public int id(int i) {
+		return ids[i];
+	}
+	
+	/**
+	 * <b><em>count</em></b>
+	 * 
+	 * @param i - the index of the word, from 0 to {@link #size()} - 1.
+	 * @return the number of times the i-th unique word shows up in the last
+	 * document.
+	 */
+	public int count(int i) {
+		return counts[i];
+	}
+	
+	/**
+	 * <b><em>getByteCount</em></b>
+	 * 
+	 * @return the number of bytes in the last document.
+	 */
+	public int getByteCount() {
+		return bytes;
+	}
+	
+	/**
+	 * <b><em>getTokenCount</em></b>
+	 * 
+	 * @return the number of words in the last document, including repeated
+	 * words and words that were not in the vocabulary.
+	 */
+	public int getTokenCount() {
+		return tokens;
+	}
+	
+	@Override
+	public void token(byte[] word, int start, int len) {
+		this.tokens ++;
+		int id = (vocabulary != null)? vocabulary.add(word, start, len)
+				: index.id(word, start, len);
+		if (id < 0) {
+			return;
+		}
+		if (id >= stamps.length) {
+			int capacity = Math.max(id + 1, stamps.length * 2);
+			this.stamps = Arrays.copyOf(stamps, capacity);
+			this.positions = Arrays.copyOf(positions, capacity);
+		}
+		
+		// Count the word again if it was already seen
+		if (stamps[id] == epoch) {
+			counts[positions[id]] ++;
+			return;
+		}
+		if (size == ids.length) {
+			this.ids = Arrays.copyOf(ids, size * 2);
+			this.counts = Arrays.copyOf(counts, size * 2);
+		}
+		stamps[id] = epoch;
+		positions[id] = size;
+		ids[size] = id;
+		counts[size] = 1;
+		size ++;
+	}
+	
+	/**
+	 * Starts a new document.
+	 * 
+	 * @param index - the words to look the words up in.
+	 * @param vocabulary - the vocabulary to add new words to, or null to
+	 * skip them.
+	 */
+	private void begin(WordIndex index, Vocabulary vocabulary) {
+		this.index = index;
+		this.vocabulary = vocabulary;
+		this.size = 0;
+		this.tokens = 0;
+		
+		// Clear the stamps when the document number wraps around
+		this.epoch ++;
+		if (epoch == 0) {
+			Arrays.fill(stamps, 0);
+			this.epoch = 1;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/* Name: FilterEvents
+ * Author: Devon McGrath
+ * Description: This class holds the Java Flight Recorder events of the spam
+ * filter.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>The {@code FilterEvents} class holds the custom events that
+ * {@link FilterMetrics} writes to the Java Flight Recorder. They are shown
+ * under "Spam Filter" in JDK Mission Control. The events cost next to
+ * nothing when no recording is running.</p>
+ * 
+ * <p>The score event is written once per classified file, so it is off by
+ * default. It can be turned on with a custom JFR settings file or
+ * {@code jfr configure}.</p>
+ */
+final class FilterEvents {
+	
+	private FilterEvents() {}
+	
+	/** The {@code PhaseEvent} class records one phase of the spam filter,
+	 * such as training or testing. */
+	@Name("program.Phase")
+	@Label("Phase")
+	@Category("Spam Filter")
+	@Description("Training, testing, loading, saving or compiling a model")
+	static class PhaseEvent extends Event {
+		
+		@Label("Phase")
+		String phase;
+		
+		@Label("Files")
+		long files;
+		
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+		
+		@Label("Tokens")
+		long tokens;
+		
+		@Label("I/O Failures")
+		long failures;
+		
+		@Label("Vocabulary Size")
+		int vocabularySize;
+		
+		@Label("Cancelled")
+		boolean cancelled;
+	}
+	
+	/** The {@code ScoreEvent} class records the classification of a single
+	 * file. */
+	@Name("program.Score")
+	@Label("Score")
+	@Category("Spam Filter")
+	@Description("Reading and classifying one file")
+	@Enabled(false)
+	static class ScoreEvent extends Event {
+		
+		@Label("File")
+		String path;
+		
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+		
+		@Label("Tokens")
+		long tokens;
+		
+		@Label("Spam Probability")
+		double probability;
+		
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+	}
+	
+	/** The {@code FailureEvent} class records a file that could not be
+	 * read. */
+	@Name("program.IOFailure")
+	@Label("I/O Failure")
+	@Category("Spam Filter")
+	@Description("A training or test file that could not be read")
+	static class FailureEvent extends Event {
+		
+		@Label("File")
+		String path;
+		
+		@Label("Error")
+		String message;
+	}
+}
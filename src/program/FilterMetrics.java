@@ -0,0 +1,431 @@
+/* Name: FilterMetrics
+ * Author: Devon McGrath
+ * Description: This class keeps the numbers that describe how fast the spam
+ * filter is and what went wrong while it was running.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Scored e-mails may have no file - Devon McGrath
+ * 1.2 - 10/16/2026 - Scored e-mails may be cached - Devon McGrath
+ * 1.3 - 10/16/2026 - Added the cross-validation phase - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The {@code FilterMetrics} class records what a {@link SpamFilter} does
+ * (see {@link SpamFilter#getMetrics()}):</p>
+ * 
+ * <ul>
+ * <li>the time, files, bytes and tokens of the last run of each
+ * {@link Phase}, and the size of the vocabulary after it</li>
+ * <li>the time taken to read and score each file, in a
+ * {@link LatencyHistogram}</li>
+ * <li>the files that could not be read</li>
+ * </ul>
+ * 
+ * <p>Everything is also written to the Java Flight Recorder as the events in
+ * {@link FilterEvents}. The metrics can be updated from any number of
+ * threads.</p>
+ */
+public class FilterMetrics {
+	
+	/** The {@code Phase} enum lists the parts of the work that are
+	 * timed. */
+	public enum Phase {
+		
+		/** Reading the training files, see {@link SpamFilter#train()}. */
+		TRAIN,
+		
+		/** Classifying files, see {@link SpamFilter#test()}. */
+		TEST,
+		
+		/** Loading a saved model, see {@link SpamFilter#load(File)}. */
+		LOAD,
+		
+		/** Saving the model, see {@link SpamFilter#save(File)}. */
+		SAVE,
+		
+		/** Compiling the scoring model, see
+		 * {@link SpamFilter#compile()}. */
+		COMPILE,
+		
+		/** Reading the training files for cross-validation, see {@link
+		 * SpamFilter#newCrossValidator(int, long, ProgressListener)}. */
+		CROSS_VALIDATE
+	}
+	
+	/** The number of failures that are kept with their messages. */
+	private static final int MAX_FAILURES = 100;
+	
+	/** The last result of each phase. */
+	private final AtomicReferenceArray<PhaseStats> phases;
+	
+	/** The time taken to read and score each file. */
+	private final LatencyHistogram latency;
+	
+	/** The number of files that could not be read. */
+	private final LongAdder failureCount;
+	
+	/** The most recent failures, oldest first. */
+	private final Deque<String> failures;
+	
+	/** Constructs empty metrics. */
+	public FilterMetrics() {
+		this.phases = new AtomicReferenceArray<>(Phase.values().length);
+		this.latency = new LatencyHistogram();
+		this.failureCount = new LongAdder();
+		this.failures = new ArrayDeque<>();
+	}
+	
+	/**
+	 * <b><em>start</em></b>
+	 * 
+	 * <p>Starts timing a phase. The phase is recorded once
+	 * {@link Timer#stop(int, boolean)} is called.</p>
+	 * 
+	 * @param phase - the phase.
+	 * @return the timer of the phase.
+	 */
+	public Timer start(Phase phase) {
+		return new Timer(phase);
+	}
+	
+	/**
+	 * <b><em>getPhase</em></b>
+	 * 
+	 * @param phase - the phase.
+	 * @return the result of the last run of the phase, or null if it has not
+	 * run.
+	 */
+	public PhaseStats getPhase(Phase phase) {
+		return phases.get(phase.ordinal());
+	}
+	
+	/**
+	 * <b><em>getLatency</em></b>
+	 * 
+	 * @return the histogram of the time taken to read and score each file.
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+	
+	/**
+	 * <b><em>getFailureCount</em></b>
+	 * 
+	 * @return the number of files that could not be read.
+	 */
+	public long getFailureCount() {
+		return failureCount.sum();
+	}
+	
+	/**
+	 * <b><em>getRecentFailures</em></b>
+	 * 
+	 * <p>Gets the path and error of the last {@value #MAX_FAILURES} files
+	 * that could not be read.</p>
+	 * 
+	 * @return the failures, oldest first.
+	 */
+	public List<String> getRecentFailures() {
+		synchronized (failures) {
+			return new ArrayList<>(failures);
+		}
+	}
+	
+	/**
+	 * <b><em>reset</em></b>
+	 * 
+	 * <p>Removes everything that has been recorded.</p>
+	 */
+	public void reset() {
+		for (int i = 0; i < phases.length(); i ++) {
+			phases.set(i, null);
+		}
+		latency.reset();
+		failureCount.reset();
+		synchronized (failures) {
+			failures.clear();
+		}
+	}
+	
+	/**
+	 * <b><em>scored</em></b>
+	 * 
+	 * <p>Records the classification of a file.</p>
+	 * 
+	 * @param path - the file, or null if the e-mail was in memory.
+	 * @param bytes - the number of bytes in the file.
+	 * @param tokens - the number of tokens found, which is 0 if the result
+	 * was cached.
+	 * @param probability - the spam probability of the file.
+	 * @param nanos - the time taken to read and score the file.
+	 */
+	void scored(File path, long bytes, long tokens, double probability,
+			long nanos) {
+		latency.record(nanos);
+		FilterEvents.ScoreEvent event = new FilterEvents.ScoreEvent();
+		if (event.shouldCommit()) {
+			event.path = (path == null)? null : path.getPath();
+			event.bytes = bytes;
+			event.tokens = tokens;
+			event.probability = probability;
+			event.latency = nanos;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * <b><em>failed</em></b>
+	 * 
+	 * <p>Records a file that could not be read.</p>
+	 * 
+	 * @param path - the file.
+	 * @param e - the error.
+	 */
+	void failed(File path, Exception e) {
+		failureCount.increment();
+		String message = path + ": " + e;
+		synchronized (failures) {
+			if (failures.size() == MAX_FAILURES) {
+				failures.removeFirst();
+			}
+			failures.addLast(message);
+		}
+		FilterEvents.FailureEvent event = new FilterEvents.FailureEvent();
+		if (event.shouldCommit()) {
+			event.path = path.getPath();
+			event.message = String.valueOf(e);
+			event.commit();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			PhaseStats stats = getPhase(phase);
+			if (stats != null) {
+				sb.append(stats).append('\n');
+			}
+		}
+		sb.append("Latency: ").append(latency).append('\n');
+		sb.append("I/O failures: ").append(getFailureCount());
+		return sb.toString();
+	}
+	
+	/** The {@code Timer} class counts the files read during one run of a
+	 * phase. It is safe to use from more than one thread. */
+	public class Timer {
+		
+		/** The phase being timed. */
+		private final Phase phase;
+		
+		/** The time the phase started, in nanoseconds. */
+		private final long start;
+		
+		/** The event of the phase. */
+		private final FilterEvents.PhaseEvent event;
+		
+		/** The number of files read. */
+		private final LongAdder files;
+		
+		/** The number of bytes read. */
+		private final LongAdder bytes;
+		
+		/** The number of tokens read. */
+		private final LongAdder tokens;
+		
+		/** The number of files that could not be read. */
+		private final LongAdder failures;
+		
+		private Timer(Phase phase) {
+			this.phase = phase;
+			this.event = new FilterEvents.PhaseEvent();
+			this.event.begin();
+			this.start = System.nanoTime();
+			this.files = new LongAdder();
+			this.bytes = new LongAdder();
+			this.tokens = new LongAdder();
+			this.failures = new LongAdder();
+		}
+		
+		/**
+		 * <b><em>read</em></b>
+		 * 
+		 * <p>Counts the file last read by a feature extractor.</p>
+		 * 
+		 * @param extractor - the feature extractor.
+		 */
+		public void read(FeatureExtractor extractor) {
+			read(extractor.getByteCount(), extractor.getTokenCount());
+		}
+		
+		/**
+		 * <b><em>read</em></b>
+		 * 
+		 * <p>Counts a file that was read.</p>
+		 * 
+		 * @param bytes - the number of bytes in the file.
+		 * @param tokens - the number of tokens in the file.
+		 */
+		public void read(long bytes, long tokens) {
+			this.files.increment();
+			this.bytes.add(bytes);
+			this.tokens.add(tokens);
+		}
+		
+		/**
+		 * <b><em>failed</em></b>
+		 * 
+		 * <p>Counts a file that could not be read.</p>
+		 * 
+		 * @param path - the file.
+		 * @param e - the error.
+		 */
+		public void failed(File path, Exception e) {
+			failures.increment();
+			FilterMetrics.this.failed(path, e);
+		}
+		
+		/**
+		 * <b><em>stop</em></b>
+		 * 
+		 * <p>Stops timing the phase and records it as the last run of the
+		 * phase.</p>
+		 * 
+		 * @param vocabularySize - the number of words in the vocabulary after
+		 * the phase.
+		 * @param cancelled - whether the phase was cancelled.
+		 * @return the result of the phase.
+		 */
+		public PhaseStats stop(int vocabularySize, boolean cancelled) {
+			PhaseStats stats = new PhaseStats(phase,
+					System.nanoTime() - start, files.sum(), bytes.sum(),
+					tokens.sum(), failures.sum(), vocabularySize, cancelled);
+			phases.set(phase.ordinal(), stats);
+			event.end();
+			if (event.shouldCommit()) {
+				event.phase = phase.name();
+				event.files = stats.getFiles();
+				event.bytes = stats.getBytes();
+				event.tokens = stats.getTokens();
+				event.failures = stats.getFailures();
+				event.vocabularySize = vocabularySize;
+				event.cancelled = cancelled;
+				event.commit();
+			}
+			return stats;
+		}
+	}
+	
+	/** The {@code PhaseStats} class is the result of one run of a phase.
+	 * It is never modified. */
+	public static class PhaseStats {
+		
+		/** The phase. */
+		private final Phase phase;
+		
+		/** The time the phase took, in nanoseconds. */
+		private final long nanos;
+		
+		/** The number of files read. */
+		private final long files;
+		
+		/** The number of bytes read. */
+		private final long bytes;
+		
+		/** The number of tokens read. */
+		private final long tokens;
+		
+		/** The number of files that could not be read. */
+		private final long failures;
+		
+		/** The number of words in the vocabulary after the phase. */
+		private final int vocabularySize;
+		
+		/** Whether the phase was cancelled. */
+		private final boolean cancelled;
+		
+		public PhaseStats(Phase phase, long nanos, long files, long bytes,
+				long tokens, long failures, int vocabularySize,
+				boolean cancelled) {
+			this.phase = phase;
+			this.nanos = nanos;
+			this.files = files;
+			this.bytes = bytes;
+			this.tokens = tokens;
+			this.failures = failures;
+			this.vocabularySize = vocabularySize;
+			this.cancelled = cancelled;
+		}
+		
+		public Phase getPhase() {
+			return phase;
+		}
+		
+		public long getNanos() {
+			return nanos;
+		}
+		
+		public long getFiles() {
+			return files;
+		}
+		
+		public long getBytes() {
+			return bytes;
+		}
+		
+		public long getTokens() {
+			return tokens;
+		}
+		
+		public long getFailures() {
+			return failures;
+		}
+		
+		public int getVocabularySize() {
+			return vocabularySize;
+		}
+		
+		public boolean isCancelled() {
+			return cancelled;
+		}
+		
+		/**
+		 * <b><em>getFilesPerSecond</em></b>
+		 * 
+		 * @return the number of files read per second.
+		 */
+		public double getFilesPerSecond() {
+			return (nanos <= 0)? 0 : files * 1e9 / nanos;
+		}
+		
+		/**
+		 * <b><em>getBytesPerSecond</em></b>
+		 * 
+		 * @return the number of bytes read per second.
+		 */
+		public double getBytesPerSecond() {
+			return (nanos <= 0)? 0 : bytes * 1e9 / nanos;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s: %.1f ms, %d files (%.0f files/s), "
+					+ "%.1f MB/s, %d tokens, %d words, %d failures%s",
+					phase, nanos / 1e6, files, getFilesPerSecond(),
+					getBytesPerSecond() / 1e6, tokens, vocabularySize,
+					failures, cancelled? ", cancelled" : "");
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/* Name: HashingReport
+ * Author: Devon McGrath
+ * Description: This class measures how far a model trained with hashed
+ * words is from one trained with every word kept.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code HashingReport} class is the result of
+ * {@link SpamFilter#compareHashed(SpamFilter)}. For every word of the exact
+ * model, the file counts and weight of the bucket it is hashed into are
+ * compared to its own, which shows how much the words that share a bucket
+ * change each other. It also has the memory of both models and how both
+ * classify the test files.</p>
+ * 
+ * <p>A report is filled in by one thread and is not thread-safe.</p>
+ */
+public class HashingReport {
+	
+	/** The number of buckets of the hashed model. */
+	private final int buckets;
+	
+	/** The number of words in the exact model. */
+	private int words;
+	
+	/** The number of words whose bucket has different counts. */
+	private int collided;
+	
+	/** The sum of the errors of the file counts. */
+	private long totalCountError;
+	
+	/** The largest error of the file counts. */
+	private int maxCountError;
+	
+	/** The sum of the errors of the weights. */
+	private double totalWeightError;
+	
+	/** The largest error of the weights. */
+	private double maxWeightError;
+	
+	/** The memory used by the exact model. */
+	private final long exactBytes;
+	
+	/** The memory used by the hashed model. */
+	private final long hashedBytes;
+	
+	/** The number of test files classified. */
+	private int files;
+	
+	/** The number of test files that both models put in the same class. */
+	private int agreements;
+	
+	/** The number of test files the exact model classified correctly. */
+	private int exactCorrect;
+	
+	/** The number of test files the hashed model classified correctly. */
+	private int hashedCorrect;
+	
+	/**
+	 * Constructs a report by comparing the counts and weights of two models.
+	 * 
+	 * @param exact - the model trained with every word kept.
+	 * @param hashed - the model trained with hashed words.
+	 * @throws IllegalArgumentException if the exact model is hashed or the
+	 * hashed model is not.
+	 */
+	public HashingReport(ScoringModel exact, ScoringModel hashed) {
+		WordIndex words = exact.getIndex();
+		WordIndex buckets = hashed.getIndex();
+		if (words.getBuckets() != 0 || buckets.getBuckets() == 0) {
+			throw new IllegalArgumentException(
+					"Expected an exact and a hashed model");
+		}
+		this.buckets = buckets.getBuckets();
+		this.exactBytes = exact.memoryFootprint();
+		this.hashedBytes = hashed.memoryFootprint();
+		
+		// Compare each word to its bucket
+		for (int id = 0; id < words.size(); id ++) {
+			int spam = words.getSpamFileCount(id);
+			int ham = words.getHamFileCount(id);
+			if (spam == 0 && ham == 0) {
+				continue;
+			}
+			int bucket = buckets.id(words.word(id));
+			int error = Math.abs(buckets.getSpamFileCount(bucket) - spam)
+					+ Math.abs(buckets.getHamFileCount(bucket) - ham);
+			double weightError = Math.abs(hashed.weight(bucket)
+					- exact.weight(id));
+			this.words ++;
+			this.collided += (error > 0)? 1 : 0;
+			this.totalCountError += error;
+			this.maxCountError = Math.max(maxCountError, error);
+			this.totalWeightError += weightError;
+			this.maxWeightError = Math.max(maxWeightError, weightError);
+		}
+	}
+	
+	/**
+	 * <b><em>scored</em></b>
+	 * 
+	 * <p>Counts a test file that was scored by both models.</p>
+	 * 
+	 * @param isSpam - the actual class of the file.
+	 * @param exact - the spam probability from the exact model.
+	 * @param hashed - the spam probability from the hashed model.
+	 */
+	void scored(boolean isSpam, double exact, double hashed) {
+		boolean exactSpam = exact > SpamFilter.SPAM_THRESHOLD;
+		boolean hashedSpam = hashed > SpamFilter.SPAM_THRESHOLD;
+		this.files ++;
+		this.agreements += (exactSpam == hashedSpam)? 1 : 0;
+		this.exactCorrect += (exactSpam == isSpam)? 1 : 0;
+		this.hashedCorrect += (hashedSpam == isSpam)? 1 : 0;
+	}
+	
+	public int getBuckets() {
+		return buckets;
+	}
+	
+	public int getWords() {
+		return words;
+	}
+	
+	/**
+	 * <b><em>getCollisionRate</em></b>
+	 * 
+	 * @return the fraction of the words whose bucket has different counts
+	 * because of other words in it.
+	 */
+	public double getCollisionRate() {
+		return (words == 0)? 0 : (double) collided / words;
+	}
+	
+	/**
+	 * <b><em>getMeanCountError</em></b>
+	 * 
+	 * @return the average difference of the spam and ham file counts of a
+	 * word and its bucket.
+	 */
+	public double getMeanCountError() {
+		return (words == 0)? 0 : (double) totalCountError / words;
+	}
+	
+	public int getMaxCountError() {
+		return maxCountError;
+	}
+	
+	/**
+	 * <b><em>getMeanWeightError</em></b>
+	 * 
+	 * @return the average difference of the weights of a word and its
+	 * bucket.
+	 */
+	public double getMeanWeightError() {
+		return (words == 0)? 0 : totalWeightError / words;
+	}
+	
+	public double getMaxWeightError() {
+		return maxWeightError;
+	}
+	
+	public long getExactBytes() {
+		return exactBytes;
+	}
+	
+	public long getHashedBytes() {
+		return hashedBytes;
+	}
+	
+	public int getFiles() {
+		return files;
+	}
+	
+	/**
+	 * <b><em>getAgreement</em></b>
+	 * 
+	 * @return the fraction of the test files that both models put in the
+	 * same class, or 1 if there were none.
+	 */
+	public double getAgreement() {
+		return (files == 0)? 1 : (double) agreements / files;
+	}
+	
+	/**
+	 * <b><em>getExactAccuracy</em></b>
+	 * 
+	 * @return the fraction of the test files the exact model classified
+	 * correctly.
+	 */
+	public double getExactAccuracy() {
+		return (files == 0)? 0 : (double) exactCorrect / files;
+	}
+	
+	/**
+	 * <b><em>getHashedAccuracy</em></b>
+	 * 
+	 * @return the fraction of the test files the hashed model classified
+	 * correctly.
+	 */
+	public double getHashedAccuracy() {
+		return (files == 0)? 0 : (double) hashedCorrect / files;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Hashing: %d buckets for %d words%n"
+				+ "Collisions: %.2f%% of words%n"
+				+ "Count error: mean %.3f, max %d%n"
+				+ "Weight error: mean %.4f, max %.4f%n"
+				+ "Memory: %d bytes exact, %d bytes hashed%n"
+				+ "Accuracy: %.4f exact, %.4f hashed on %d files, "
+				+ "agreement: %.2f%%", buckets, words,
+				getCollisionRate() * 100, getMeanCountError(), maxCountError,
+				getMeanWeightError(), maxWeightError, exactBytes, hashedBytes,
+				getExactAccuracy(), getHashedAccuracy(), files,
+				getAgreement() * 100);
+	}
+}
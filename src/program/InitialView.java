@@ -24,7 +24,7 @@ public class InitialView extends Scene {
 	
 	/** The button which allows selecting a directory. */
 	private Button select;
-
+	
 	/**
 	 * Constructs an initial view for the primary stage.
 	 * 
@@ -0,0 +1,136 @@
+/* Name: LatencyHistogram
+ * Author: Devon McGrath
+ * Description: This class counts how long operations take in buckets so that
+ * the percentiles of the time can be reported.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The {@code LatencyHistogram} class records times in nanoseconds. Each
+ * time is counted in the bucket of its power of two, so a percentile is
+ * accurate to within a factor of two, which is enough to see how the time is
+ * spread out at a fixed cost of 64 counters. Recording a time is lock-free
+ * and safe to do from any number of threads.</p>
+ */
+public class LatencyHistogram {
+	
+	/** The number of buckets, one for each bit of a long. */
+	private static final int BUCKETS = 64;
+	
+	/** The number of times in each bucket. Bucket i holds the times from
+	 * 2^(i-1) up to 2^i - 1 nanoseconds. */
+	private final AtomicLongArray buckets;
+	
+	/** The number of times recorded. */
+	private final LongAdder count;
+	
+	/** The sum of the times recorded. */
+	private final LongAdder total;
+	
+	/** Constructs an empty histogram. */
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+	}
+	
+	/**
+	 * <b><em>record</em></b>
+	 * 
+	 * <p>Counts a time in the histogram.</p>
+	 * 
+	 * @param nanos - the time in nanoseconds. Negative times count as 0.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		buckets.incrementAndGet(Math.min(BUCKETS - 1,
+				64 - Long.numberOfLeadingZeros(nanos)));
+		count.increment();
+		total.add(nanos);
+	}
+	
+	/**
+	 * <b><em>getCount</em></b>
+	 * 
+	 * @return the number of times recorded.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	
+	/**
+	 * <b><em>getMean</em></b>
+	 * 
+	 * @return the average time in nanoseconds, or 0 if nothing was
+	 * recorded.
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return (n == 0)? 0 : (double) total.sum() / n;
+	}
+	
+	/**
+	 * <b><em>getPercentile</em></b>
+	 * 
+	 * <p>Gets the time that a percentage of the recorded times are at or
+	 * below. The result is the upper end of the bucket the percentile falls
+	 * in.</p>
+	 * 
+	 * @param percentile - the percentile, from 0 to 100.
+	 * @return the time in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i ++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+		if (n == 0) {
+			return 0;
+		}
+		
+		// Find the bucket that holds the percentile
+		long rank = (long) Math.ceil(n * Math.min(100, Math.max(0,
+				percentile)) / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i ++) {
+			seen += counts[i];
+			if (seen >= Math.max(1, rank)) {
+				return (i == 0)? 0 : (i >= 63)? Long.MAX_VALUE
+						: (1L << i) - 1;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+	
+	/**
+	 * <b><em>reset</em></b>
+	 * 
+	 * <p>Removes all of the recorded times. Times recorded by other threads
+	 * while the histogram is being reset may be partly kept.</p>
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i ++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		total.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("n=%d, mean=%.1f us, p50<=%.1f us, "
+				+ "p90<=%.1f us, p99<=%.1f us, max<=%.1f us", getCount(),
+				getMean() / 1000, getPercentile(50) / 1000.0,
+				getPercentile(90) / 1000.0, getPercentile(99) / 1000.0,
+				getPercentile(100) / 1000.0);
+	}
+}
@@ -0,0 +1,576 @@
+/* Name: MailArchive
+ * Author: Devon McGrath
+ * Description: This class reads the e-mails out of an mbox file or a zip,
+ * tar or gzip archive one at a time, without extracting them to disk.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * <p>The {@code MailArchive} class reads a file that holds more than one
+ * e-mail in a single pass from start to end. The format is chosen by the
+ * name of the file (see {@link #getFormat(File)}):</p>
+ * 
+ * <ul>
+ * <li><b>.mbox</b> or <b>.mbox.gz</b> - the e-mails are separated by lines
+ * that start with "From ". The separator lines are not part of the e-mails,
+ * and one '&gt;' is taken off the lines inside an e-mail that were quoted as
+ * "&gt;From " (mboxrd). The e-mails are named by their number, from 1.</li>
+ * <li><b>.zip</b> - each file in the archive is an e-mail, named by its
+ * path in the archive.</li>
+ * <li><b>.tar</b>, <b>.tar.gz</b> or <b>.tgz</b> - each regular file in the
+ * archive is an e-mail, named by its path in the archive. Long names in GNU
+ * and POSIX headers are supported.</li>
+ * <li><b>.gz</b> - the file is a single compressed e-mail.</li>
+ * </ul>
+ * 
+ * <p>The bytes of each e-mail are read into a buffer that is reused for the
+ * next one, so memory use is set by the largest e-mail rather than the size
+ * of the archive. An archive is read by one thread and must be closed.</p>
+ */
+public class MailArchive implements AutoCloseable {
+	
+	/** The {@code Format} enum lists the kinds of archives that can be
+	 * read. */
+	public enum Format {
+		
+		/** E-mails separated by "From " lines, which may be compressed. */
+		MBOX,
+		
+		/** A zip archive. */
+		ZIP,
+		
+		/** A tar archive, which may be compressed. */
+		TAR,
+		
+		/** A single compressed e-mail. */
+		GZIP
+	}
+	
+	/** The size of a block of a tar archive. */
+	private static final int TAR_BLOCK = 512;
+	
+	/** The number of bytes the buffer has room for when created. */
+	private static final int INITIAL_CAPACITY = 8192;
+	
+	/** The line that separates the e-mails of an mbox file. */
+	private static final byte[] FROM = "From ".getBytes(
+			StandardCharsets.US_ASCII);
+	
+	/** The file. */
+	private final File file;
+	
+	/** The format of the file. */
+	private final Format format;
+	
+	/** The stream of the file, after it is uncompressed. */
+	private final InputStream in;
+	
+	/** The stream of a zip archive, or null. */
+	private final ZipInputStream zip;
+	
+	/** The bytes of the current e-mail. */
+	private byte[] text;
+	
+	/** The number of bytes of the current e-mail. */
+	private int length;
+	
+	/** The name of the current e-mail. */
+	private String name;
+	
+	/** The number of e-mails read. */
+	private int count;
+	
+	/** Whether the end of the archive was reached. */
+	private boolean ended;
+	
+	/**
+	 * Opens an archive.
+	 * 
+	 * @param file - the archive.
+	 * @throws IOException if the file could not be opened or is not an
+	 * archive.
+	 */
+	public MailArchive(File file) throws IOException {
+		this.file = file;
+		this.format = getFormat(file);
+		if (format == null) {
+			throw new IOException("Not an archive: " + file);
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			if (format == Format.ZIP) {
+				this.zip = new ZipInputStream(in);
+				in = zip;
+			} else {
+				this.zip = null;
+				if (isCompressed(file)) {
+					in = new BufferedInputStream(new GZIPInputStream(in));
+				}
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		this.in = in;
+		this.text = new byte[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * <b><em>getFormat</em></b>
+	 * 
+	 * @param file - the file.
+	 * @return the format of the file by its name, or null if it is not an
+	 * archive.
+	 */
+	public static Format getFormat(File file) {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".mbox") || name.endsWith(".mbox.gz")) {
+			return Format.MBOX;
+		} else if (name.endsWith(".zip")) {
+			return Format.ZIP;
+		} else if (name.endsWith(".tar") || name.endsWith(".tar.gz")
+				|| name.endsWith(".tgz")) {
+			return Format.TAR;
+		} else if (name.endsWith(".gz")) {
+			return Format.GZIP;
+		}
+		return null;
+	}
+	
+	/**
+	 * <b><em>isArchive</em></b>
+	 * 
+	 * @param file - the file.
+	 * @return true if the file is read as an archive.
+	 */
+	public static boolean isArchive(File file) {
+		return getFormat(file) != null;
+	}
+	
+	/**
+	 * <b><em>next</em></b>
+	 * 
+	 * <p>Reads the next e-mail, replacing the bytes of the last one.</p>
+	 * 
+	 * @return true if an e-mail was read, false if there are no more.
+	 * @throws IOException if the archive could not be read.
+	 */
+	public boolean next() throws IOException {
+		if (ended) {
+			return false;
+		}
+		boolean found;
+		switch (format) {
+		case MBOX: found = nextMessage(); break;
+		case ZIP: found = nextZipEntry(); break;
+		case TAR: found = nextTarEntry(); break;
+		default: found = nextGzip(); break;
+		}
+		if (found) {
+			this.count ++;
+		} else {
+			this.ended = true;
+			this.length = 0;
+		}
+		return found;
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	public Format getFormat() {
+		return format;
+	}
+	
+	/**
+	 * <b><em>getText</em></b>
+	 * 
+	 * @return the array with the bytes of the current e-mail, which is
+	 * reused by {@link #next()}.
+	 */
+	public byte[] getText() {
+		return text;
+	}
+	
+	public int getLength() {
+		return length;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * <b><em>getCount</em></b>
+	 * 
+	 * @return the number of e-mails read so far.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	/**
+	 * Reads the next e-mail of an mbox file.
+	 * 
+	 * @return true if an e-mail was read.
+	 * @throws IOException if the file could not be read.
+	 */
+	private boolean nextMessage() throws IOException {
+		this.length = 0;
+		this.name = String.valueOf(count + 1);
+		while (true) {
+			
+			// Add the next line to the e-mail
+			int start = length;
+			if (!readLine()) {
+				return length > 0;
+			}
+			
+			// A separator ends the e-mail, if there is one yet
+			if (startsWith(start, 0)) {
+				this.length = start;
+				if (length > 0) {
+					return true;
+				}
+				continue;
+			}
+			
+			// Take a '>' off a quoted separator
+			int quotes = 0;
+			while (start + quotes < length && text[start + quotes] == '>') {
+				quotes ++;
+			}
+			if (quotes > 0 && startsWith(start, quotes)) {
+				System.arraycopy(text, start + 1, text, start,
+						length - start - 1);
+				this.length --;
+			}
+		}
+	}
+	
+	/**
+	 * Reads a zip entry that is not a directory.
+	 * 
+	 * @return true if an e-mail was read.
+	 * @throws IOException if the archive could not be read.
+	 */
+	private boolean nextZipEntry() throws IOException {
+		ZipEntry entry;
+		while ((entry = zip.getNextEntry()) != null) {
+			if (!entry.isDirectory()) {
+				this.name = entry.getName();
+				readAll(Long.MAX_VALUE);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Reads a regular file of a tar archive.
+	 * 
+	 * @return true if an e-mail was read.
+	 * @throws IOException if the archive could not be read or is not a tar
+	 * archive.
+	 */
+	private boolean nextTarEntry() throws IOException {
+		byte[] header = new byte[TAR_BLOCK];
+		String longName = null;
+		while (true) {
+			
+			// Two blocks of zeros end the archive, but one is enough
+			if (!readFully(header)) {
+				return false;
+			}
+			if (isZero(header)) {
+				return false;
+			}
+			long size = tarNumber(header, 124, 12);
+			byte type = header[156];
+			long padding = (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK;
+			
+			// A long name for the next entry
+			if (type == 'L' || type == 'x') {
+				readAll(size);
+				skip(padding);
+				String value = new String(text, 0, length,
+						StandardCharsets.UTF_8);
+				longName = (type == 'L')? value.replace("\0", "")
+						: paxPath(value, longName);
+				continue;
+			}
+			
+			// A regular file
+			if (type == '0' || type == 0 || type == '7') {
+				this.name = (longName != null)? longName : tarName(header);
+				readAll(size);
+				if (length < size) {
+					throw new EOFException("Truncated tar entry: " + name);
+				}
+				skip(padding);
+				return true;
+			}
+			
+			// Anything else is skipped
+			skip(size + padding);
+			longName = null;
+		}
+	}
+	
+	/**
+	 * Reads the single e-mail of a compressed file.
+	 * 
+	 * @return true if it was not read yet.
+	 * @throws IOException if the file could not be read.
+	 */
+	private boolean nextGzip() throws IOException {
+		if (count > 0) {
+			return false;
+		}
+		String name = file.getName();
+		this.name = name.substring(0, name.length() - ".gz".length());
+		readAll(Long.MAX_VALUE);
+		return true;
+	}
+	
+	/**
+	 * Adds the next line to the buffer, with its line break.
+	 * 
+	 * @return false if the end of the file was reached before any of the
+	 * line was read.
+	 * @throws IOException if the file could not be read.
+	 */
+	private boolean readLine() throws IOException {
+		int start = length, b;
+		while ((b = in.read()) >= 0) {
+			if (length == text.length) {
+				this.text = Arrays.copyOf(text, text.length * 2);
+			}
+			text[length ++] = (byte) b;
+			if (b == '\n') {
+				break;
+			}
+		}
+		return length > start;
+	}
+	
+	/**
+	 * Checks if a line in the buffer is an mbox separator.
+	 * 
+	 * @param start - the index of the line.
+	 * @param skip - the number of characters to skip first.
+	 * @return true if the line starts with "From " after the skipped
+	 * characters.
+	 */
+	private boolean startsWith(int start, int skip) {
+		int at = start + skip;
+		if (length - at < FROM.length) {
+			return false;
+		}
+		for (int i = 0; i < FROM.length; i ++) {
+			if (text[at + i] != FROM[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads bytes into the buffer, replacing the current e-mail.
+	 * 
+	 * @param max - the number of bytes to read, or
+	 * {@link Long#MAX_VALUE} for the rest of the stream.
+	 * @throws IOException if the stream could not be read.
+	 */
+	private void readAll(long max) throws IOException {
+		if (max != Long.MAX_VALUE && max > Integer.MAX_VALUE - 8) {
+			throw new IOException("E-mail is too large: " + max);
+		}
+		if (max != Long.MAX_VALUE && max > text.length) {
+			this.text = new byte[(int) max];
+		}
+		int n = 0, read;
+		while (n < max && (read = in.read(text, n,
+				(int) Math.min(text.length - n, max - n))) >= 0) {
+			n += read;
+			if (n == text.length && n < max) {
+				this.text = Arrays.copyOf(text, text.length * 2);
+			}
+		}
+		this.length = n;
+	}
+	
+	/**
+	 * Reads a whole block.
+	 * 
+	 * @param block - the block to fill.
+	 * @return false if the stream ended before the block started.
+	 * @throws IOException if the stream ended in the middle of the block.
+	 */
+	private boolean readFully(byte[] block) throws IOException {
+		int n = 0, read;
+		while (n < block.length && (read = in.read(block, n,
+				block.length - n)) >= 0) {
+			n += read;
+		}
+		if (n > 0 && n < block.length) {
+			throw new EOFException("Truncated tar header in " + file);
+		}
+		return n == block.length;
+	}
+	
+	/**
+	 * Skips bytes of the stream.
+	 * 
+	 * @param n - the number of bytes to skip.
+	 * @throws IOException if the stream ended first.
+	 */
+	private void skip(long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException("Truncated tar entry in " + file);
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+	
+	/**
+	 * <b><em>isCompressed</em></b>
+	 * 
+	 * @param file - the file.
+	 * @return true if the file is compressed with gzip.
+	 */
+	private static boolean isCompressed(File file) {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		return name.endsWith(".gz") || name.endsWith(".tgz");
+	}
+	
+	/**
+	 * Checks if a block is all zeros.
+	 * 
+	 * @param block - the block.
+	 * @return true if every byte is 0.
+	 */
+	private static boolean isZero(byte[] block) {
+		for (byte b : block) {
+			if (b != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads a number from a tar header, which is octal text or, for large
+	 * numbers, binary with the high bit of the first byte set.
+	 * 
+	 * @param header - the header.
+	 * @param start - the index of the field.
+	 * @param len - the length of the field.
+	 * @return the number.
+	 * @throws IOException if the field is not a number.
+	 */
+	private static long tarNumber(byte[] header, int start, int len)
+			throws IOException {
+		long value = 0;
+		if ((header[start] & 0x80) != 0) {
+			for (int i = start + 1; i < start + len; i ++) {
+				value = (value << 8) | (header[i] & 0xFF);
+			}
+			return value;
+		}
+		for (int i = start; i < start + len; i ++) {
+			byte b = header[i];
+			if (b == 0 || b == ' ') {
+				if (value > 0 || i > start) {
+					break;
+				}
+				continue;
+			}
+			if (b < '0' || b > '7') {
+				throw new IOException("Not a tar archive");
+			}
+			value = value * 8 + (b - '0');
+		}
+		return value;
+	}
+	
+	/**
+	 * Gets the name of an entry from a tar header, with the prefix of a
+	 * POSIX header.
+	 * 
+	 * @param header - the header.
+	 * @return the name.
+	 */
+	private static String tarName(byte[] header) {
+		String name = tarString(header, 0, 100);
+		if (tarString(header, 257, 5).equals("ustar")) {
+			String prefix = tarString(header, 345, 155);
+			if (!prefix.isEmpty()) {
+				name = prefix + "/" + name;
+			}
+		}
+		return name;
+	}
+	
+	/**
+	 * Reads a text field of a tar header, which ends at the first zero.
+	 * 
+	 * @param header - the header.
+	 * @param start - the index of the field.
+	 * @param len - the length of the field.
+	 * @return the text.
+	 */
+	private static String tarString(byte[] header, int start, int len) {
+		int end = start;
+		while (end < start + len && header[end] != 0) {
+			end ++;
+		}
+		return new String(header, start, end - start, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the path from the records of a POSIX extended header, which look
+	 * like "30 path=some/long/name.eml\n".
+	 * 
+	 * @param records - the records.
+	 * @param name - the name to use if there is no path.
+	 * @return the path.
+	 */
+	private static String paxPath(String records, String name) {
+		for (String record : records.split("\n")) {
+			int at = record.indexOf(" path=");
+			if (at >= 0) {
+				return record.substring(at + " path=".length());
+			}
+		}
+		return name;
+	}
+}
@@ -0,0 +1,150 @@
+/* Name: MessageIterator
+ * Author: Devon McGrath
+ * Description: This class goes through the files found for a spam filter
+ * and gives the e-mails in each archive file in place of the archive.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>The {@code MessageIterator} class gives each file of another iterator
+ * as it is, except for archive files (see
+ * {@link MailArchive#isArchive(java.io.File)}), which are replaced with one
+ * entry for each e-mail in them. An archive is read in one pass as its
+ * e-mails are asked for, with the same actual class as the archive, and
+ * nothing is extracted to disk.</p>
+ * 
+ * <p>The bytes of an e-mail are only valid until the next entry is asked
+ * for (see {@link CorpusScanner.Entry#getText()}). An archive that could
+ * not be read is recorded as a failure in the metrics, keeping the e-mails
+ * that were read before the error. An iterator is used by one thread and
+ * must be closed, which also closes a {@link CorpusScanner} it reads
+ * from.</p>
+ */
+public class MessageIterator implements Iterator<CorpusScanner.Entry>,
+		AutoCloseable {
+	
+	/** The files. */
+	private final Iterator<CorpusScanner.Entry> files;
+	
+	/** The metrics of the spam filter, or null. */
+	private final FilterMetrics metrics;
+	
+	/** The archive being read, or null. */
+	private MailArchive archive;
+	
+	/** The entry of the archive being read. */
+	private CorpusScanner.Entry archiveEntry;
+	
+	/** The next entry, or null if it was not found yet. */
+	private CorpusScanner.Entry next;
+	
+	/**
+	 * Constructs an iterator of the files and e-mails of other files.
+	 * 
+	 * @param files - the files.
+	 * @param metrics - the metrics to record archives that could not be
+	 * read in, which may be null.
+	 */
+	public MessageIterator(Iterator<CorpusScanner.Entry> files,
+			FilterMetrics metrics) {
+		this.files = files;
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		while (next == null) {
+			
+			// The next e-mail of the archive
+			if (archive != null) {
+				try {
+					if (archive.next()) {
+						this.next = new CorpusScanner.Entry(
+								archiveEntry.getFile(),
+								archiveEntry.getActualClass(),
+								archive.getName(), archive.getText(),
+								archive.getLength());
+						break;
+					}
+				} catch (IOException e) {
+					failed(e);
+				}
+				closeArchive();
+				continue;
+			}
+			
+			// The next file, which may be an archive
+			if (!files.hasNext()) {
+				return false;
+			}
+			CorpusScanner.Entry entry = files.next();
+			if (!MailArchive.isArchive(entry.getFile())) {
+				this.next = entry;
+				break;
+			}
+			try {
+				this.archiveEntry = entry;
+				this.archive = new MailArchive(entry.getFile());
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public CorpusScanner.Entry next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		CorpusScanner.Entry entry = next;
+		this.next = null;
+		return entry;
+	}
+	
+	/**
+	 * <b><em>close</em></b>
+	 * 
+	 * <p>Closes the archive being read and the scanner of the files, if
+	 * there is one.</p>
+	 */
+	@Override
+	public void close() {
+		closeArchive();
+		if (files instanceof CorpusScanner) {
+			((CorpusScanner) files).close();
+		}
+	}
+	
+	/**
+	 * Records an archive that could not be read.
+	 * 
+	 * @param e - the error.
+	 */
+	private void failed(IOException e) {
+		if (metrics != null) {
+			metrics.failed(archiveEntry.getFile(), e);
+		}
+	}
+	
+	/** Closes the archive being read, if there is one. */
+	private void closeArchive() {
+		if (archive == null) {
+			return;
+		}
+		try {
+			archive.close();
+		} catch (IOException e) {
+			// The e-mails were already read
+		}
+		this.archive = null;
+	}
+}
@@ -0,0 +1,446 @@
+/* Name: OffHeapModel
+ * Author: Devon McGrath
+ * Description: This class is a scoring model that keeps its words, counts
+ * and weights in native memory so that they do not add to the Java heap.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The {@code OffHeapModel} class is a {@link ScoringModel} that keeps
+ * everything in one direct {@link ByteBuffer}. The heap only has this object
+ * and the buffer, so heap use does not grow with the vocabulary and the
+ * garbage collector never has to scan the words. Words are looked up by
+ * comparing their bytes to the buffer, so no strings are created, and the
+ * ids and scores are exactly the same as those of the heap model compiled
+ * from the same vocabulary.</p>
+ * 
+ * <p>The buffer starts with the vocabulary in the format of
+ * {@link Vocabulary#write(DataOutputStream)}, so a model is loaded from a
+ * saved model (see {@link SpamFilter#setOffHeap(boolean)}) and saved again
+ * with a single copy. It is followed by the hash table, which has the id of
+ * a word or -1 in each slot, and the weight of each word:</p>
+ * 
+ * <pre>
+ * size, length, hashes, offsets, ham file counts, ham totals,
+ * spam file counts, spam totals, characters, table, weights
+ * </pre>
+ * 
+ * <p>A hashed vocabulary has no hashes, offsets, characters or table. The
+ * whole buffer must fit in 2 GB, and it counts towards the limit set with
+ * {@code -XX:MaxDirectMemorySize}. The native memory is freed when the model
+ * is garbage collected.</p>
+ */
+public class OffHeapModel extends ScoringModel implements WordIndex {
+	
+	/** The value of an empty slot in the hash table. */
+	private static final int EMPTY = -1;
+	
+	/** The words, counts, hash table and weights. */
+	private final ByteBuffer data;
+	
+	/** The number of words. */
+	private final int size;
+	
+	/** The number of buckets the words are hashed into, or 0 if the words
+	 * are kept. */
+	private final int buckets;
+	
+	/** The index in {@link #data} where the hash of each word starts. */
+	private final int hashesAt;
+	
+	/** The index in {@link #data} where the offset of each word starts. */
+	private final int offsetsAt;
+	
+	/** The index in {@link #data} where the ham file counts start. */
+	private final int hamFileCountAt;
+	
+	/** The index in {@link #data} where the spam file counts start. */
+	private final int spamFileCountAt;
+	
+	/** The index in {@link #data} where the characters start. */
+	private final int charsAt;
+	
+	/** The number of bytes of the vocabulary at the start of
+	 * {@link #data}. */
+	private final int vocabularyBytes;
+	
+	/** The index in {@link #data} where the hash table starts. */
+	private final int tableAt;
+	
+	/** The number of slots in the hash table minus one. */
+	private final int mask;
+	
+	/** The index in {@link #data} where the weights start. */
+	private final int weightsAt;
+	
+	/**
+	 * Constructs an off-heap model from a buffer that starts with a
+	 * vocabulary, and fills in the hash table and weights.
+	 * 
+	 * @param data - the buffer from {@link #allocate(long, int, int)}.
+	 * @param buckets - the number of buckets of a hashed vocabulary, or 0.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 */
+	private OffHeapModel(ByteBuffer data, int buckets, int spamFiles,
+			int hamFiles) {
+		super(spamFiles, hamFiles);
+		this.data = data;
+		this.buckets = buckets;
+		this.size = data.getInt(0);
+		this.hashesAt = 8;
+		this.offsetsAt = hashesAt + 4 * size;
+		this.hamFileCountAt = (buckets > 0)? 8 : offsetsAt + 4 * (size + 1);
+		this.spamFileCountAt = hamFileCountAt + 8 * size;
+		this.charsAt = spamFileCountAt + 8 * size;
+		this.vocabularyBytes = charsAt + data.getInt(4);
+		this.tableAt = (int) align(vocabularyBytes);
+		int slots = slots(size, buckets);
+		this.mask = slots - 1;
+		this.weightsAt = tableAt + 4 * slots;
+		
+		// Build the hash table
+		for (int slot = 0; slot < slots; slot ++) {
+			data.putInt(tableAt + 4 * slot, EMPTY);
+		}
+		for (int id = 0; slots > 0 && id < size; id ++) {
+			int slot = data.getInt(hashesAt + 4 * id) & mask;
+			while (data.getInt(tableAt + 4 * slot) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			data.putInt(tableAt + 4 * slot, id);
+		}
+		
+		// Compute the weights the same way as the heap model
+		for (int id = 0; id < size; id ++) {
+			int spam = getSpamFileCount(id);
+			int ham = getHamFileCount(id);
+			data.putDouble(weightsAt + 8 * id, (spam == 0 && ham == 0)? 0
+					: weight(spam, ham, spamFiles, hamFiles));
+		}
+	}
+	
+	/**
+	 * <b><em>compile</em></b>
+	 * 
+	 * <p>Compiles the counts of a trained vocabulary into an off-heap model.
+	 * The vocabulary is copied into the buffer in bulk and can be thrown
+	 * away afterwards.</p>
+	 * 
+	 * @param vocabulary - the trained vocabulary, which is not changed.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the off-heap model.
+	 * @throws IllegalArgumentException if the model would not fit in a
+	 * buffer.
+	 */
+	public static OffHeapModel compile(Vocabulary vocabulary, int spamFiles,
+			int hamFiles) {
+		ByteBuffer data = allocate(vocabulary.writtenSize(),
+				vocabulary.size(), vocabulary.getBuckets());
+		vocabulary.write(data);
+		return new OffHeapModel(data, vocabulary.getBuckets(), spamFiles,
+				hamFiles);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads a vocabulary written by
+	 * {@link Vocabulary#write(DataOutputStream)} straight into an off-heap
+	 * model, without creating the vocabulary on the heap.</p>
+	 * 
+	 * @param in - the buffer to read from, which must be big-endian.
+	 * @param buckets - the number of buckets the vocabulary must have, or 0
+	 * if the words are kept.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the off-heap model.
+	 * @throws IOException if the data is not a valid vocabulary or the model
+	 * would not fit in a buffer.
+	 */
+	static OffHeapModel read(ByteBuffer in, int buckets, int spamFiles,
+			int hamFiles) throws IOException {
+		if (in.remaining() < 8) {
+			throw new IOException("Unexpected end of vocabulary");
+		}
+		int start = in.position();
+		int size = in.getInt(start), length = in.getInt(start + 4);
+		long bytes = (buckets > 0)? 8 + 16L * size
+				: 8 + 4L * (6L * size + 1) + length;
+		if (size < 0 || length < 0 || bytes > in.remaining()
+				|| (buckets > 0 && (size != buckets || length != 0
+				|| Vocabulary.roundBuckets(size) != size))) {
+			throw new IOException("Invalid vocabulary size");
+		}
+		
+		// Check the word offsets before they are used
+		if (buckets == 0) {
+			int offsets = start + 8 + 4 * size, last = 0;
+			for (int i = 0; i <= size; i ++) {
+				int offset = in.getInt(offsets + 4 * i);
+				if (offset < last || (i == 0 && offset != 0)) {
+					throw new IOException("Invalid word offsets");
+				}
+				last = offset;
+			}
+			if (last != length) {
+				throw new IOException("Invalid word offsets");
+			}
+		}
+		
+		// Copy the vocabulary in bulk
+		ByteBuffer data;
+		try {
+			data = allocate(bytes, size, buckets);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		ByteBuffer vocabulary = in.duplicate();
+		vocabulary.limit(start + (int) bytes);
+		data.put(vocabulary);
+		in.position(start + (int) bytes);
+		return new OffHeapModel(data, buckets, spamFiles, hamFiles);
+	}
+	
+	/**
+	 * <b><em>write</em></b>
+	 * 
+	 * <p>Writes the words and counts to a stream in the same format as
+	 * {@link Vocabulary#write(DataOutputStream)}.</p>
+	 * 
+	 * @param out - the stream to write to.
+	 * @throws IOException if the stream could not be written to.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		ByteBuffer in = data.duplicate();
+		in.position(0);
+		in.limit(vocabularyBytes);
+		byte[] chunk = new byte[Math.min(65536, vocabularyBytes)];
+		while (in.hasRemaining()) {
+			int n = Math.min(chunk.length, in.remaining());
+			in.get(chunk, 0, n);
+			out.write(chunk, 0, n);
+		}
+	}
+	
+	/**
+	 * <b><em>toVocabulary</em></b>
+	 * 
+	 * <p>Copies the words and counts back onto the heap, so that they can be
+	 * trained further.</p>
+	 * 
+	 * @return a new vocabulary with the same ids and counts.
+	 */
+	public Vocabulary toVocabulary() {
+		ByteBuffer in = data.duplicate();
+		in.position(0);
+		in.limit(vocabularyBytes);
+		try {
+			return (buckets > 0)? Vocabulary.readHashed(in, buckets)
+					: Vocabulary.read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public int id(CharSequence word) {
+		if (word == null) {
+			return -1;
+		}
+		int hash = Vocabulary.hash(word);
+		if (buckets > 0) {
+			return hash & (buckets - 1);
+		}
+		int len = word.length();
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = data.getInt(tableAt + 4 * slot);
+			if (id == EMPTY) {
+				return -1;
+			}
+			if (data.getInt(hashesAt + 4 * id) != hash) {
+				continue;
+			}
+			int start = charsAt + data.getInt(offsetsAt + 4 * id);
+			int end = charsAt + data.getInt(offsetsAt + 4 * id + 4);
+			if (end - start != len) {
+				continue;
+			}
+			int i = 0;
+			while (i < len && data.get(start + i) == word.charAt(i)) {
+				i ++;
+			}
+			if (i == len) {
+				return id;
+			}
+		}
+	}
+	
+	@Override
+	public int id(byte[] text, int from, int len) {
+		int hash = Vocabulary.hash(text, from, len);
+		if (buckets > 0) {
+			return hash & (buckets - 1);
+		}
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = data.getInt(tableAt + 4 * slot);
+			if (id == EMPTY) {
+				return -1;
+			}
+			if (data.getInt(hashesAt + 4 * id) != hash) {
+				continue;
+			}
+			int start = charsAt + data.getInt(offsetsAt + 4 * id);
+			int end = charsAt + data.getInt(offsetsAt + 4 * id + 4);
+			if (end - start != len) {
+				continue;
+			}
+			int i = 0;
+			while (i < len && data.get(start + i) == text[from + i]) {
+				i ++;
+			}
+			if (i == len) {
+				return id;
+			}
+		}
+	}
+	
+	@Override
+	public String word(int id) {
+		checkId(id);
+		if (buckets > 0) {
+			return "#" + id;
+		}
+		int start = charsAt + data.getInt(offsetsAt + 4 * id);
+		char[] text = new char[charsAt + data.getInt(offsetsAt + 4 * id + 4)
+				- start];
+		for (int i = 0; i < text.length; i ++) {
+			text[i] = (char) data.get(start + i);
+		}
+		return new String(text);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int getBuckets() {
+		return buckets;
+	}
+	
+	@Override
+	public int getHamFileCount(int id) {
+		checkId(id);
+		return data.getInt(hamFileCountAt + 4 * id);
+	}
+	
+	@Override
+	public int getSpamFileCount(int id) {
+		checkId(id);
+		return data.getInt(spamFileCountAt + 4 * id);
+	}
+	
+	@Override
+	public double weight(int id) {
+		return data.getDouble(weightsAt + 8 * id);
+	}
+	
+	@Override
+	public WordIndex getIndex() {
+		return this;
+	}
+	
+	/**
+	 * <b><em>memoryFootprint</em></b>
+	 * 
+	 * @return the number of bytes of native memory used by the model.
+	 */
+	@Override
+	public long memoryFootprint() {
+		return data.capacity();
+	}
+	
+	@Override
+	public boolean isOffHeap() {
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		return "OffHeapModel[size=" + size + ", bytes=" + data.capacity()
+				+ ((buckets > 0)? ", hashed" : "") + "]";
+	}
+	
+	/**
+	 * Allocates the buffer of a model.
+	 * 
+	 * @param vocabularyBytes - the number of bytes of the vocabulary.
+	 * @param size - the number of words.
+	 * @param buckets - the number of buckets of a hashed vocabulary, or 0.
+	 * @return the buffer, which is big-endian.
+	 * @throws IllegalArgumentException if the model would not fit.
+	 */
+	private static ByteBuffer allocate(long vocabularyBytes, int size,
+			int buckets) {
+		long bytes = align(vocabularyBytes) + 4L * slots(size, buckets)
+				+ 8L * size;
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The model is too large to "
+					+ "keep off the heap: " + bytes + " bytes");
+		}
+		return ByteBuffer.allocateDirect((int) bytes);
+	}
+	
+	/**
+	 * Gets the number of slots in the hash table, which is a power of two
+	 * that is at least twice the number of words.
+	 * 
+	 * @param size - the number of words.
+	 * @param buckets - the number of buckets of a hashed vocabulary, which
+	 * has no table, or 0.
+	 * @return the number of slots.
+	 */
+	private static int slots(int size, int buckets) {
+		if (buckets > 0) {
+			return 0;
+		}
+		int slots = 2;
+		while (slots < 2L * size) {
+			slots *= 2;
+		}
+		return slots;
+	}
+	
+	/**
+	 * Rounds an index up so that the doubles after it are aligned.
+	 * 
+	 * @param index - the index.
+	 * @return the next multiple of 8.
+	 */
+	private static long align(long index) {
+		return (index + 7) & ~7L;
+	}
+	
+	/**
+	 * Checks that an id belongs to a word in the model.
+	 * 
+	 * @param id - the id to check.
+	 */
+	private void checkId(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Invalid word id: " + id);
+		}
+	}
+}
@@ -5,6 +5,7 @@
  * 
  * Version History:
  * 1.0 - 01/29/2017 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added the headless mode - Devon McGrath
  */
 
 package program;
@@ -13,8 +14,14 @@ import javafx.application.Application;
 import javafx.stage.Stage;
 
 public class ProgramManager extends Application {
-
+	
 	public static void main(String[] args) {
+		
+		// Run without a display (see CommandLine)
+		if (CommandLine.isHeadless(args)) {
+			System.exit(CommandLine.run(args));
+		}
+		
 		Application.launch(args);
 	}
 	
@@ -0,0 +1,57 @@
+/* Name: ProgressListener
+ * Author: Devon McGrath
+ * Description: This interface is used to follow the progress of training
+ * and testing a spam filter, and to cancel it.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - The total may not be known - Devon McGrath
+ */
+
+package program;
+
+import java.util.List;
+
+/**
+ * <p>The {@code ProgressListener} interface receives updates from
+ * {@link SpamFilter#train(ProgressListener)} and
+ * {@link SpamFilter#test(ProgressListener)} while they run. The methods may
+ * be called from any of the threads used by the filter, so implementations
+ * must be thread-safe. All of the methods do nothing by default.</p>
+ */
+public interface ProgressListener {
+	
+	/**
+	 * <b><em>progress</em></b>
+	 * 
+	 * <p>Called each time a file has been read.</p>
+	 * 
+	 * @param done - the number of files read so far.
+	 * @param total - the total number of files to read, or -1 if it is not
+	 * known.
+	 */
+	default void progress(int done, int total) {}
+	
+	/**
+	 * <b><em>tested</em></b>
+	 * 
+	 * <p>Called with each batch of classified test files. The batches are
+	 * given in the same order as the files are listed by
+	 * {@link SpamFilter#test()}, one at a time.</p>
+	 * 
+	 * @param files - the test files, which should not be modified.
+	 */
+	default void tested(List<TestFile> files) {}
+	
+	/**
+	 * <b><em>isCancelled</em></b>
+	 * 
+	 * <p>Checked before each file is read. Once this returns true, the filter
+	 * stops as soon as it can and the rest of the files are not read.</p>
+	 * 
+	 * @return true if training or testing should stop.
+	 */
+	default boolean isCancelled() {
+		return false;
+	}
+}
@@ -0,0 +1,148 @@
+/* Name: PruningReport
+ * Author: Devon McGrath
+ * Description: This class compares a pruned model to the model it was
+ * pruned from, in memory and in accuracy on the test files.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code PruningReport} class is the result of
+ * {@link SpamFilter#prune(VocabularyPruner)}. It has the size and memory of
+ * the model before and after pruning, and how both models classify the test
+ * files.</p>
+ * 
+ * <p>A report is filled in by one thread and is not thread-safe.</p>
+ */
+public class PruningReport {
+	
+	/** The pruner that was used. */
+	private final VocabularyPruner pruner;
+	
+	/** The number of words before pruning. */
+	private final int wordsBefore;
+	
+	/** The number of words after pruning. */
+	private final int wordsAfter;
+	
+	/** The memory used by the model before pruning. */
+	private final long bytesBefore;
+	
+	/** The memory used by the model after pruning. */
+	private final long bytesAfter;
+	
+	/** The number of test files classified. */
+	private int files;
+	
+	/** The number of test files that both models put in the same class. */
+	private int agreements;
+	
+	/** The number of test files classified correctly before pruning. */
+	private int correctBefore;
+	
+	/** The number of test files classified correctly after pruning. */
+	private int correctAfter;
+	
+	/**
+	 * Constructs a report with no test files.
+	 * 
+	 * @param pruner - the pruner that was used.
+	 * @param before - the model before pruning.
+	 * @param after - the model after pruning.
+	 */
+	public PruningReport(VocabularyPruner pruner, ScoringModel before,
+			ScoringModel after) {
+		this.pruner = pruner;
+		this.wordsBefore = before.getIndex().size();
+		this.wordsAfter = after.getIndex().size();
+		this.bytesBefore = before.memoryFootprint();
+		this.bytesAfter = after.memoryFootprint();
+	}
+	
+	/**
+	 * <b><em>scored</em></b>
+	 * 
+	 * <p>Counts a test file that was scored by both models.</p>
+	 * 
+	 * @param isSpam - the actual class of the file.
+	 * @param before - the spam probability before pruning.
+	 * @param after - the spam probability after pruning.
+	 */
+	void scored(boolean isSpam, double before, double after) {
+		boolean spamBefore = before > SpamFilter.SPAM_THRESHOLD;
+		boolean spamAfter = after > SpamFilter.SPAM_THRESHOLD;
+		this.files ++;
+		this.agreements += (spamBefore == spamAfter)? 1 : 0;
+		this.correctBefore += (spamBefore == isSpam)? 1 : 0;
+		this.correctAfter += (spamAfter == isSpam)? 1 : 0;
+	}
+	
+	public VocabularyPruner getPruner() {
+		return pruner;
+	}
+	
+	public int getWordsBefore() {
+		return wordsBefore;
+	}
+	
+	public int getWordsAfter() {
+		return wordsAfter;
+	}
+	
+	public long getBytesBefore() {
+		return bytesBefore;
+	}
+	
+	public long getBytesAfter() {
+		return bytesAfter;
+	}
+	
+	public int getFiles() {
+		return files;
+	}
+	
+	/**
+	 * <b><em>getAgreement</em></b>
+	 * 
+	 * @return the fraction of the test files that both models put in the
+	 * same class, or 1 if there were none.
+	 */
+	public double getAgreement() {
+		return (files == 0)? 1 : (double) agreements / files;
+	}
+	
+	/**
+	 * <b><em>getAccuracyBefore</em></b>
+	 * 
+	 * @return the fraction of the test files classified correctly before
+	 * pruning.
+	 */
+	public double getAccuracyBefore() {
+		return (files == 0)? 0 : (double) correctBefore / files;
+	}
+	
+	/**
+	 * <b><em>getAccuracyAfter</em></b>
+	 * 
+	 * @return the fraction of the test files classified correctly after
+	 * pruning.
+	 */
+	public double getAccuracyAfter() {
+		return (files == 0)? 0 : (double) correctAfter / files;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Pruning: %s%n"
+				+ "Words: %d -> %d (%.1f%%)%n"
+				+ "Memory: %d -> %d bytes (%d saved)%n"
+				+ "Accuracy: %.4f -> %.4f on %d files, agreement: %.2f%%",
+				pruner, wordsBefore, wordsAfter, (wordsBefore == 0)? 100
+				: wordsAfter * 100.0 / wordsBefore, bytesBefore, bytesAfter,
+				bytesBefore - bytesAfter, getAccuracyBefore(),
+				getAccuracyAfter(), files, getAgreement() * 100);
+	}
+}
@@ -0,0 +1,389 @@
+/* Name: ReadPipeline
+ * Author: Devon McGrath
+ * Description: This class reads files on some threads and hands their bytes
+ * to other threads, so that waiting on the disk and using the processors
+ * happen at the same time.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added documents that were already read - Devon McGrath
+ * 1.2 - 10/16/2026 - Pass on any error from reading a file - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>The {@code ReadPipeline} class runs the files given to it through
+ * three stages:</p>
+ * 
+ * <ol>
+ * <li><b>readers</b> - each file is read with a {@link FileChannel} into a
+ * buffer taken from a pool of reused buffers.</li>
+ * <li><b>queue</b> - the buffers that were read wait in a bounded queue for
+ * a worker.</li>
+ * <li><b>workers</b> - each buffer is given to the {@link Handler}, which
+ * finds the words and counts or scores them, and then goes back to the
+ * pool.</li>
+ * </ol>
+ * 
+ * <p>There are {@value #BUFFERS_PER_WORKER} buffers for each worker and one
+ * for each reader. When the workers fall behind, the readers wait for a
+ * buffer, and when the readers fall behind, {@link #submit(Object, File)}
+ * waits for room, so memory use stays the same no matter how many files
+ * there are. With more than one reader, a slow disk or network file system
+ * has more than one read going at a time.</p>
+ * 
+ * <p>A document that was already read, such as an e-mail from a
+ * {@link MailArchive}, can skip the readers with
+ * {@link #submit(Object, File, byte[], int)}, which copies it into a
+ * buffer from the pool.</p>
+ * 
+ * <p>The files are handled in no particular order. A pipeline is fed by one
+ * thread and must be closed, which stops its threads.</p>
+ * 
+ * @param <T> the type of the tag given with each file.
+ */
+public class ReadPipeline<T> implements AutoCloseable {
+	
+	/** The number of buffers in the pool for each worker. */
+	private static final int BUFFERS_PER_WORKER = 4;
+	
+	/** The number of bytes each buffer has room for when created. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** The largest buffer that goes back in the pool. A buffer that grew
+	 * past this for a large file is replaced with a new one. */
+	private static final int MAX_POOLED_SIZE = 1024 * 1024;
+	
+	/** The {@code Handler} interface processes the files read by a
+	 * {@link ReadPipeline} on the worker threads. */
+	public interface Handler<T> {
+		
+		/**
+		 * Processes the bytes of a file. The bytes are only valid until this
+		 * method returns.
+		 * 
+		 * @param worker - the number of the worker thread, from 0 to the
+		 * number of workers - 1.
+		 * @param tag - the tag given with the file.
+		 * @param file - the file.
+		 * @param text - the array with the bytes of the file.
+		 * @param length - the number of bytes.
+		 */
+		void read(int worker, T tag, File file, byte[] text, int length);
+		
+		/**
+		 * Handles a file that could not be read or processed.
+		 * 
+		 * @param worker - the number of the worker thread.
+		 * @param tag - the tag given with the file.
+		 * @param file - the file.
+		 * @param e - the error.
+		 */
+		void failed(int worker, T tag, File file, Exception e);
+	}
+	
+	/** The handler of the files. */
+	private final Handler<T> handler;
+	
+	/** The number of bytes read from each file, or 0 for all. */
+	private final int maxBytes;
+	
+	/** The buffers that are not in use. */
+	private final BlockingQueue<byte[]> buffers;
+	
+	/** The files waiting to be read. */
+	private final BlockingQueue<Job<T>> requests;
+	
+	/** The files that were read and are waiting for a worker. */
+	private final BlockingQueue<Job<T>> loaded;
+	
+	/** The reader threads. */
+	private final Thread[] readers;
+	
+	/** The worker threads. */
+	private final Thread[] workers;
+	
+	/** The number of files submitted and not handled yet. */
+	private int pending;
+	
+	/** Whether the pipeline was closed. */
+	private volatile boolean closed;
+	
+	/**
+	 * Constructs a pipeline and starts its threads.
+	 * 
+	 * @param readers - the number of threads that read the files.
+	 * @param workers - the number of threads that handle the files.
+	 * @param maxBytes - the number of bytes to read from each file, or 0 for
+	 * all of them (see {@link Tokenizer#read(File, int)}).
+	 * @param handler - the handler of the files.
+	 */
+	public ReadPipeline(int readers, int workers, int maxBytes,
+			Handler<T> handler) {
+		readers = Math.max(1, readers);
+		workers = Math.max(1, workers);
+		this.handler = handler;
+		this.maxBytes = Math.max(0, maxBytes);
+		int size = workers * BUFFERS_PER_WORKER + readers;
+		this.buffers = new ArrayBlockingQueue<>(size);
+		for (int i = 0; i < size; i ++) {
+			buffers.add(new byte[BUFFER_SIZE]);
+		}
+		this.requests = new ArrayBlockingQueue<>(size);
+		this.loaded = new ArrayBlockingQueue<>(size);
+		
+		// Start the threads
+		this.readers = new Thread[readers];
+		for (int i = 0; i < readers; i ++) {
+			this.readers[i] = start(this::read, "ReadPipeline-reader-" + i);
+		}
+		this.workers = new Thread[workers];
+		for (int i = 0; i < workers; i ++) {
+			final int worker = i;
+			this.workers[i] = start(() -> work(worker),
+					"ReadPipeline-worker-" + i);
+		}
+	}
+	
+	/**
+	 * <b><em>submit</em></b>
+	 * 
+	 * <p>Adds a file to be read and handled, waiting if the readers are
+	 * behind.</p>
+	 * 
+	 * @param tag - the tag to give to the handler with the file.
+	 * @param file - the file.
+	 * @throws InterruptedException if the thread was interrupted while
+	 * waiting.
+	 * @throws IllegalStateException if the pipeline was closed.
+	 */
+	public void submit(T tag, File file) throws InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("The pipeline is closed");
+		}
+		synchronized (this) {
+			this.pending ++;
+		}
+		requests.put(new Job<>(tag, file));
+	}
+	
+	/**
+	 * <b><em>submit</em></b>
+	 * 
+	 * <p>Adds a document that was already read to be handled, waiting for a
+	 * buffer if the workers are behind. The bytes are copied, so the array
+	 * can be reused as soon as this returns.</p>
+	 * 
+	 * @param tag - the tag to give to the handler with the document.
+	 * @param file - the file the document was read from.
+	 * @param text - the array with the bytes of the document.
+	 * @param length - the number of bytes.
+	 * @throws InterruptedException if the thread was interrupted while
+	 * waiting.
+	 * @throws IllegalStateException if the pipeline was closed.
+	 */
+	public void submit(T tag, File file, byte[] text, int length)
+			throws InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("The pipeline is closed");
+		}
+		synchronized (this) {
+			this.pending ++;
+		}
+		Job<T> job = new Job<>(tag, file);
+		job.text = buffers.take();
+		if (length > job.text.length) {
+			job.text = new byte[length];
+		}
+		System.arraycopy(text, 0, job.text, 0, length);
+		job.length = Tokenizer.prefix(job.text, 0, length, maxBytes);
+		loaded.put(job);
+	}
+	
+	/**
+	 * <b><em>await</em></b>
+	 * 
+	 * <p>Waits until every file that was submitted has been handled.</p>
+	 * 
+	 * @throws InterruptedException if the thread was interrupted while
+	 * waiting.
+	 */
+	public synchronized void await() throws InterruptedException {
+		while (pending > 0 && !closed) {
+			wait();
+		}
+	}
+	
+	/**
+	 * <b><em>close</em></b>
+	 * 
+	 * <p>Stops the threads once they are done with the file they are on. The
+	 * files that were not handled yet are dropped.</p>
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		for (Thread thread : readers) {
+			thread.interrupt();
+		}
+		for (Thread thread : workers) {
+			thread.interrupt();
+		}
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Starts a daemon thread.
+	 * 
+	 * @param task - what the thread does.
+	 * @param name - the name of the thread.
+	 * @return the thread.
+	 */
+	private static Thread start(Runnable task, String name) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	/**
+	 * Reads the files that are submitted until the pipeline is closed. Any
+	 * error from reading a file, such as a path that is not valid, goes to
+	 * the workers with the job, so that its buffer is put back and it is
+	 * counted as done.
+	 */
+	private void read() {
+		try {
+			while (!closed) {
+				Job<T> job = requests.take();
+				try {
+					job.text = buffers.take();
+					job.length = read(job);
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					job.error = e;
+				}
+				loaded.put(job);
+			}
+		} catch (InterruptedException e) {
+			// The pipeline was closed
+		}
+	}
+	
+	/**
+	 * Reads the start of a file into the buffer of a job, growing the
+	 * buffer if it is too small.
+	 * 
+	 * @param job - the job with the file and buffer.
+	 * @return the number of bytes kept (see
+	 * {@link Tokenizer#prefix(byte[], int, int, int)}).
+	 * @throws IOException if the file could not be read.
+	 */
+	private int read(Job<T> job) throws IOException {
+		try (FileChannel channel = FileChannel.open(job.file.toPath(),
+				StandardOpenOption.READ)) {
+			
+			// Read one byte more than the limit to see if a word was cut off
+			long limit = (maxBytes > 0)? maxBytes + 1L : Long.MAX_VALUE;
+			long size = Math.min(channel.size(), limit);
+			if (size >= job.text.length && size < Integer.MAX_VALUE - 8) {
+				job.text = new byte[(int) size + 1];
+			}
+			
+			// Keep reading in case the file is larger than reported
+			int n = 0, read;
+			while (n < limit && (read = channel.read(ByteBuffer.wrap(
+					job.text, n, (int) Math.min(job.text.length - n,
+					limit - n)))) >= 0) {
+				n += read;
+				if (n == job.text.length) {
+					job.text = Arrays.copyOf(job.text, job.text.length * 2);
+				}
+			}
+			return Tokenizer.prefix(job.text, 0, n, maxBytes);
+		}
+	}
+	
+	/**
+	 * Handles the files that were read until the pipeline is closed.
+	 * 
+	 * @param worker - the number of the worker.
+	 */
+	private void work(int worker) {
+		try {
+			while (!closed) {
+				Job<T> job = loaded.take();
+				try {
+					if (job.error != null) {
+						handler.failed(worker, job.tag, job.file, job.error);
+					} else {
+						handler.read(worker, job.tag, job.file, job.text,
+								job.length);
+					}
+				} catch (RuntimeException e) {
+					handler.failed(worker, job.tag, job.file, e);
+				} finally {
+					release(job.text);
+					synchronized (this) {
+						if (-- pending == 0) {
+							notifyAll();
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// The pipeline was closed
+		}
+	}
+	
+	/**
+	 * Puts a buffer back in the pool.
+	 * 
+	 * @param text - the buffer, which may be null if the file was never
+	 * read.
+	 */
+	private void release(byte[] text) {
+		if (text == null) {
+			return;
+		}
+		buffers.offer((text.length > MAX_POOLED_SIZE)? new byte[BUFFER_SIZE]
+				: text);
+	}
+	
+	/** The {@code Job} class is a file going through the pipeline. */
+	private static class Job<T> {
+		
+		/** The tag given with the file. */
+		private final T tag;
+		
+		/** The file. */
+		private final File file;
+		
+		/** The buffer with the bytes of the file, or null. */
+		private byte[] text;
+		
+		/** The number of bytes in the buffer. */
+		private int length;
+		
+		/** The error that kept the file from being read, or null. */
+		private Exception error;
+		
+		public Job(T tag, File file) {
+			this.tag = tag;
+			this.file = file;
+		}
+	}
+}
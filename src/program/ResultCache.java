@@ -0,0 +1,273 @@
+/* Name: ResultCache
+ * Author: Devon McGrath
+ * Description: This class remembers the spam probability of e-mails that
+ * have already been scored, so that copies of them are not scored again.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Results depend on the scoring budget - Devon McGrath
+ */
+
+package program;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The {@code ResultCache} class maps the content hash of an e-mail (see
+ * {@link #hash(byte[], int, int)}) to its spam probability. Spam is often
+ * sent many times with the same body, and a copy that is found in the cache
+ * does not have to be tokenized or scored.</p>
+ * 
+ * <p>The cache holds at most a fixed number of results. When it is full,
+ * the least recently used result is removed. To keep threads from waiting
+ * on each other, the cache is split into {@value #STRIPES} stripes by hash,
+ * each with its own lock and its own share of the size, so the order of use
+ * is only kept within a stripe.</p>
+ * 
+ * <p>Each result is stored with the {@link ScoringModel} and
+ * {@link ScoringBudget} that computed it and is only returned for the same
+ * model and budget, so a result from before the filter was retrained or the
+ * budget was changed is never used. {@link SpamFilter} also clears the cache
+ * whenever it compiles a new model.</p>
+ */
+public class ResultCache {
+	
+	/** The number of stripes, which is a power of two. */
+	private static final int STRIPES = 16;
+	
+	/** The results in each stripe, least recently used first. */
+	private final Stripe[] stripes;
+	
+	/** The greatest number of results the cache holds. */
+	private final int maxSize;
+	
+	/** The number of results found in the cache. */
+	private final LongAdder hits;
+	
+	/** The number of results not found in the cache. */
+	private final LongAdder misses;
+	
+	/** The number of results removed to make room. */
+	private final LongAdder evictions;
+	
+	/**
+	 * Constructs an empty cache.
+	 * 
+	 * @param maxSize - the greatest number of results the cache holds.
+	 */
+	public ResultCache(int maxSize) {
+		this.maxSize = Math.max(STRIPES, maxSize);
+		this.stripes = new Stripe[STRIPES];
+		for (int i = 0; i < STRIPES; i ++) {
+			stripes[i] = new Stripe((this.maxSize + STRIPES - 1) / STRIPES);
+		}
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+	
+	/**
+	 * <b><em>hash</em></b>
+	 * 
+	 * <p>Computes a 64-bit hash of a range of bytes. It reads eight bytes at a
+	 * time and includes the length, so two different e-mails are very
+	 * unlikely to have the same hash (about 1 in 2^64 for each pair).</p>
+	 * 
+	 * @param data - the bytes.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @return the hash.
+	 */
+	public static long hash(byte[] data, int start, int end) {
+		long h = 0x27D4EB2F165667C5L + (end - start) * 0x9E3779B97F4A7C15L;
+		int i = start;
+		for (; i + 8 <= end; i += 8) {
+			long k = (data[i] & 0xFFL) | (data[i + 1] & 0xFFL) << 8
+					| (data[i + 2] & 0xFFL) << 16
+					| (data[i + 3] & 0xFFL) << 24
+					| (data[i + 4] & 0xFFL) << 32
+					| (data[i + 5] & 0xFFL) << 40
+					| (data[i + 6] & 0xFFL) << 48
+					| (data[i + 7] & 0xFFL) << 56;
+			k *= 0x87C37B91114253D5L;
+			k = Long.rotateLeft(k, 31);
+			k *= 0x4CF5AD432745937FL;
+			h ^= k;
+			h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+		}
+		for (; i < end; i ++) {
+			h ^= (data[i] & 0xFFL) * 0x87C37B91114253D5L;
+			h = Long.rotateLeft(h, 11) * 0x4CF5AD432745937FL;
+		}
+		
+		// Mix the bits so that every bit of the input changes every bit
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * <b><em>get</em></b>
+	 * 
+	 * <p>Gets the spam probability of an e-mail that was scored by a
+	 * model.</p>
+	 * 
+	 * @param model - the model that is scoring the e-mail.
+	 * @param budget - the budget the e-mail is being scored with.
+	 * @param hash - the content hash of the e-mail.
+	 * @return the spam probability, or NaN if it is not in the cache.
+	 */
+	public double get(ScoringModel model, ScoringBudget budget, long hash) {
+		Stripe stripe = stripe(hash);
+		Entry entry;
+		synchronized (stripe) {
+			entry = stripe.get(hash);
+		}
+		if (entry == null || entry.model != model
+				|| !entry.budget.equals(budget)) {
+			misses.increment();
+			return Double.NaN;
+		}
+		hits.increment();
+		return entry.probability;
+	}
+	
+	/**
+	 * <b><em>put</em></b>
+	 * 
+	 * <p>Stores the spam probability of an e-mail.</p>
+	 * 
+	 * @param model - the model that scored the e-mail.
+	 * @param budget - the budget the e-mail was scored with.
+	 * @param hash - the content hash of the e-mail.
+	 * @param probability - the spam probability.
+	 */
+	public void put(ScoringModel model, ScoringBudget budget, long hash,
+			double probability) {
+		Stripe stripe = stripe(hash);
+		synchronized (stripe) {
+			stripe.put(hash, new Entry(model, budget, probability));
+		}
+	}
+	
+	/**
+	 * <b><em>clear</em></b>
+	 * 
+	 * <p>Removes all of the results. The hit and miss counts are kept.</p>
+	 */
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of results in the cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * <b><em>getHitRate</em></b>
+	 * 
+	 * @return the fraction of the lookups that found a result, or 0 if there
+	 * were none.
+	 */
+	public double getHitRate() {
+		long hits = getHits(), total = hits + getMisses();
+		return (total == 0)? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Cache: %d of %d results, %d hits, %d misses "
+				+ "(%.1f%% hit rate), %d evictions", size(), maxSize,
+				getHits(), getMisses(), getHitRate() * 100, getEvictions());
+	}
+	
+	/**
+	 * Gets the stripe that a hash belongs to.
+	 * 
+	 * @param hash - the content hash.
+	 * @return the stripe.
+	 */
+	private Stripe stripe(long hash) {
+		return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+	}
+	
+	/** The {@code Entry} class is a cached result. */
+	private static class Entry {
+		
+		/** The model that computed the result. */
+		private final ScoringModel model;
+		
+		/** The budget the result was computed with. */
+		private final ScoringBudget budget;
+		
+		/** The spam probability. */
+		private final double probability;
+		
+		public Entry(ScoringModel model, ScoringBudget budget,
+				double probability) {
+			this.model = model;
+			this.budget = budget;
+			this.probability = probability;
+		}
+	}
+	
+	/** The {@code Stripe} class is one part of the cache, ordered from the
+	 * least to the most recently used result. */
+	private class Stripe extends LinkedHashMap<Long, Entry> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** The greatest number of results in the stripe. */
+		private final int capacity;
+		
+		public Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+			if (size() <= capacity) {
+				return false;
+			}
+			evictions.increment();
+			return true;
+		}
+	}
+}
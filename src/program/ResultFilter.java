@@ -0,0 +1,151 @@
+/* Name: ResultFilter
+ * Author: Devon McGrath
+ * Description: This class chooses which classified test files are shown, by
+ * their classes and spam probability.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.util.function.Predicate;
+
+/**
+ * <p>The {@code ResultFilter} class keeps the test files that match a
+ * class (see {@link Show}) and have a spam probability within a range. It
+ * does not use the display, so the test files can be filtered on any
+ * thread. A filter is never modified.</p>
+ */
+public class ResultFilter implements Predicate<TestFile> {
+	
+	/** The {@code Show} enum lists the classes of test files that can be
+	 * shown. */
+	public enum Show {
+		
+		/** Every test file. */
+		ALL("All files"),
+		
+		/** The test files that were classified as spam. */
+		PREDICTED_SPAM("Predicted spam"),
+		
+		/** The test files that were classified as ham. */
+		PREDICTED_HAM("Predicted ham"),
+		
+		/** The test files that are actually spam. */
+		ACTUAL_SPAM("Actual spam"),
+		
+		/** The test files that are actually ham. */
+		ACTUAL_HAM("Actual ham"),
+		
+		/** The test files that were classified wrong. */
+		WRONG("Misclassified");
+		
+		/** The name shown to the user. */
+		private final String label;
+		
+		private Show(String label) {
+			this.label = label;
+		}
+		
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+	
+	/** The filter that keeps every test file. */
+	public static final ResultFilter ALL = new ResultFilter(Show.ALL, 0, 1);
+	
+	/** The class of the test files that are kept. */
+	private final Show show;
+	
+	/** The lowest spam probability that is kept. */
+	private final double min;
+	
+	/** The highest spam probability that is kept. */
+	private final double max;
+	
+	/**
+	 * Constructs a filter.
+	 * 
+	 * @param show - the class of the test files to keep, or null for all of
+	 * them.
+	 * @param min - the lowest spam probability to keep.
+	 * @param max - the highest spam probability to keep.
+	 */
+	public ResultFilter(Show show, double min, double max) {
+		this.show = (show == null)? Show.ALL : show;
+		this.min = min;
+		this.max = max;
+	}
+	
+	@Override
+	public boolean test(TestFile file) {
+		return test(file.getSpamProbability(), TestFile.SPAM.equals(
+				file.getPredictedClass()), file.getActualClass());
+	}
+	
+	/**
+	 * <b><em>test</em></b>
+	 * 
+	 * <p>Checks a row of a result store without creating a view of it.</p>
+	 * 
+	 * @param results - the result store.
+	 * @param row - the index of the row.
+	 * @return true if the row is kept.
+	 */
+	public boolean test(ResultStore results, int row) {
+		return test(results.getSpamProbability(row), results.isSpam(row),
+				results.getActualClass(row));
+	}
+	
+	/**
+	 * Checks the values of a test file.
+	 * 
+	 * @param p - the spam probability.
+	 * @param isSpam - whether it was classified as spam.
+	 * @param actualClass - the actual class, or null if it is not known.
+	 * @return true if the test file is kept.
+	 */
+	private boolean test(double p, boolean isSpam, String actualClass) {
+		if (p < min || p > max) {
+			return false;
+		}
+		boolean actualSpam = TestFile.SPAM.equals(actualClass);
+		switch (show) {
+		case PREDICTED_SPAM: return isSpam;
+		case PREDICTED_HAM: return !isSpam;
+		case ACTUAL_SPAM: return actualSpam;
+		case ACTUAL_HAM: return TestFile.NOT_SPAM.equals(actualClass);
+		case WRONG: return actualClass != null && isSpam != actualSpam;
+		default: return true;
+		}
+	}
+	
+	/**
+	 * <b><em>isAll</em></b>
+	 * 
+	 * @return true if every test file is kept.
+	 */
+	public boolean isAll() {
+		return show == Show.ALL && min <= 0 && max >= 1;
+	}
+	
+	public Show getShow() {
+		return show;
+	}
+	
+	public double getMin() {
+		return min;
+	}
+	
+	public double getMax() {
+		return max;
+	}
+	
+	@Override
+	public String toString() {
+		return show + " from " + min + " to " + max;
+	}
+}
@@ -0,0 +1,612 @@
+/* Name: ResultStore
+ * Author: Devon McGrath
+ * Description: This class keeps the results of testing in columns of
+ * primitive arrays instead of one test file object for each e-mail.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>The {@code ResultStore} class holds any number of classified test
+ * files in columns, which take about 20 bytes for each one plus the bytes
+ * of its name:</p>
+ * 
+ * <ul>
+ * <li><b>probabilities</b> - a {@code double} for each row.</li>
+ * <li><b>classes</b> - a {@code byte} for each row with bits for the
+ * actual class, whether it is known, and the predicted class.</li>
+ * <li><b>file names</b> - the part of each name up to its last '/', '\' or
+ * '#' is kept once in a table of prefixes, since every file in a folder or
+ * archive shares it, and the rest is kept as UTF-8 bytes in one array with
+ * the offset where each name ends.</li>
+ * </ul>
+ * 
+ * <p>The rows are given out as {@link TestFile} views (see
+ * {@link #get(int)}), which read the columns when they are asked for their
+ * values and cannot be changed. Only the rows being shown need a view.</p>
+ * 
+ * <p>A store is added to by one thread. The columns are only ever added
+ * to, so a {@link #snapshot()} of the rows so far can be read by other
+ * threads, such as to sort them, while more rows are added.</p>
+ */
+public class ResultStore {
+	
+	/** The {@code Column} enum lists the columns the rows can be sorted
+	 * by. */
+	public enum Column {
+		
+		/** The name of the file. */
+		FILE,
+		
+		/** The predicted class, ham before spam. */
+		PREDICTED_CLASS,
+		
+		/** The actual class, unknown before ham before spam. */
+		ACTUAL_CLASS,
+		
+		/** The spam probability. */
+		SPAM_PROBABILITY
+	}
+	
+	/** The number of rows there is room for when a store is created. */
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	/** The number of rows below which sorting is not split between
+	 * threads. */
+	private static final int SORT_THRESHOLD = 8192;
+	
+	/** The bit of the classes column for a row that is actually spam. */
+	private static final byte ACTUAL_SPAM = 1;
+	
+	/** The bit of the classes column for a row with a known actual
+	 * class. */
+	private static final byte ACTUAL_KNOWN = 2;
+	
+	/** The bit of the classes column for a row that was classified as
+	 * spam. */
+	private static final byte PREDICTED_SPAM = 4;
+	
+	/** The spam probability of each row. */
+	private double[] probabilities;
+	
+	/** The class bits of each row. */
+	private byte[] classes;
+	
+	/** The index of the prefix of the name of each row. */
+	private int[] prefixes;
+	
+	/** The offset in the names after the end of the name of each row. */
+	private int[] nameEnds;
+	
+	/** The UTF-8 bytes of the names after their prefixes. */
+	private byte[] names;
+	
+	/** The UTF-8 bytes of each prefix. */
+	private byte[][] prefixTable;
+	
+	/** The index of each prefix in the table, or null for a snapshot. */
+	private final Map<String, Integer> prefixIds;
+	
+	/** The number of rows. */
+	private int size;
+	
+	/** The number of bytes of the names. */
+	private int nameBytes;
+	
+	/** The number of prefixes. */
+	private int prefixCount;
+	
+	/** Constructs an empty store. */
+	public ResultStore() {
+		this.probabilities = new double[INITIAL_CAPACITY];
+		this.classes = new byte[INITIAL_CAPACITY];
+		this.prefixes = new int[INITIAL_CAPACITY];
+		this.nameEnds = new int[INITIAL_CAPACITY];
+		this.names = new byte[INITIAL_CAPACITY * 16];
+		this.prefixTable = new byte[16][];
+		this.prefixIds = new HashMap<>();
+	}
+	
+	/**
+	 * Constructs a snapshot of a store, which shares its columns.
+	 * 
+	 * @param store - the store.
+	 */
+	private ResultStore(ResultStore store) {
+		this.probabilities = store.probabilities;
+		this.classes = store.classes;
+		this.prefixes = store.prefixes;
+		this.nameEnds = store.nameEnds;
+		this.names = store.names;
+		this.prefixTable = store.prefixTable;
+		this.prefixIds = null;
+		this.size = store.size;
+		this.nameBytes = store.nameBytes;
+		this.prefixCount = store.prefixCount;
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds a row with the values of a test file. The test file is not
+	 * kept.</p>
+	 * 
+	 * @param file - the test file.
+	 * @return the index of the row.
+	 * @throws IllegalStateException if this is a snapshot, or the names are
+	 * larger than an array can hold.
+	 */
+	public int add(TestFile file) {
+		if (prefixIds == null) {
+			throw new IllegalStateException("A snapshot cannot be added to");
+		}
+		if (size == probabilities.length) {
+			int capacity = size * 2;
+			this.probabilities = Arrays.copyOf(probabilities, capacity);
+			this.classes = Arrays.copyOf(classes, capacity);
+			this.prefixes = Arrays.copyOf(prefixes, capacity);
+			this.nameEnds = Arrays.copyOf(nameEnds, capacity);
+		}
+		
+		// The classes
+		String actualClass = file.getActualClass();
+		byte bits = 0;
+		if (actualClass != null) {
+			bits |= ACTUAL_KNOWN;
+			bits |= TestFile.SPAM.equals(actualClass)? ACTUAL_SPAM : 0;
+		}
+		bits |= TestFile.SPAM.equals(file.getPredictedClass())?
+				PREDICTED_SPAM : 0;
+		
+		// The name, split after its last separator
+		String name = (file.getFilename() == null)? ""
+				: file.getFilename();
+		int split = Math.max(name.lastIndexOf('#'), Math.max(
+				name.lastIndexOf('/'), name.lastIndexOf('\\'))) + 1;
+		int prefix = prefix(name.substring(0, split));
+		byte[] leaf = name.substring(split).getBytes(
+				StandardCharsets.UTF_8);
+		if (leaf.length > Integer.MAX_VALUE - 8 - nameBytes) {
+			throw new IllegalStateException("Too many file names");
+		}
+		if (nameBytes + leaf.length > names.length) {
+			long capacity = Math.max(names.length * 2L,
+					nameBytes + (long) leaf.length);
+			this.names = Arrays.copyOf(names,
+					(int) Math.min(capacity, Integer.MAX_VALUE - 8));
+		}
+		System.arraycopy(leaf, 0, names, nameBytes, leaf.length);
+		this.nameBytes += leaf.length;
+		
+		// Fill in the row
+		probabilities[size] = file.getSpamProbability();
+		classes[size] = bits;
+		prefixes[size] = prefix;
+		nameEnds[size] = nameBytes;
+		return size ++;
+	}
+	
+	/**
+	 * <b><em>addAll</em></b>
+	 * 
+	 * @param files - the test files to add rows for.
+	 */
+	public void addAll(List<TestFile> files) {
+		for (TestFile file : files) {
+			add(file);
+		}
+	}
+	
+	/**
+	 * <b><em>snapshot</em></b>
+	 * 
+	 * <p>Gets a store of the rows so far that shares the columns of this
+	 * one and cannot be added to. It can be given to another thread, and
+	 * is not changed by adding rows to this store.</p>
+	 * 
+	 * @return the snapshot.
+	 */
+	public ResultStore snapshot() {
+		return new ResultStore(this);
+	}
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of rows.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * <b><em>get</em></b>
+	 * 
+	 * @param row - the index of the row.
+	 * @return a view of the row, which reads the columns of this store.
+	 * @throws IndexOutOfBoundsException if there is no such row.
+	 */
+	public TestFile get(int row) {
+		check(row);
+		return new Row(this, row);
+	}
+	
+	/**
+	 * <b><em>asList</em></b>
+	 * 
+	 * @return a list of views of the rows, which grows as rows are added
+	 * and cannot be changed.
+	 */
+	public List<TestFile> asList() {
+		return new AbstractList<TestFile>() {
+			@Override
+			public TestFile get(int index) {
+				return ResultStore.this.get(index);
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+	
+	/**
+	 * <b><em>getFilename</em></b>
+	 * 
+	 * @param row - the index of the row.
+	 * @return the name of the file, which is decoded each time.
+	 */
+	public String getFilename(int row) {
+		check(row);
+		int start = (row == 0)? 0 : nameEnds[row - 1];
+		String leaf = new String(names, start, nameEnds[row] - start,
+				StandardCharsets.UTF_8);
+		byte[] prefix = prefixTable[prefixes[row]];
+		return (prefix.length == 0)? leaf
+				: new String(prefix, StandardCharsets.UTF_8) + leaf;
+	}
+	
+	public double getSpamProbability(int row) {
+		check(row);
+		return probabilities[row];
+	}
+	
+	/**
+	 * <b><em>isSpam</em></b>
+	 * 
+	 * @param row - the index of the row.
+	 * @return true if the file was classified as spam.
+	 */
+	public boolean isSpam(int row) {
+		check(row);
+		return (classes[row] & PREDICTED_SPAM) != 0;
+	}
+	
+	/**
+	 * <b><em>getPredictedClass</em></b>
+	 * 
+	 * @param row - the index of the row.
+	 * @return {@link TestFile#SPAM} or {@link TestFile#NOT_SPAM}.
+	 */
+	public String getPredictedClass(int row) {
+		return isSpam(row)? TestFile.SPAM : TestFile.NOT_SPAM;
+	}
+	
+	/**
+	 * <b><em>getActualClass</em></b>
+	 * 
+	 * @param row - the index of the row.
+	 * @return {@link TestFile#SPAM}, {@link TestFile#NOT_SPAM} or null if
+	 * it is not known.
+	 */
+	public String getActualClass(int row) {
+		check(row);
+		byte bits = classes[row];
+		if ((bits & ACTUAL_KNOWN) == 0) {
+			return null;
+		}
+		return ((bits & ACTUAL_SPAM) != 0)? TestFile.SPAM : TestFile.NOT_SPAM;
+	}
+	
+	/**
+	 * <b><em>compare</em></b>
+	 * 
+	 * <p>Compares two rows by a column without creating any objects. Names
+	 * are compared by their UTF-8 bytes, which is the order of their code
+	 * points.</p>
+	 * 
+	 * @param column - the column.
+	 * @param a - the index of the first row.
+	 * @param b - the index of the second row.
+	 * @return less than 0 if the first row comes first, 0 if they are equal
+	 * and greater than 0 if the second row comes first.
+	 */
+	public int compare(Column column, int a, int b) {
+		switch (column) {
+		case FILE: return compareNames(a, b);
+		case PREDICTED_CLASS: return Integer.compare(
+				classes[a] & PREDICTED_SPAM, classes[b] & PREDICTED_SPAM);
+		case ACTUAL_CLASS: return Integer.compare(
+				classes[a] & (ACTUAL_KNOWN | ACTUAL_SPAM),
+				classes[b] & (ACTUAL_KNOWN | ACTUAL_SPAM));
+		default: return Double.compare(probabilities[a], probabilities[b]);
+		}
+	}
+	
+	/**
+	 * <b><em>sort</em></b>
+	 * 
+	 * <p>Sorts rows by some columns, on more than one thread if there are
+	 * many of them. The sort is stable, so rows that are equal in every
+	 * column keep their order.</p>
+	 * 
+	 * @param rows - the indices of the rows to sort.
+	 * @param count - the number of indices to sort, from the start.
+	 * @param columns - the columns, most important first.
+	 * @param descending - whether each column is sorted from high to low.
+	 */
+	public void sort(int[] rows, int count, Column[] columns,
+			boolean[] descending) {
+		if (columns.length == 0 || count < 2) {
+			return;
+		}
+		int[] buffer = Arrays.copyOf(rows, count);
+		ForkJoinPool.commonPool().invoke(new SortTask(buffer, rows, 0, count,
+				columns, descending));
+	}
+	
+	/**
+	 * Gets the index of a prefix, adding it to the table if it is new.
+	 * 
+	 * @param prefix - the prefix.
+	 * @return the index.
+	 */
+	private int prefix(String prefix) {
+		Integer id = prefixIds.get(prefix);
+		if (id != null) {
+			return id;
+		}
+		if (prefixCount == prefixTable.length) {
+			this.prefixTable = Arrays.copyOf(prefixTable, prefixCount * 2);
+		}
+		prefixTable[prefixCount] = prefix.getBytes(StandardCharsets.UTF_8);
+		prefixIds.put(prefix, prefixCount);
+		return prefixCount ++;
+	}
+	
+	/**
+	 * Compares the names of two rows, prefix and all.
+	 * 
+	 * @param a - the index of the first row.
+	 * @param b - the index of the second row.
+	 * @return the order of the names.
+	 */
+	private int compareNames(int a, int b) {
+		byte[] prefixA = prefixTable[prefixes[a]];
+		byte[] prefixB = prefixTable[prefixes[b]];
+		int startA = (a == 0)? 0 : nameEnds[a - 1];
+		int startB = (b == 0)? 0 : nameEnds[b - 1];
+		int lengthA = prefixA.length + nameEnds[a] - startA;
+		int lengthB = prefixB.length + nameEnds[b] - startB;
+		int i = 0;
+		
+		// The same prefix can be skipped
+		if (prefixA == prefixB) {
+			i = prefixA.length;
+		}
+		for (int n = Math.min(lengthA, lengthB); i < n; i ++) {
+			int x = (i < prefixA.length)? prefixA[i]
+					: names[startA + i - prefixA.length];
+			int y = (i < prefixB.length)? prefixB[i]
+					: names[startB + i - prefixB.length];
+			if (x != y) {
+				return (x & 0xFF) - (y & 0xFF);
+			}
+		}
+		return lengthA - lengthB;
+	}
+	
+	/**
+	 * Compares two rows by some columns.
+	 * 
+	 * @param columns - the columns, most important first.
+	 * @param descending - whether each column is sorted from high to low.
+	 * @param a - the index of the first row.
+	 * @param b - the index of the second row.
+	 * @return the order of the rows.
+	 */
+	private int compare(Column[] columns, boolean[] descending, int a,
+			int b) {
+		for (int i = 0; i < columns.length; i ++) {
+			int c = compare(columns[i], a, b);
+			if (c != 0) {
+				return descending[i]? -c : c;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Checks that a row exists.
+	 * 
+	 * @param row - the index of the row.
+	 * @throws IndexOutOfBoundsException if it does not.
+	 */
+	private void check(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+		}
+	}
+	
+	/** The {@code SortTask} class merge sorts a range of row indices,
+	 * sorting the two halves at the same time. */
+	private class SortTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** The indices to sort. */
+		private final int[] from;
+		
+		/** The array to put the sorted indices in, which starts with the
+		 * same indices. */
+		private final int[] to;
+		
+		/** The index of the first row of the range. */
+		private final int start;
+		
+		/** The index after the last row of the range. */
+		private final int end;
+		
+		/** The columns to sort by. */
+		private final Column[] columns;
+		
+		/** Whether each column is sorted from high to low. */
+		private final boolean[] descending;
+		
+		public SortTask(int[] from, int[] to, int start, int end,
+				Column[] columns, boolean[] descending) {
+			this.from = from;
+			this.to = to;
+			this.start = start;
+			this.end = end;
+			this.columns = columns;
+			this.descending = descending;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			// Sort a small range by inserting each row in place
+			if (end - start < SORT_THRESHOLD) {
+				sort(to, from, start, end);
+				return;
+			}
+			
+			// Or sort each half into the other array and merge them back
+			int middle = (start + end) >>> 1;
+			invokeAll(new SortTask(to, from, start, middle, columns,
+					descending), new SortTask(to, from, middle, end,
+					columns, descending));
+			merge(from, to, start, middle, end);
+		}
+		
+		/**
+		 * Merge sorts a range on this thread.
+		 * 
+		 * @param a - the indices to sort, which hold the result.
+		 * @param b - a copy of the same indices to use as space.
+		 * @param start - the index of the first row.
+		 * @param end - the index after the last row.
+		 */
+		private void sort(int[] a, int[] b, int start, int end) {
+			if (end - start < 16) {
+				for (int i = start + 1; i < end; i ++) {
+					int row = a[i], j = i;
+					while (j > start && compare(columns, descending,
+							a[j - 1], row) > 0) {
+						a[j] = a[j - 1];
+						j --;
+					}
+					a[j] = row;
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			sort(b, a, start, middle);
+			sort(b, a, middle, end);
+			merge(b, a, start, middle, end);
+		}
+		
+		/**
+		 * Merges two sorted halves, taking rows from the first half when
+		 * they are equal.
+		 * 
+		 * @param src - the array with the sorted halves.
+		 * @param dest - the array to merge into.
+		 * @param start - the index of the first row.
+		 * @param middle - the index of the first row of the second half.
+		 * @param end - the index after the last row.
+		 */
+		private void merge(int[] src, int[] dest, int start, int middle,
+				int end) {
+			int i = start, j = middle;
+			for (int k = start; k < end; k ++) {
+				if (j >= end || (i < middle && compare(columns, descending,
+						src[i], src[j]) <= 0)) {
+					dest[k] = src[i ++];
+				} else {
+					dest[k] = src[j ++];
+				}
+			}
+		}
+	}
+	
+	/** The {@code Row} class is a view of a row of a store as a test
+	 * file. */
+	private static class Row extends TestFile {
+		
+		/** The store. */
+		private final ResultStore store;
+		
+		/** The index of the row. */
+		private final int row;
+		
+		public Row(ResultStore store, int row) {
+			this.store = store;
+			this.row = row;
+		}
+		
+		@Override
+		public String getFilename() {
+			return store.getFilename(row);
+		}
+		
+		@Override
+		public double getSpamProbability() {
+			return store.getSpamProbability(row);
+		}
+		
+		@Override
+		public String getSpamProbRounded() {
+			return round(store.getSpamProbability(row));
+		}
+		
+		@Override
+		public String getActualClass() {
+			return store.getActualClass(row);
+		}
+		
+		@Override
+		public String getPredictedClass() {
+			return store.getPredictedClass(row);
+		}
+		
+		@Override
+		public void setFilename(String value) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void setSpamProbability(double val) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void setActualClass(String value) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/* Name: ScoringBudget
+ * Author: Devon McGrath
+ * Description: This class limits how much of an e-mail is read and how many
+ * of its words are added up when it is scored.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code ScoringBudget} class trades some accuracy for speed when
+ * classifying e-mails (see {@link SpamFilter#setBudget(ScoringBudget)}).
+ * There are three limits, and a limit of 0 turns it off:</p>
+ * 
+ * <ul>
+ * <li><b>bytes</b> - only the start of each e-mail is read. If the e-mail
+ * is longer, the word cut off at the end is dropped (see
+ * {@link Tokenizer#prefix(byte[], int, int, int)}).</li>
+ * <li><b>tokens</b> - only the first words of each e-mail are read,
+ * counting repeated words and words that are not in the vocabulary.</li>
+ * <li><b>strongest words</b> - only the weights of the unique words that are
+ * the strongest sign of spam or ham (the largest {@code |weight|}, see
+ * {@link ScoringModel}) are added up, like Paul Graham's filter.</li>
+ * </ul>
+ * 
+ * <p>Training always reads the whole of each file. How much a budget
+ * changes the results can be checked with
+ * {@link SpamFilter#compare(ScoringBudget)}. A budget is never
+ * modified.</p>
+ */
+public class ScoringBudget {
+	
+	/** The budget with no limits, which scores e-mails in full. */
+	public static final ScoringBudget FULL = new ScoringBudget(0, 0, 0);
+	
+	/** The number of bytes read from each e-mail, or 0 for all. */
+	private final int maxBytes;
+	
+	/** The number of words read from each e-mail, or 0 for all. */
+	private final int maxTokens;
+	
+	/** The number of unique words whose weights are added up, or 0 for
+	 * all. */
+	private final int strongestWords;
+	
+	/**
+	 * Constructs a scoring budget. Limits of 0 or less are turned off.
+	 * 
+	 * @param maxBytes - the number of bytes read from each e-mail.
+	 * @param maxTokens - the number of words read from each e-mail.
+	 * @param strongestWords - the number of unique words whose weights are
+	 * added up.
+	 */
+	public ScoringBudget(int maxBytes, int maxTokens, int strongestWords) {
+		this.maxBytes = Math.max(0, maxBytes);
+		this.maxTokens = Math.max(0, maxTokens);
+		this.strongestWords = Math.max(0, strongestWords);
+	}
+	
+	public int getMaxBytes() {
+		return maxBytes;
+	}
+	
+	public int getMaxTokens() {
+		return maxTokens;
+	}
+	
+	public int getStrongestWords() {
+		return strongestWords;
+	}
+	
+	/**
+	 * <b><em>isFull</em></b>
+	 * 
+	 * @return true if none of the limits are on, so e-mails are scored in
+	 * full.
+	 */
+	public boolean isFull() {
+		return maxBytes == 0 && maxTokens == 0 && strongestWords == 0;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ScoringBudget)) {
+			return false;
+		}
+		ScoringBudget other = (ScoringBudget) obj;
+		return maxBytes == other.maxBytes && maxTokens == other.maxTokens
+				&& strongestWords == other.strongestWords;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (maxBytes * 31 + maxTokens) * 31 + strongestWords;
+	}
+	
+	@Override
+	public String toString() {
+		if (isFull()) {
+			return "full";
+		}
+		return "bytes=" + limit(maxBytes) + ", tokens=" + limit(maxTokens)
+				+ ", strongest words=" + limit(strongestWords);
+	}
+	
+	/**
+	 * Converts a limit to a string.
+	 * 
+	 * @param limit - the limit.
+	 * @return the limit, or "all" if it is off.
+	 */
+	private static String limit(int limit) {
+		return (limit == 0)? "all" : String.valueOf(limit);
+	}
+}
@@ -0,0 +1,317 @@
+/* Name: ScoringModel
+ * Author: Devon McGrath
+ * Description: This class holds the weight of every word from training so
+ * that a file can be scored with a lookup and a sum per word.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added scoring the strongest words - Devon McGrath
+ * 1.2 - 10/16/2026 - Added the memory footprint - Devon McGrath
+ * 1.3 - 10/16/2026 - Made the storage of the words abstract - Devon McGrath
+ * 1.4 - 10/16/2026 - Added the smoothing of the weights - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code ScoringModel} class is the compiled form of a trained
+ * {@link SpamFilter}. For every word it stores the log-odds weight that
+ * {@link SpamFilter#isSpam(TestFile, String)} adds up:</p>
+ * 
+ * <pre>
+ * pWS = (spam files with the word + 1) / spam files
+ * pWH = (ham files with the word + 1) / ham files
+ * pSW = pWS / (pWS + pWH)
+ * weight = ln(1 - pSW) - ln(pSW)
+ * </pre>
+ * 
+ * <p>The 1 added to the counts is the smoothing, which keeps pSW from being
+ * 0 or 1. A {@link CrossValidator} can try other values with
+ * {@link #weight(int, int, int, int, double)}.</p>
+ * 
+ * <p>The spam probability of a file is {@code 1 / (1 + e^eta)}, where eta is
+ * the sum of the weights of the unique words in the file. Words whose counts
+ * are all 0 (from training files that were removed) have a weight of 0, so
+ * they do not change the probability.</p>
+ * 
+ * <p>How the words and weights are stored is up to the subclass. The model
+ * from {@link #compile(Vocabulary, int, int)} keeps them on the heap, in a
+ * copy of the vocabulary and an array of weights, and an
+ * {@link OffHeapModel} keeps them in native memory. Both give exactly the
+ * same scores.</p>
+ * 
+ * <p>A scoring model is never modified once it is compiled, so it can be
+ * shared between threads.</p>
+ */
+public abstract class ScoringModel {
+	
+	/** The number of spam files used for training. */
+	private final int spamFiles;
+	
+	/** The number of ham files used for training. */
+	private final int hamFiles;
+	
+	/**
+	 * Constructs a scoring model.
+	 * 
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 */
+	ScoringModel(int spamFiles, int hamFiles) {
+		this.spamFiles = spamFiles;
+		this.hamFiles = hamFiles;
+	}
+	
+	/**
+	 * <b><em>compile</em></b>
+	 * 
+	 * <p>Compiles the counts of a trained vocabulary into a scoring model
+	 * that is kept on the heap.</p>
+	 * 
+	 * @param vocabulary - the trained vocabulary, which is copied.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the scoring model.
+	 */
+	public static ScoringModel compile(Vocabulary vocabulary, int spamFiles,
+			int hamFiles) {
+		Vocabulary words = vocabulary.copy();
+		double[] weights = new double[words.size()];
+		for (int id = 0; id < weights.length; id ++) {
+			int spam = words.getSpamFileCount(id);
+			int ham = words.getHamFileCount(id);
+			if (spam == 0 && ham == 0) {
+				continue;
+			}
+			weights[id] = weight(spam, ham, spamFiles, hamFiles);
+		}
+		return new HeapModel(words, weights, spamFiles, hamFiles);
+	}
+	
+	/**
+	 * <b><em>weight</em></b>
+	 * 
+	 * <p>Computes the log-odds weight of a word from its counts. A negative
+	 * weight is a sign of spam and a positive weight is a sign of ham.</p>
+	 * 
+	 * @param spam - the number of spam files with the word.
+	 * @param ham - the number of ham files with the word.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the weight of the word.
+	 */
+	public static double weight(int spam, int ham, int spamFiles,
+			int hamFiles) {
+		
+		// NOTE: Adding '1' to the file count to avoid pSW = 0 or 1
+		return weight(spam, ham, spamFiles, hamFiles, 1);
+	}
+	
+	/**
+	 * <b><em>weight</em></b>
+	 * 
+	 * <p>Computes the log-odds weight of a word with a different smoothing
+	 * (see {@link #weight(int, int, int, int)}, which uses 1).</p>
+	 * 
+	 * @param spam - the number of spam files with the word.
+	 * @param ham - the number of ham files with the word.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @param smoothing - the number added to the counts of the word, which
+	 * must be greater than 0.
+	 * @return the weight of the word.
+	 */
+	public static double weight(int spam, int ham, int spamFiles,
+			int hamFiles, double smoothing) {
+		final double pWS = (1.0*spam+smoothing)/spamFiles;
+		final double pWH = (1.0*ham+smoothing)/hamFiles;
+		final double pSW = pWS/(pWS + pWH);
+		return Math.log(1 - pSW) - Math.log(pSW);
+	}
+	
+	/**
+	 * <b><em>score</em></b>
+	 * 
+	 * <p>Gets the spam probability of the last document read by a feature
+	 * extractor, which must have used the words of this model (see
+	 * {@link #getIndex()}).</p>
+	 * 
+	 * @param extractor - the feature extractor.
+	 * @return the spam probability.
+	 */
+	public double score(FeatureExtractor extractor) {
+		double eta = 0;
+		for (int i = 0, n = extractor.size(); i < n; i ++) {
+			eta += weight(extractor.id(i));
+		}
+		return probability(eta);
+	}
+	
+	/**
+	 * <b><em>score</em></b>
+	 * 
+	 * <p>Gets the spam probability of the last document read by a feature
+	 * extractor from only the words with the largest {@code |weight|}, which
+	 * are the strongest signs of spam or ham. Words with the same
+	 * {@code |weight|} are taken in the order they show up. If the document
+	 * has no more unique words than that, the result is the same as
+	 * {@link #score(FeatureExtractor)}.</p>
+	 * 
+	 * @param extractor - the feature extractor.
+	 * @param strongest - the number of words to add up, or 0 for all of
+	 * them.
+	 * @return the spam probability.
+	 */
+	public double score(FeatureExtractor extractor, int strongest) {
+		int n = extractor.size();
+		if (strongest <= 0 || n <= strongest) {
+			return score(extractor);
+		}
+		
+		// Keep the strongest weights in a heap with the weakest on top
+		double[] heap = new double[strongest];
+		int size = 0;
+		for (int i = 0; i < n; i ++) {
+			double weight = weight(extractor.id(i));
+			if (size < strongest) {
+				int child = size ++;
+				while (child > 0) {
+					int parent = (child - 1) >>> 1;
+					if (Math.abs(heap[parent]) <= Math.abs(weight)) {
+						break;
+					}
+					heap[child] = heap[parent];
+					child = parent;
+				}
+				heap[child] = weight;
+			} else if (Math.abs(weight) > Math.abs(heap[0])) {
+				int parent = 0;
+				while (true) {
+					int child = parent * 2 + 1;
+					if (child >= size) {
+						break;
+					}
+					if (child + 1 < size && Math.abs(heap[child + 1])
+							< Math.abs(heap[child])) {
+						child ++;
+					}
+					if (Math.abs(heap[child]) >= Math.abs(weight)) {
+						break;
+					}
+					heap[parent] = heap[child];
+					parent = child;
+				}
+				heap[parent] = weight;
+			}
+		}
+		
+		// Add up the strongest weights
+		double eta = 0;
+		for (int i = 0; i < size; i ++) {
+			eta += heap[i];
+		}
+		return probability(eta);
+	}
+	
+	/**
+	 * <b><em>probability</em></b>
+	 * 
+	 * <p>Converts the sum of the weights of a document to a probability. This
+	 * uses {@code Math.pow(Math.E, eta)} rather than {@code Math.exp(eta)},
+	 * which can differ in the last bit, so that the probabilities are exactly
+	 * the same as before the model was compiled.</p>
+	 * 
+	 * @param eta - the sum of the weights of the words in a document.
+	 * @return the spam probability of the document.
+	 */
+	public static double probability(double eta) {
+		return 1.0/(1.0+Math.pow(Math.E, eta));
+	}
+	
+	/**
+	 * <b><em>weight</em></b>
+	 * 
+	 * @param id - the id of a word.
+	 * @return the log-odds weight of the word.
+	 */
+	public abstract double weight(int id);
+	
+	/**
+	 * <b><em>getIndex</em></b>
+	 * 
+	 * <p>Gets the words used to look up the words of a document, with their
+	 * training counts.</p>
+	 * 
+	 * @return the words of the model.
+	 */
+	public abstract WordIndex getIndex();
+	
+	/**
+	 * <b><em>memoryFootprint</em></b>
+	 * 
+	 * <p>Gets the approximate number of bytes used by the model, which is its
+	 * words and its weights, on or off the heap.</p>
+	 * 
+	 * @return the memory used in bytes.
+	 */
+	public abstract long memoryFootprint();
+	
+	/**
+	 * <b><em>isOffHeap</em></b>
+	 * 
+	 * @return true if the words and weights are kept off the heap.
+	 */
+	public boolean isOffHeap() {
+		return false;
+	}
+	
+	public int getSpamFiles() {
+		return spamFiles;
+	}
+	
+	public int getHamFiles() {
+		return hamFiles;
+	}
+	
+	/** The {@code HeapModel} class keeps the words of a model in a
+	 * {@link Vocabulary} and the weights in an array. */
+	private static class HeapModel extends ScoringModel {
+		
+		/** The words the model was compiled from. */
+		private final Vocabulary vocabulary;
+		
+		/** The weight of each word, indexed by word id. */
+		private final double[] weights;
+		
+		/**
+		 * Constructs a heap model.
+		 * 
+		 * @param vocabulary - the words of the model, which is not copied
+		 * and must not be modified.
+		 * @param weights - the weight of each word.
+		 * @param spamFiles - the number of spam training files.
+		 * @param hamFiles - the number of ham training files.
+		 */
+		private HeapModel(Vocabulary vocabulary, double[] weights,
+				int spamFiles, int hamFiles) {
+			super(spamFiles, hamFiles);
+			this.vocabulary = vocabulary;
+			this.weights = weights;
+		}
+		
+		@Override
+		public double weight(int id) {
+			return weights[id];
+		}
+		
+		@Override
+		public WordIndex getIndex() {
+			return vocabulary;
+		}
+		
+		@Override
+		public long memoryFootprint() {
+			return vocabulary.memoryFootprint() + 16 + 8L * weights.length;
+		}
+	}
+}
@@ -6,16 +6,55 @@
  * 
  * Version History:
  * 1.0 - 02/01/2017 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added parallel training - Devon McGrath
+ * 1.2 - 10/16/2026 - Replaced the word map with a vocabulary - Devon McGrath
+ * 1.3 - 10/16/2026 - Replaced the scanner with a tokenizer - Devon McGrath
+ * 1.4 - 10/16/2026 - Added the feature extractor - Devon McGrath
+ * 1.5 - 10/16/2026 - Added saving and loading models - Devon McGrath
+ * 1.6 - 10/16/2026 - Added incremental training - Devon McGrath
+ * 1.7 - 10/16/2026 - Added the compiled scoring model - Devon McGrath
+ * 1.8 - 10/16/2026 - Added parallel testing - Devon McGrath
+ * 1.9 - 10/16/2026 - Added progress and cancelling - Devon McGrath
+ * 1.10 - 10/16/2026 - Added classifying any list of files - Devon McGrath
+ * 1.11 - 10/16/2026 - Added metrics - Devon McGrath
+ * 1.12 - 10/16/2026 - Added scoring text in memory - Devon McGrath
+ * 1.13 - 10/16/2026 - Added the result cache - Devon McGrath
+ * 1.14 - 10/16/2026 - Added the scoring budget - Devon McGrath
+ * 1.15 - 10/16/2026 - Added pruning the vocabulary - Devon McGrath
+ * 1.16 - 10/16/2026 - Added hashed training - Devon McGrath
+ * 1.17 - 10/16/2026 - Added off-heap models - Devon McGrath
+ * 1.18 - 10/16/2026 - Train without blocking classification - Devon McGrath
+ * 1.19 - 10/16/2026 - Added the corpus layout - Devon McGrath
+ * 1.20 - 10/16/2026 - Read files in a pipeline - Devon McGrath
+ * 1.21 - 10/16/2026 - Read e-mails out of archive files - Devon McGrath
+ * 1.22 - 10/16/2026 - Keep the test results in columns - Devon McGrath
+ * 1.23 - 10/16/2026 - Added cross-validation - Devon McGrath
+ * 1.24 - 10/16/2026 - Saved the fingerprint of the files - Devon McGrath
+ * 1.25 - 10/16/2026 - Add and remove the e-mails of archives - Devon McGrath
+ * 1.26 - 10/16/2026 - Kept the word ids of off-heap models - Devon McGrath
  */
 
 package program;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -25,7 +64,7 @@ public class SpamFilter {
 	/** The directory in the {@link #root} directory that contains testing
 	 * files. */
 	public static final String TEST_DIR = "test";
-
+	
 	/** The directory in the {@link #root} directory that contains training
 	 * files. */
 	public static final String TRAIN_DIR = "train";
@@ -46,11 +85,79 @@ public class SpamFilter {
 	 * particular file to be considered spam. */
 	public static final double SPAM_THRESHOLD = 0.6;
 	
+	/** The file in the {@link #root} directory where the trained model is
+	 * saved (see {@link #loadOrTrain()}). */
+	public static final String MODEL_FILE = "spamfilter.model";
+	
+	/** The first four bytes of a saved model ("SPMF"). */
+	private static final int MODEL_MAGIC = 0x53504D46;
+	
+	/** The version of the saved model format. Version 2 added the number
+	 * of buckets of a hashed vocabulary and version 3 added the fingerprint
+	 * of the training files. */
+	private static final int MODEL_VERSION = 3;
+	
+	/** The number of threads that read files for the other threads unless
+	 * it is set with {@link #setReadThreads(int)}. */
+	public static final int DEFAULT_READ_THREADS = 2;
+	
+	/** The number of test files given to a {@link ProgressListener} at a
+	 * time. */
+	private static final int TEST_BATCH_SIZE = 512;
+	
+	/** The number of results kept by the result cache unless it is set with
+	 * {@link #setCacheSize(int)}. */
+	public static final int DEFAULT_CACHE_SIZE = 16384;
+	
+	/** The feature extractor of each thread that classifies files. */
+	private static final ThreadLocal<FeatureExtractor> EXTRACTORS =
+			ThreadLocal.withInitial(FeatureExtractor::new);
+	
+	/** The last generation of word ids given to a filter (see
+	 * {@link #generation}). */
+	private static final AtomicLong GENERATIONS = new AtomicLong();
+	
 	/** The root directory from which the spam filter will operate. */
 	private File root;
 	
-	/** The map of words that correspond to a {@link Frequency}. */
-	private Map<String, Frequency> wordMap;
+	/** The number of threads used to train and test the filter. */
+	private int parallelism = 1;
+	
+	/** The number of threads that read the files when training and testing
+	 * in parallel. */
+	private int readThreads = DEFAULT_READ_THREADS;
+	
+	/** The words from training and the number of spam/ham files they show
+	 * up in, or null if they are only kept in an off-heap model (see
+	 * {@link #setOffHeap(boolean)}) until they are changed. */
+	private Vocabulary vocabulary;
+	
+	/** The generation of the word ids of the vocabulary, which is new each
+	 * time the words are replaced (by training, loading, pruning or
+	 * clearing), but not when the vocabulary is dropped and copied back
+	 * from an off-heap model, which keeps the ids. A {@link Document} can
+	 * only be removed while its generation is current. */
+	private long generation = GENERATIONS.incrementAndGet();
+	
+	/** The scoring model compiled from the vocabulary, or null if the
+	 * vocabulary changed since it was last compiled. It is only changed
+	 * while holding the lock of the filter, but can be read without it.
+	 * Every model is immutable and is swapped in whole, so a file that is
+	 * being scored always finishes with the model it started with. */
+	private volatile ScoringModel model;
+	
+	/** The fingerprint of the training files the model was trained on, or
+	 * {@link CorpusFingerprint#unknown()} if it was changed since. */
+	private CorpusFingerprint fingerprint = CorpusFingerprint.unknown();
+	
+	/** The lock held while training, so that only one training runs at a
+	 * time without holding the lock of the filter while the files are
+	 * read. */
+	private final Object trainLock = new Object();
+	
+	/** The feature extractor used to read the words of the files being
+	 * added or removed. */
+	private FeatureExtractor extractor;
 	
 	/** The number of spam files checked in training. */
 	private int spamFiles;
@@ -59,13 +166,33 @@ public class SpamFilter {
 	private int hamFiles;
 	
 	/** The number of guesses that classified e-mails as spam. */
-	private int spamGuesses;
+	private final LongAdder spamGuesses = new LongAdder();
 	
 	/** The number of guesses that correctly classified spam e-mails. */
-	private int correctSpamGuesses;
+	private final LongAdder correctSpamGuesses = new LongAdder();
 	
 	/** The number of correctly classified e-mails during testing. */
-	private int correctGuess;
+	private final LongAdder correctGuess = new LongAdder();
+	
+	/** The times, counts and failures of training and testing. */
+	private final FilterMetrics metrics = new FilterMetrics();
+	
+	/** The spam probabilities of the e-mails already scored, or null if
+	 * they are not cached. */
+	private volatile ResultCache cache = new ResultCache(DEFAULT_CACHE_SIZE);
+	
+	/** The limits on how much of each e-mail is scored. */
+	private volatile ScoringBudget budget = ScoringBudget.FULL;
+	
+	/** The number of buckets that words are hashed into when training, or 0
+	 * to keep every word (see {@link Vocabulary#hashed(int)}). */
+	private int hashBuckets;
+	
+	/** Whether the model is compiled into an {@link OffHeapModel}. */
+	private boolean offHeap;
+	
+	/** Where the training and testing files are and their classes. */
+	private volatile CorpusLayout layout = CorpusLayout.DEFAULT;
 	
 	/** Constructs a spam filter from the current working directory. */
 	public SpamFilter() {
@@ -79,68 +206,149 @@ public class SpamFilter {
 	 */
 	public SpamFilter(File root) {
 		setRoot(root);
-		this.wordMap = new TreeMap<>();
+		this.vocabulary = new Vocabulary();
+		this.extractor = new FeatureExtractor();
 	}
 	
 	/**
 	 * <b><em>train</em></b>
 	 * 
-	 * <p>This method trains the spam filter by creating a map of the words
-	 * with a frequency associated with them. The training directory (
-	 * root/{@value #TRAIN_DIR}) has three directories in it that have spam and
-	 * non-spam e-mails.</p>
+	 * <p>This method trains the spam filter by creating a vocabulary of the
+	 * words with the number of spam and ham files they show up in. By
+	 * default, the training directory (root/{@value #TRAIN_DIR}) has three
+	 * directories in it that have spam and non-spam e-mails, but the files
+	 * can be anywhere that the layout says (see
+	 * {@link #setLayout(CorpusLayout)}).</p>
 	 * 
 	 * @see {@link #test()}, {@link #SPAM_DIR}, {@link #NON_SPAM_DIR},
 	 * {@link #NON_SPAM_DIR_2}
 	 */
 	public void train() {
-		
-		// Special case
-		if (root == null || !root.isDirectory()) {
-			return;
-		}
-		
-		// Clear the map
-		this.wordMap.clear();
-		
-		// Check the ham files
-		File dir = new File(root.getAbsolutePath()+File.separator
-				+TRAIN_DIR+File.separator+NON_SPAM_DIR);
-		if (dir.exists()) {
-			File[] files = dir.listFiles();
-			this.hamFiles = files.length;
-			for (File f : files) {
-				updateMap(f, false);
+		train(null);
+	}
+	
+	/**
+	 * <b><em>train</em></b>
+	 * 
+	 * <p>Trains the spam filter (see {@link #train()}) while reporting the
+	 * progress to a listener. If the listener cancels training, the filter
+	 * keeps the model it had before.</p>
+	 * 
+	 * <p>The new vocabulary is built to the side without holding the lock of
+	 * the filter, so files can be classified with the old model the whole
+	 * time. Once it is done, the new model is compiled and swapped in
+	 * (see {@link #getModel()}). Only one training runs at a time. Files
+	 * added or removed while training runs (see
+	 * {@link #addDocument(File, boolean)}) are replaced by the new
+	 * model.</p>
+	 * 
+	 * <p>The files are read as they are found (see {@link CorpusScanner}),
+	 * so the total passed to {@link ProgressListener#progress(int, int)} is
+	 * -1. Each e-mail in an mbox file or a zip, tar or gzip archive is a
+	 * training file of its own (see {@link MailArchive}), read in one pass
+	 * over the archive without extracting it.</p>
+	 * 
+	 * @param listener - the listener, which may be null.
+	 * @return true if the filter was trained, false if training was
+	 * cancelled or the root is not a directory.
+	 * 
+	 * @see {@link #test(ProgressListener)}
+	 */
+	public boolean train(ProgressListener listener) {
+		synchronized (trainLock) {
+			
+			// Special case
+			if (root == null || !root.isDirectory()) {
+				return false;
 			}
-		}
-		dir = new File(root.getAbsolutePath()+File.separator
-				+TRAIN_DIR+File.separator+NON_SPAM_DIR_2);
-		if (dir.exists()) {
-			File[] files = dir.listFiles();
-			this.hamFiles += files.length;
-			for (File f : files) {
-				updateMap(f, false);
+			int hamFiles = 0, spamFiles = 0;
+			Progress progress = new Progress(listener, -1,
+					metrics.start(FilterMetrics.Phase.TRAIN));
+			Vocabulary trained = newVocabulary(hashBuckets);
+			
+			// Each thread counts the words in a separate vocabulary
+			int threads = (parallelism <= 1)? 1 : parallelism;
+			Vocabulary[] vocabularies = new Vocabulary[threads];
+			FeatureExtractor[] extractors = new FeatureExtractor[threads];
+			for (int i = 0; i < threads; i ++) {
+				vocabularies[i] = (i == 0)? trained
+						: newVocabulary(hashBuckets);
+				extractors[i] = new FeatureExtractor();
 			}
-		}
-		
-		// Check spam files
-		dir = new File(root.getAbsolutePath()+File.separator
-				+TRAIN_DIR+File.separator+SPAM_DIR);
-		if (dir.exists()) {
-			File[] files = dir.listFiles();
-			this.spamFiles = files.length;
-			for (File f : files) {
-				updateMap(f, true);
+			boolean interrupted = false;
+			CorpusFingerprint fingerprint = new CorpusFingerprint();
+			try (CorpusScanner scanner = new CorpusScanner(root, layout,
+					FilterMetrics.Phase.TRAIN, parallelism, metrics);
+					MessageIterator files = new MessageIterator(
+					fingerprint.track(scanner), metrics);
+					ReadPipeline<Boolean> pipeline = (threads == 1)? null
+					: newTrainPipeline(vocabularies, extractors, progress)) {
+				while (files.hasNext() && !progress.isCancelled()) {
+					CorpusScanner.Entry file = files.next();
+					spamFiles += file.isSpam()? 1 : 0;
+					hamFiles += file.isSpam()? 0 : 1;
+					
+					// Read the files on this thread as they are found (the
+					// extractor of the filter may be in use by addDocument())
+					if (pipeline == null) {
+						if (file.getText() == null) {
+							updateMap(trained, extractors[0], file.getFile(),
+									file.isSpam(), progress.timer);
+						} else {
+							updateMap(trained, extractors[0], file.getText(),
+									file.getLength(), file.isSpam(),
+									progress.timer);
+						}
+						progress.step();
+					}
+					
+					// Or hand them to the pipeline
+					else if (file.getText() == null) {
+						pipeline.submit(file.isSpam(), file.getFile());
+					} else {
+						pipeline.submit(file.isSpam(), file.getFile(),
+								file.getText(), file.getLength());
+					}
+				}
+				if (pipeline != null) {
+					pipeline.await();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				interrupted = true;
+			}
+			
+			// Merge the vocabularies of the threads
+			for (int i = 1; i < threads; i ++) {
+				trained = merge(trained, vocabularies[i]);
+			}
+			
+			// Keep the old model if training was cancelled
+			boolean cancelled = interrupted || progress.isCancelled();
+			progress.timer.stop(trained.size(), cancelled);
+			if (cancelled) {
+				return false;
+			}
+			
+			// Swap in the new model
+			synchronized (this) {
+				this.vocabulary = trained;
+				this.generation = GENERATIONS.incrementAndGet();
+				this.hamFiles = hamFiles;
+				this.spamFiles = spamFiles;
+				this.fingerprint = fingerprint;
+				compile();
 			}
+			return true;
 		}
 	}
 	
 	/**
 	 * <b><em>test</em></b>
 	 * 
-	 * <p>Tests the spam filter after training has been completed. The spam
-	 * files are located in spam/ham directories within 
-	 * root/{@value #TEST_DIR}.</p>
+	 * <p>Tests the spam filter after training has been completed. By
+	 * default, the spam files are located in spam/ham directories within 
+	 * root/{@value #TEST_DIR} (see {@link #setLayout(CorpusLayout)}).</p>
 	 * 
 	 * <p>The way the filter classifies a file as spam or not is by checking
 	 * the words contained in it. If many of the words have been associated
@@ -149,66 +357,116 @@ public class SpamFilter {
 	 * the file is considered spam.</p>
 	 * 
 	 * <p>Note that files are tested individually using
-	 * {@link #isSpam(TestFile, String)}.</p>
+	 * {@link #isSpam(TestFile, String)}. The results are kept in a
+	 * {@link ResultStore} rather than as one object for each file, and the
+	 * list gives out views of them that cannot be changed.</p>
 	 * 
 	 * @return the list of files tested in the testing directory.
 	 * 
 	 * @see {@link #train()}, {@link #SPAM_DIR}, {@link #NON_SPAM_DIR}
 	 */
 	public ObservableList<TestFile> test() {
+		final ResultStore results = new ResultStore();
+		test(new ProgressListener() {
+			@Override
+			public void tested(List<TestFile> batch) {
+				results.addAll(batch);
+			}
+		});
+		return FXCollections.observableList(results.asList());
+	}
+	
+	/**
+	 * <b><em>test</em></b>
+	 * 
+	 * <p>Tests the spam filter (see {@link #test()}) while reporting the
+	 * progress to a listener. The classified files are given to the listener
+	 * in batches, in the same order as they are listed by {@link #test()}.
+	 * If the listener cancels testing, the rest of the files are not
+	 * classified. The files are classified as they are found, so the total
+	 * passed to {@link ProgressListener#progress(int, int)} is -1. Each
+	 * e-mail in an archive is a test file named by the archive, '#' and the
+	 * name of the e-mail (see {@link MailArchive}).</p>
+	 * 
+	 * @param listener - the listener, which may be null.
+	 * @return true if all of the files were tested, false if testing was
+	 * cancelled.
+	 * 
+	 * @see {@link #train(ProgressListener)}
+	 */
+	public boolean test(ProgressListener listener) {
 		
-		ObservableList<TestFile> files = FXCollections.observableArrayList();
+		// Classify the files in the order of the layout
+		ScoringModel model = getModel();
+		Progress progress = new Progress(listener, -1,
+				metrics.start(FilterMetrics.Phase.TEST));
+		boolean tested = false;
+		try (MessageIterator files = scan(FilterMetrics.Phase.TEST);
+				ReadPipeline<TestFile> pipeline = newTestPipeline(model,
+				progress)) {
+			tested = classify(files, false, model, pipeline, progress);
+		} finally {
+			progress.timer.stop(model.getIndex().size(), !tested);
+		}
+		return tested;
+	}
+	
+	/**
+	 * <b><em>classify</em></b>
+	 * 
+	 * <p>Classifies any number of files with the trained filter. The files
+	 * are read from the iterator one batch at a time and each batch is given
+	 * to the listener once it has been classified, so only one batch of test
+	 * files is held in memory at a time. The name of each test file is the
+	 * path of the file and the total passed to
+	 * {@link ProgressListener#progress(int, int)} is -1, since the number of
+	 * files is not known ahead of time. Archive files are classified as one
+	 * test file for each e-mail in them (see {@link MailArchive}).</p>
+	 * 
+	 * <p>The files are counted in {@link #getSpamGuesses()} and the other
+	 * counters as though their actual class were the given one.</p>
+	 * 
+	 * @param files - the files to classify.
+	 * @param actualClass - the actual class of the files, which may be null
+	 * if it is not known.
+	 * @param listener - the listener that receives the test files.
+	 * @return true if all of the files were classified, false if it was
+	 * cancelled.
+	 * 
+	 * @see {@link #test(ProgressListener)}
+	 */
+	public boolean classify(final Iterator<File> files,
+			final String actualClass, ProgressListener listener) {
 		
-		// Get all the files
-		File[] nonSpam = (new File(root.getAbsolutePath()+File.separatorChar
-				+TEST_DIR+File.separatorChar+NON_SPAM_DIR)).listFiles();
-		File[] spam = (new File(root.getAbsolutePath()+File.separatorChar
-				+TEST_DIR+File.separatorChar+SPAM_DIR)).listFiles();
+		// Special case
+		if (files == null) {
+			return true;
+		}
 		
-		// Get the non-spam files
-		if (nonSpam != null) {
-			for (File f : nonSpam) {
-				
-				// Ignore if directory
-				if (f.isDirectory()) {
-					continue;
-				}
-
-				// Check the status of the file
-				TestFile file = new TestFile(
-						f.getName(), 0.0, TestFile.NOT_SPAM);
-				boolean isSpam = isSpam(file, f.getAbsolutePath());
-				if (isSpam) {
-					this.spamGuesses ++;
-				} else {
-					this.correctGuess ++;
-				}
-				files.add(file);
+		ScoringModel model = getModel();
+		Progress progress = new Progress(listener, -1,
+				metrics.start(FilterMetrics.Phase.TEST));
+		Iterator<CorpusScanner.Entry> entries =
+				new Iterator<CorpusScanner.Entry>() {
+			@Override
+			public boolean hasNext() {
+				return files.hasNext();
 			}
-		}
-
-		// Get the spam files
-		if (spam != null) {
-			for (File f : spam) {
-
-				// Ignore if directory
-				if (f.isDirectory()) {
-					continue;
-				}
-
-				// Check the status of the file
-				TestFile file = new TestFile(f.getName(), 0.0, TestFile.SPAM);
-				boolean isSpam = isSpam(file, f.getAbsolutePath());
-				if (isSpam) {
-					this.spamGuesses ++;
-					this.correctGuess ++;
-					this.correctSpamGuesses ++;
-				}
-				files.add(file);
+			
+			@Override
+			public CorpusScanner.Entry next() {
+				return new CorpusScanner.Entry(files.next(), actualClass);
 			}
+		};
+		boolean tested = false;
+		try (MessageIterator messages = new MessageIterator(entries, metrics);
+				ReadPipeline<TestFile> pipeline = newTestPipeline(model,
+				progress)) {
+			tested = classify(messages, true, model, pipeline, progress);
+			return tested;
+		} finally {
+			progress.timer.stop(model.getIndex().size(), !tested);
 		}
-		
-		return files;
 	}
 	
 	/**
@@ -234,165 +492,1471 @@ public class SpamFilter {
 			return false;
 		}
 		
-		// Read the file
-		try {
-
-			// Read each word
-			List<String> checked = new ArrayList<>();
-			double eta = 0;
-			Scanner s = new Scanner(new File(path));
-			while (s.hasNext()) {
-				String text = s.next().toLowerCase();
-
-				// Only check words that haven't been checked for this file
-				// If the word wasn't encountered in training, discard it
-				if (isWord(text) && !checked.contains(text)
-						&& wordMap.containsKey(text)) {
-					checked.add(text);
-
-					// Calculate the probability
-					// NOTE: Adding '1' to the file count to avoid pSW = 0 or 1
-					Frequency f = wordMap.get(text);
-					final double pWS = (1.0*f.spamFileCount+1)/spamFiles;
-					final double pWH = (1.0*f.hamFileCount+1)/hamFiles;
-					final double pSW = pWS/(pWS + pWH);
-					eta = eta
-							+ (Math.log(1 - pSW) - Math.log(pSW));
-				}
-			}
-			file.setSpamProbability(1.0/(1.0+Math.pow(Math.E, eta)));
-			s.close();
-
-		} catch (Exception e) {
-			e.printStackTrace();
+		return isSpam(file, new File(path), getModel(), EXTRACTORS.get(),
+				null);
+	}
+	
+	/**
+	 * <b><em>score</em></b>
+	 * 
+	 * <p>Gets the spam probability of an e-mail that is already in memory,
+	 * such as one sent to a {@link ClassificationServer}. The e-mail is read
+	 * the same way as a file (see {@link Tokenizer}), within the scoring
+	 * budget (see {@link #setBudget(ScoringBudget)}). This is safe to call
+	 * from any number of threads at once: each thread reads with its own
+	 * feature extractor and the model is never modified.</p>
+	 * 
+	 * @param text - the UTF-8 bytes of the e-mail.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @return the spam probability, which is greater than
+	 * {@value #SPAM_THRESHOLD} for spam.
+	 */
+	public double score(byte[] text, int start, int end) {
+		long begin = System.nanoTime();
+		return score(text, start, end, null, getModel(), budget,
+				EXTRACTORS.get(), null, begin);
+	}
+	
+	/**
+	 * <b><em>score</em></b>
+	 * 
+	 * <p>Gets the spam probability of an e-mail that is already in memory
+	 * with a scoring model and budget, and adds it to the metrics.</p>
+	 * 
+	 * @param text - the UTF-8 bytes of the e-mail.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param path - the file the e-mail was read from, or null.
+	 * @param model - the scoring model.
+	 * @param budget - the scoring budget.
+	 * @param extractor - the feature extractor of the current thread.
+	 * @param timer - the timer of the phase, which may be null.
+	 * @param begin - the time scoring started, in nanoseconds.
+	 * @return the spam probability.
+	 */
+	private double score(byte[] text, int start, int end, File path,
+			ScoringModel model, ScoringBudget budget,
+			FeatureExtractor extractor, FilterMetrics.Timer timer,
+			long begin) {
+		
+		// Use the result of an earlier copy of the e-mail
+		end = Tokenizer.prefix(text, start, end, budget.getMaxBytes());
+		ResultCache cache = this.cache;
+		double probability = Double.NaN;
+		long hash = 0;
+		int tokens = 0;
+		if (cache != null) {
+			hash = ResultCache.hash(text, start, end);
+			probability = cache.get(model, budget, hash);
 		}
 		
-		return file.getSpamProbability() > SPAM_THRESHOLD;
+		// Or score the e-mail
+		if (Double.isNaN(probability)) {
+			extractor.extract(text, start, end, model.getIndex(),
+					budget);
+			probability = model.score(extractor, budget.getStrongestWords());
+			tokens = extractor.getTokenCount();
+			if (cache != null) {
+				cache.put(model, budget, hash, probability);
+			}
+		}
+		metrics.scored(path, end - start, tokens, probability,
+				System.nanoTime() - begin);
+		if (timer != null) {
+			timer.read(end - start, tokens);
+		}
+		return probability;
 	}
 	
-	public File getRoot() {
-		return root;
-	}
-
-	public void setRoot(File root) {
-		this.root = (root == null)? new File(".") : root;
+	/**
+	 * <b><em>compare</em></b>
+	 * 
+	 * <p>Scores every test file (see {@link #test()}) both with a scoring
+	 * budget and in full, and reports how much the budget changes the
+	 * results and how much time it saves. The files are scored one at a time
+	 * on the calling thread, without the result cache, and the counters of
+	 * the filter are not changed. Each file is read with the budget first,
+	 * so reading it in full may be helped by the operating system's file
+	 * cache, which makes the time saved look smaller rather than larger.</p>
+	 * 
+	 * @param budget - the budget to compare to full scoring.
+	 * @return the report.
+	 * @see {@link #setBudget(ScoringBudget)}
+	 */
+	public DriftReport compare(ScoringBudget budget) {
+		ScoringModel model = getModel();
+		FeatureExtractor extractor = EXTRACTORS.get();
+		DriftReport report = new DriftReport(budget);
+		try (MessageIterator files = scan(FilterMetrics.Phase.TEST)) {
+			while (files.hasNext()) {
+				compare(files.next(), model, budget, extractor, report);
+			}
+		}
+		return report;
 	}
 	
-	public int getSpamFiles() {
-		return spamFiles;
+	/**
+	 * <b><em>compare</em></b>
+	 * 
+	 * <p>Scores a file or an e-mail from an archive both with a budget and
+	 * in full, and adds the results to a report.</p>
+	 * 
+	 * @param file - the file or e-mail with its actual class.
+	 * @param model - the scoring model.
+	 * @param budget - the scoring budget.
+	 * @param extractor - the feature extractor to read the file with.
+	 * @param report - the report to add the results to.
+	 */
+	private void compare(CorpusScanner.Entry file, ScoringModel model,
+			ScoringBudget budget, FeatureExtractor extractor,
+			DriftReport report) {
+		byte[] text = file.getText();
+		try {
+			
+			// Score the file with the budget
+			long start = System.nanoTime();
+			if (text == null) {
+				extractor.read(file.getFile(), budget.getMaxBytes());
+				extractor.extract(model.getIndex(), budget);
+			} else {
+				extractor.extract(text, 0, file.getLength(),
+						model.getIndex(), budget);
+			}
+			double budgeted = model.score(extractor,
+					budget.getStrongestWords());
+			report.read(true, extractor, System.nanoTime() - start);
+			
+			// Then in full
+			start = System.nanoTime();
+			if (text == null) {
+				extractor.read(file.getFile());
+				extractor.extract(model.getIndex(), ScoringBudget.FULL);
+			} else {
+				extractor.extract(text, 0, file.getLength(),
+						model.getIndex(), ScoringBudget.FULL);
+			}
+			double full = model.score(extractor);
+			report.read(false, extractor, System.nanoTime() - start);
+			report.scored(file.isSpam(), full, budgeted);
+		} catch (IOException e) {
+			metrics.failed(file.getFile(), e);
+		}
 	}
-
-	public int getHamFiles() {
-		return hamFiles;
+	
+	/**
+	 * <b><em>scan</em></b>
+	 * 
+	 * <p>Starts finding the files of a phase with the layout of the
+	 * filter, with the e-mails of archive files in place of the
+	 * archives.</p>
+	 * 
+	 * @param phase - {@link FilterMetrics.Phase#TRAIN} or
+	 * {@link FilterMetrics.Phase#TEST}.
+	 * @return the files and e-mails, which must be closed.
+	 */
+	private MessageIterator scan(FilterMetrics.Phase phase) {
+		return new MessageIterator(new CorpusScanner(root, layout, phase,
+				parallelism, metrics), metrics);
 	}
-
-	public int getSpamGuesses() {
-		return spamGuesses;
+	
+	/**
+	 * <b><em>classify</em></b>
+	 * 
+	 * <p>Classifies the files from an iterator one batch at a time and gives
+	 * each batch to the listener of the progress. Each file is classified or
+	 * handed to the pipeline as soon as it is taken from the iterator, since
+	 * the bytes of an e-mail from an archive are only kept until the next
+	 * one is read.</p>
+	 * 
+	 * @param files - the files to classify with their actual classes.
+	 * @param fullPath - true if the test files should be named by their
+	 * path, false for just the name of the file.
+	 * @param model - the scoring model.
+	 * @param pipeline - the pipeline to classify the files in, or null to
+	 * classify them on this thread.
+	 * @param progress - the progress of testing.
+	 * @return true if all of the files were classified, false if it was
+	 * cancelled.
+	 */
+	private boolean classify(Iterator<CorpusScanner.Entry> files,
+			boolean fullPath, ScoringModel model,
+			ReadPipeline<TestFile> pipeline, Progress progress) {
+		TestFile[] tests = new TestFile[TEST_BATCH_SIZE];
+		FeatureExtractor extractor = EXTRACTORS.get();
+		try {
+			while (files.hasNext()) {
+				
+				// Create a test file for each file in the batch
+				int size = 0;
+				while (size < tests.length && files.hasNext()
+						&& !progress.isCancelled()) {
+					CorpusScanner.Entry file = files.next();
+					TestFile test = new TestFile(file.getName(fullPath), 0.0,
+							file.getActualClass());
+					tests[size ++] = test;
+					
+					// Check its status on this thread
+					if (pipeline == null) {
+						classify(test, file, model, extractor,
+								progress.timer);
+						progress.step();
+					}
+					
+					// Or in the pipeline, each file keeps its place
+					else if (file.getText() == null) {
+						pipeline.submit(test, file.getFile());
+					} else {
+						pipeline.submit(test, file.getFile(), file.getText(),
+								file.getLength());
+					}
+				}
+				if (pipeline != null) {
+					pipeline.await();
+				}
+				if (progress.isCancelled()) {
+					return false;
+				}
+				progress.tested(Collections.unmodifiableList(
+						Arrays.asList(Arrays.copyOf(tests, size))));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		
+		return true;
 	}
-
-	public int getCorrectSpamGuesses() {
-		return correctSpamGuesses;
+	
+	/**
+	 * <b><em>classify</em></b>
+	 * 
+	 * <p>Checks the status of a test file and updates the number of correct
+	 * guesses. This is safe to call from more than one thread.</p>
+	 * 
+	 * @param file - the test file.
+	 * @param entry - the file to read or the e-mail from an archive.
+	 * @param model - the scoring model.
+	 * @param extractor - the feature extractor of the current thread.
+	 * @param timer - the timer of the phase.
+	 */
+	private void classify(TestFile file, CorpusScanner.Entry entry,
+			ScoringModel model, FeatureExtractor extractor,
+			FilterMetrics.Timer timer) {
+		if (entry.getText() == null) {
+			isSpam(file, entry.getFile(), model, extractor, timer);
+		} else {
+			long begin = System.nanoTime();
+			file.setSpamProbability(score(entry.getText(), 0,
+					entry.getLength(), entry.getFile(), model, budget,
+					extractor, timer, begin));
+		}
+		count(file);
 	}
-
-	public int getCorrectGuessCount() {
-		return correctGuess;
+	
+	/**
+	 * <b><em>count</em></b>
+	 * 
+	 * <p>Updates the number of correct guesses with a test file that was
+	 * classified. This is safe to call from more than one thread.</p>
+	 * 
+	 * @param file - the test file.
+	 */
+	private void count(TestFile file) {
+		boolean isSpam = file.getSpamProbability() > SPAM_THRESHOLD;
+		if (isSpam) {
+			this.spamGuesses.increment();
+		}
+		if (isSpam == TestFile.SPAM.equals(file.getActualClass())) {
+			this.correctGuess.increment();
+			if (isSpam) {
+				this.correctSpamGuesses.increment();
+			}
+		}
 	}
-
+	
 	/**
-	 * <b><em>updateMap</em></b>
+	 * <b><em>isSpam</em></b>
 	 * 
-	 * <p>Updates the word map to include the words from this file. If a
-	 * particular word is already in the map, the frequency is updated. This
-	 * is used during the training phase of the filter.</p>
+	 * <p>Classifies a file with a scoring model. Nothing is shared between
+	 * calls except the model, which is never modified, and the metrics,
+	 * which are thread-safe, so this is safe to call from more than one
+	 * thread as long as each thread has its own feature extractor.</p>
 	 * 
-	 * @param file - the file to scrape the words from.
-	 * @param isSpam - the actual class of the file.
+	 * <p>If the same content was already scored by the model, the result is
+	 * taken from the cache without finding the words again. The time taken is
+	 * added to the latency histogram of the metrics. A file that cannot be
+	 * read is recorded as a failure and keeps its previous probability.</p>
 	 * 
-	 * @see {@link #train()}
+	 * @param file - the test file to set the spam probability of.
+	 * @param path - the file to read.
+	 * @param model - the scoring model.
+	 * @param extractor - the feature extractor of the current thread.
+	 * @param timer - the timer of the phase, which may be null.
+	 * @return true if and only if the probability of the file being spam is
+	 * greater than {@value #SPAM_THRESHOLD}.
 	 */
-	private void updateMap(File file, boolean isSpam) {
-		
-		// Special case
-		if (file == null || !file.isFile()) {
-			return;
-		}
+	private boolean isSpam(TestFile file, File path, ScoringModel model,
+			FeatureExtractor extractor, FilterMetrics.Timer timer) {
 		
 		// Read the file
+		long start = System.nanoTime();
 		try {
-			List<String> counted = new ArrayList<>();
-
-			Scanner s = new Scanner(file);
-			while (s.hasNext()) {
-				String text = s.next().toLowerCase();	
-				// Only check words
-				if (isWord(text)) {
-
-					boolean contains = counted.contains(text);
-					if (!contains) {
-						counted.add(text);
-					}
-
-					// Add the word to the map
-					Frequency f = null;
-					if (wordMap.containsKey(text)) {
-						f = wordMap.get(text);
-					} else {
-						f = new Frequency();
-					}
-					if (isSpam) {
-						f.spamTotal ++;
-						if (!contains) {
-							f.spamFileCount ++;
-						}
-					} else {
-						f.hamTotal ++;
-						if (!contains) {
-							f.hamFileCount ++;
-						}
-					}
-					this.wordMap.put(text, f);
-				}
+			
+			// Use the result of an earlier copy of the file
+			ScoringBudget budget = this.budget;
+			extractor.read(path, budget.getMaxBytes());
+			ResultCache cache = this.cache;
+			double probability = Double.NaN;
+			long hash = 0;
+			if (cache != null) {
+				hash = extractor.hash();
+				probability = cache.get(model, budget, hash);
 			}
-			s.close();
 			
+			// Or add up the weights of the words that were encountered in
+			// training (see ScoringModel)
+			if (Double.isNaN(probability)) {
+				extractor.extract(model.getIndex(), budget);
+				probability = model.score(extractor,
+						budget.getStrongestWords());
+				if (cache != null) {
+					cache.put(model, budget, hash, probability);
+				}
+			}
+			file.setSpamProbability(probability);
+			metrics.scored(path, extractor.getByteCount(),
+					extractor.getTokenCount(), probability,
+					System.nanoTime() - start);
+			if (timer != null) {
+				timer.read(extractor);
+			}
+		
 		} catch (Exception e) {
-			e.printStackTrace();
+			if (timer != null) {
+				timer.failed(path, e);
+			} else {
+				metrics.failed(path, e);
+			}
 		}
+		
+		return file.getSpamProbability() > SPAM_THRESHOLD;
 	}
 	
 	/**
-	 * <b><em>isWord</em></b>
+	 * <b><em>compile</em></b>
+	 * 
+	 * <p>Compiles the trained counts into the {@link ScoringModel} that is
+	 * used to classify files. This is done at the end of {@link #train()} and
+	 * {@link #load(File)}. After files are added or removed, the model is
+	 * compiled again the next time it is needed.</p>
 	 * 
-	 * <p>Checks if a string is considered a word. Note: the string is
-	 * assumed to be all lower-case.</p>
+	 * <p>An off-heap model (see {@link #setOffHeap(boolean)}) keeps the
+	 * counts as well, so the vocabulary is dropped once it is compiled and
+	 * only copied back onto the heap if it is changed.</p>
 	 * 
-	 * @param text - the string.
-	 * @return true if and only if the string is considered a word.
+	 * @return the scoring model.
 	 */
-	private static boolean isWord(String text) {
-		return text.matches("^[a-z]*$");
+	public synchronized ScoringModel compile() {
+		FilterMetrics.Timer timer = metrics.start(FilterMetrics.Phase.COMPILE);
+		Vocabulary vocabulary = vocabulary();
+		ScoringModel model = offHeap? OffHeapModel.compile(vocabulary,
+				spamFiles, hamFiles) : ScoringModel.compile(vocabulary,
+				spamFiles, hamFiles);
+		this.model = model;
+		if (offHeap) {
+			this.vocabulary = null;
+		}
+		
+		// The cached results are for the old model
+		ResultCache cache = this.cache;
+		if (cache != null) {
+			cache.clear();
+		}
+		timer.stop(vocabulary.size(), false);
+		return model;
 	}
 	
-	/** The {@code Frequency} class is used to keep track of the number of
-	 * times a word shows up. It has counts for the total times it shows up in
-	 * spam/non-spam files and the number of spam/non-spam files it shows. */
-	private static class Frequency {
-		
-		/** The number of times a word appears in a ham file. */
-		public int hamFileCount;
-		
-		/** The number of times the word shows up in all ham files. */
-		public int hamTotal;
+	/**
+	 * <b><em>getModel</em></b>
+	 * 
+	 * <p>Gets the scoring model for the current training data. This only
+	 * takes the lock of the filter if the model has to be compiled, so it
+	 * can be called by any number of threads at once.</p>
+	 * 
+	 * @return the scoring model for the current training data.
+	 * @see {@link #compile()}
+	 */
+	public ScoringModel getModel() {
+		ScoringModel model = this.model;
+		if (model != null) {
+			return model;
+		}
+		synchronized (this) {
+			return (this.model == null)? compile() : this.model;
+		}
+	}
+	
+	/**
+	 * <b><em>prune</em></b>
+	 * 
+	 * <p>Removes the words chosen by a pruner from the trained vocabulary and
+	 * compiles the smaller model, which is then used, saved and trained
+	 * further like any other. The test files (see {@link #test()}) are
+	 * scored by the models from before and after pruning to report how much
+	 * the accuracy changed. They are scored on the calling thread, after the
+	 * new model is in use, and the counters of the filter are not
+	 * changed.</p>
+	 * 
+	 * <p>Documents added before pruning (see
+	 * {@link #addDocument(File, boolean)}) can no longer be removed with
+	 * {@link #removeDocument(Document)}.</p>
+	 * 
+	 * @param pruner - the pruner.
+	 * @return the sizes and accuracy of the model before and after.
+	 */
+	public PruningReport prune(VocabularyPruner pruner) {
+		ScoringModel before, after;
+		synchronized (this) {
+			before = getModel();
+			this.vocabulary = pruner.prune(vocabulary(), spamFiles,
+					hamFiles);
+			this.generation = GENERATIONS.incrementAndGet();
+			this.fingerprint = CorpusFingerprint.unknown();
+			after = compile();
+		}
 		
-		/** The number of times a word appears in a spam file. */
-		public int spamFileCount;
+		// Score the test files with both models
+		PruningReport report = new PruningReport(pruner, before, after);
+		compare(before, after, report::scored);
+		return report;
+	}
+	
+	/**
+	 * <b><em>compareHashed</em></b>
+	 * 
+	 * <p>Measures the error of a filter trained with hashed words (see
+	 * {@link #setHashBuckets(int)}) against this filter, which must have
+	 * been trained on the same files with every word kept. The counts and
+	 * weights of every word are compared to those of its bucket, and the
+	 * test files of this filter are scored by both models on the calling
+	 * thread.</p>
+	 * 
+	 * @param hashed - the filter trained with hashed words.
+	 * @return the errors of the hashed model.
+	 * @throws IllegalArgumentException if this filter is hashed or the other
+	 * is not.
+	 */
+	public HashingReport compareHashed(SpamFilter hashed) {
+		ScoringModel exact = getModel(), model = hashed.getModel();
+		HashingReport report = new HashingReport(exact, model);
+		compare(exact, model, report::scored);
+		return report;
+	}
+	
+	/**
+	 * <b><em>newCrossValidator</em></b>
+	 * 
+	 * <p>Reads the training files (see {@link #train()}) into a
+	 * {@link CrossValidator}, which can then test the filter with k-fold
+	 * cross-validation as many times as needed without reading them again
+	 * (see {@link CrossValidator#validate(double[], double[], int)}). The
+	 * model of the filter is not changed.</p>
+	 * 
+	 * <p>The words are hashed like the filter's (see
+	 * {@link #setHashBuckets(int)}), and every word of a file is kept
+	 * whatever the scoring budget is. The files are read by the read threads
+	 * of the filter (see {@link #setReadThreads(int)}) and turned into words
+	 * on one more thread. Each file goes in a fold by its path and the
+	 * seed, so the folds do not change with the order the files are
+	 * found in.</p>
+	 * 
+	 * @param folds - the number of folds.
+	 * @param seed - the seed of the random order the files are put in folds.
+	 * @param listener - the listener, which may be null.
+	 * @return the training files, or null if reading them was cancelled or
+	 * the root is not a directory.
+	 * @throws IllegalArgumentException if there are fewer than 2 folds.
+	 */
+	public CrossValidator newCrossValidator(int folds, long seed,
+			ProgressListener listener) {
+		CrossValidator validator = new CrossValidator(folds, seed);
 		
-		/** The number of times the word shows up in all spam files. */
-		public int spamTotal;
+		// Special case
+		if (root == null || !root.isDirectory()) {
+			return null;
+		}
+		Progress progress = new Progress(listener, -1,
+				metrics.start(FilterMetrics.Phase.CROSS_VALIDATE));
+		Vocabulary vocabulary = newVocabulary(hashBuckets);
+		boolean interrupted = false;
+		try (MessageIterator files = scan(FilterMetrics.Phase.TRAIN);
+				ReadPipeline<CorpusScanner.Entry> pipeline =
+				newCrossValidationPipeline(validator, vocabulary, progress)) {
+			while (files.hasNext() && !progress.isCancelled()) {
+				CorpusScanner.Entry file = files.next();
+				if (file.getText() == null) {
+					pipeline.submit(file, file.getFile());
+				} else {
+					pipeline.submit(file, file.getFile(), file.getText(),
+							file.getLength());
+				}
+			}
+			pipeline.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			interrupted = true;
+		}
+		boolean cancelled = interrupted || progress.isCancelled();
+		progress.timer.stop(vocabulary.size(), cancelled);
+		return cancelled? null : validator;
+	}
+	
+	/**
+	 * <b><em>compare</em></b>
+	 * 
+	 * <p>Scores each test file with two models on the calling thread. The
+	 * counters of the filter are not changed.</p>
+	 * 
+	 * @param first - the first model.
+	 * @param second - the second model.
+	 * @param comparison - receives the scores of each file.
+	 */
+	private void compare(ScoringModel first, ScoringModel second,
+			ModelComparison comparison) {
+		FeatureExtractor extractor = EXTRACTORS.get();
+		try (MessageIterator files = scan(FilterMetrics.Phase.TEST)) {
+			while (files.hasNext()) {
+				CorpusScanner.Entry file = files.next();
+				byte[] text = file.getText();
+				double p;
+				if (text == null) {
+					try {
+						extractor.read(file.getFile());
+					} catch (IOException e) {
+						metrics.failed(file.getFile(), e);
+						continue;
+					}
+					extractor.extract(first.getIndex(), ScoringBudget.FULL);
+					p = first.score(extractor);
+					extractor.extract(second.getIndex(), ScoringBudget.FULL);
+				}
+				
+				// An e-mail from an archive is already in memory
+				else {
+					extractor.extract(text, 0, file.getLength(),
+							first.getIndex(), ScoringBudget.FULL);
+					p = first.score(extractor);
+					extractor.extract(text, 0, file.getLength(),
+							second.getIndex(), ScoringBudget.FULL);
+				}
+				comparison.scored(file.isSpam(), p, second.score(extractor));
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>clear</em></b>
+	 * 
+	 * <p>Removes all of the words and training file counts, leaving the
+	 * filter as it was before training.</p>
+	 */
+	public synchronized void clear() {
+		this.vocabulary = newVocabulary(hashBuckets);
+		this.generation = GENERATIONS.incrementAndGet();
+		this.model = null;
+		this.fingerprint = CorpusFingerprint.unknown();
+		this.spamFiles = 0;
+		this.hamFiles = 0;
+	}
+	
+	/**
+	 * <b><em>addDocument</em></b>
+	 * 
+	 * <p>Trains the filter with one more file, without training again on the
+	 * rest of the files. The filter ends up the same as if the file had been
+	 * in the training directory when {@link #train()} was called. An archive
+	 * file holds more than one e-mail, so it must be added with
+	 * {@link #addDocuments(File, boolean)}.</p>
+	 * 
+	 * @param file - the training file.
+	 * @param isSpam - the actual class of the file.
+	 * @return the words the file added, which can be passed to
+	 * {@link #removeDocument(Document)} to take the file back out.
+	 * @throws IOException if the file could not be read.
+	 * @throws IllegalArgumentException if the file is an archive (see
+	 * {@link MailArchive#isArchive(File)}).
+	 * 
+	 * @see {@link #removeDocument(Document)}
+	 */
+	public synchronized Document addDocument(File file, boolean isSpam)
+			throws IOException {
+		if (MailArchive.isArchive(file)) {
+			throw new IllegalArgumentException(
+					"An archive has more than one e-mail: " + file);
+		}
+		Vocabulary vocabulary = vocabulary();
+		extractor.extract(file, vocabulary, true);
+		return addWords(vocabulary, isSpam);
+	}
+	
+	/**
+	 * <b><em>addDocuments</em></b>
+	 * 
+	 * <p>Trains the filter with one more file (see
+	 * {@link #addDocument(File, boolean)}), which may be an mbox file or a
+	 * zip, tar or gzip archive. Each e-mail in an archive is added as a
+	 * document of its own, the same as {@link #train()} does. An archive
+	 * that could not be read is recorded in the metrics (see
+	 * {@link #getMetrics()}), keeping the e-mails that were read before the
+	 * error.</p>
+	 * 
+	 * @param file - the training file or archive.
+	 * @param isSpam - the actual class of the file.
+	 * @return the words each e-mail added, in the order of the archive, or
+	 * the words of the file if it is not an archive.
+	 * @throws IOException if a file that is not an archive could not be
+	 * read.
+	 * 
+	 * @see {@link #removeDocument(Document)}
+	 */
+	public synchronized List<Document> addDocuments(File file,
+			boolean isSpam) throws IOException {
+		if (!MailArchive.isArchive(file)) {
+			return Collections.singletonList(addDocument(file, isSpam));
+		}
+		List<Document> documents = new ArrayList<>();
+		Vocabulary vocabulary = vocabulary();
+		try (MessageIterator messages = messages(file, isSpam)) {
+			while (messages.hasNext()) {
+				CorpusScanner.Entry message = messages.next();
+				extractor.extract(message.getText(), 0, message.getLength(),
+						vocabulary, true);
+				documents.add(addWords(vocabulary, isSpam));
+			}
+		}
+		return documents;
+	}
+	
+	/**
+	 * <b><em>removeDocument</em></b>
+	 * 
+	 * <p>Removes a training file from the filter. The file is read again to
+	 * find the words to remove, so it must not have changed since it was
+	 * used for training. Use {@link #removeDocument(Document)} if the file may
+	 * have changed or been deleted. Each e-mail in an archive file is
+	 * removed (see {@link #addDocuments(File, boolean)}), and an archive
+	 * that could not be read is recorded in the metrics.</p>
+	 * 
+	 * @param file - the training file or archive.
+	 * @param isSpam - the actual class of the file.
+	 * @throws IOException if a file that is not an archive could not be
+	 * read.
+	 * 
+	 * @see {@link #addDocument(File, boolean)}
+	 */
+	public synchronized void removeDocument(File file, boolean isSpam)
+			throws IOException {
+		Vocabulary vocabulary = vocabulary();
+		if (!MailArchive.isArchive(file)) {
+			extractor.extract(file, vocabulary, false);
+			removeWords(vocabulary, isSpam);
+			return;
+		}
+		try (MessageIterator messages = messages(file, isSpam)) {
+			while (messages.hasNext()) {
+				CorpusScanner.Entry message = messages.next();
+				extractor.extract(message.getText(), 0, message.getLength(),
+						vocabulary, false);
+				removeWords(vocabulary, isSpam);
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>removeDocument</em></b>
+	 * 
+	 * <p>Removes a training file that was added with
+	 * {@link #addDocument(File, boolean)}.</p>
+	 * 
+	 * @param document - the words the file added.
+	 * @throws IllegalArgumentException if the filter was retrained, loaded,
+	 * pruned or cleared since the document was added.
+	 */
+	public synchronized void removeDocument(Document document) {
+		if (document.getGeneration() != generation) {
+			throw new IllegalArgumentException(
+					"The document is from a different model");
+		}
+		Vocabulary vocabulary = vocabulary();
+		boolean isSpam = document.isSpam();
+		for (int i = 0; i < document.size(); i ++) {
+			vocabulary.uncount(document.id(i), isSpam, document.count(i));
+		}
+		if (isSpam) {
+			this.spamFiles --;
+		} else {
+			this.hamFiles --;
+		}
+		this.model = null;
+		this.fingerprint = CorpusFingerprint.unknown();
+	}
+	
+	/**
+	 * Counts the words of the last document read by the extractor of the
+	 * filter as one more training file.
+	 * 
+	 * @param vocabulary - the vocabulary of the filter.
+	 * @param isSpam - the actual class of the document.
+	 * @return the words the document added.
+	 */
+	private Document addWords(Vocabulary vocabulary, boolean isSpam) {
+		for (int i = 0, n = extractor.size(); i < n; i ++) {
+			vocabulary.count(extractor.id(i), isSpam, extractor.count(i));
+		}
+		if (isSpam) {
+			this.spamFiles ++;
+		} else {
+			this.hamFiles ++;
+		}
+		this.model = null;
+		this.fingerprint = CorpusFingerprint.unknown();
+		return new Document(generation, extractor, isSpam);
+	}
+	
+	/**
+	 * Takes the words of the last document read by the extractor of the
+	 * filter back out as a training file.
+	 * 
+	 * @param vocabulary - the vocabulary of the filter.
+	 * @param isSpam - the actual class of the document.
+	 */
+	private void removeWords(Vocabulary vocabulary, boolean isSpam) {
+		for (int i = 0, n = extractor.size(); i < n; i ++) {
+			vocabulary.uncount(extractor.id(i), isSpam, extractor.count(i));
+		}
+		if (isSpam) {
+			this.spamFiles --;
+		} else {
+			this.hamFiles --;
+		}
+		this.model = null;
+		this.fingerprint = CorpusFingerprint.unknown();
+	}
+	
+	/**
+	 * Starts reading the e-mails of an archive file.
+	 * 
+	 * @param file - the archive.
+	 * @param isSpam - the actual class of its e-mails.
+	 * @return the e-mails, which must be closed.
+	 */
+	private MessageIterator messages(File file, boolean isSpam) {
+		return new MessageIterator(Collections.singletonList(
+				new CorpusScanner.Entry(file, isSpam? TestFile.SPAM
+				: TestFile.NOT_SPAM)).iterator(), metrics);
+	}
+	
+	/**
+	 * <b><em>save</em></b>
+	 * 
+	 * <p>Saves the trained model to a file so that it can be loaded with
+	 * {@link #load(File)} instead of training again. The file has a header
+	 * (the magic number "SPMF", the format version, the number of spam and
+	 * ham training files, the number of buckets of a hashed vocabulary or 0
+	 * and the {@link CorpusFingerprint} of the training files) followed by
+	 * the vocabulary. An off-heap model is written straight
+	 * from native memory in the same format.</p>
+	 * 
+	 * @param file - the file to save to.
+	 * @throws IOException if the file could not be written.
+	 * @see {@link #load(File)}
+	 */
+	public synchronized void save(File file) throws IOException {
+		
+		// Write to a temporary file so the model is never half written
+		FilterMetrics.Timer timer = metrics.start(FilterMetrics.Phase.SAVE);
+		File tmp = new File(file.getAbsolutePath()+".tmp");
+		WordIndex words = (vocabulary != null)? vocabulary
+				: model.getIndex();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmp), 65536))) {
+			out.writeInt(MODEL_MAGIC);
+			out.writeInt(MODEL_VERSION);
+			out.writeInt(spamFiles);
+			out.writeInt(hamFiles);
+			out.writeInt(words.getBuckets());
+			fingerprint.write(out);
+			if (vocabulary != null) {
+				vocabulary.write(out);
+			} else {
+				((OffHeapModel) model).write(out);
+			}
+		}
+		timer.read(tmp.length(), 0);
+		Files.move(tmp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		timer.stop(words.size(), false);
+	}
+	
+	/**
+	 * <b><em>load</em></b>
+	 * 
+	 * <p>Loads a model saved by {@link #save(File)}, replacing the current
+	 * model. The file is memory-mapped and copied into the vocabulary in
+	 * bulk, or straight into an off-heap model without using the heap (see
+	 * {@link #setOffHeap(boolean)}). Models saved before hashed vocabularies
+	 * were added can still be loaded.</p>
+	 * 
+	 * @param file - the file to load.
+	 * @throws IOException if the file could not be read or is not a valid
+	 * model.
+	 * @see {@link #save(File)}
+	 */
+	public synchronized void load(File file) throws IOException {
+		FilterMetrics.Timer timer = metrics.start(FilterMetrics.Phase.LOAD);
+		ScoringModel model;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.remaining() < 8 || in.getInt() != MODEL_MAGIC) {
+				throw new IOException("Not a spam filter model: "+file);
+			}
+			int version = in.getInt();
+			if (version < 1 || version > MODEL_VERSION) {
+				throw new IOException("Unsupported model version: "+version);
+			}
+			
+			// Read the rest of the header, which is longer in later versions
+			int header = (version >= 3)? 12 + CorpusFingerprint.BYTES
+					: (version >= 2)? 12 : 8;
+			if (in.remaining() < header) {
+				throw new IOException("Unexpected end of model: "+file);
+			}
+			int spam, ham, buckets;
+			CorpusFingerprint fingerprint;
+			try {
+				spam = in.getInt();
+				ham = in.getInt();
+				buckets = (version >= 2)? in.getInt() : 0;
+				fingerprint = (version >= 3)? CorpusFingerprint.read(in)
+						: CorpusFingerprint.unknown();
+			} catch (BufferUnderflowException e) {
+				throw new IOException("Unexpected end of model: "+file, e);
+			}
+			if (offHeap) {
+				
+				// Compile the model as it is copied
+				model = OffHeapModel.read(in, buckets, spam, ham);
+				this.vocabulary = null;
+			} else {
+				this.vocabulary = (buckets == 0)? Vocabulary.read(in)
+						: Vocabulary.readHashed(in, buckets);
+				model = null;
+			}
+			this.generation = GENERATIONS.incrementAndGet();
+			this.spamFiles = spam;
+			this.hamFiles = ham;
+			this.fingerprint = fingerprint;
+			this.model = model;
+			timer.read(channel.size(), 0);
+		}
+		timer.stop((model == null)? vocabulary.size()
+				: model.getIndex().size(), false);
+		if (model == null) {
+			compile();
+		} else {
+			ResultCache cache = this.cache;
+			if (cache != null) {
+				cache.clear();
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>loadOrTrain</em></b>
+	 * 
+	 * <p>Loads the model saved in root/{@value #MODEL_FILE} if it is newer
+	 * than the training directories, was trained on the training files as
+	 * they are now and was trained the same way (hashed or not, see
+	 * {@link #setHashBuckets(int)}). Otherwise, the filter is trained with
+	 * {@link #train()} and the model is saved there for next time.</p>
+	 * 
+	 * <p>A file that is edited or replaced does not change the time of its
+	 * directory, so the name, size and time of every training file are
+	 * compared to the ones the model was trained on (see
+	 * {@link CorpusFingerprint}). Models saved before this was added are
+	 * always trained again.</p>
+	 * 
+	 * @return true if the model was loaded, false if it was trained.
+	 */
+	public boolean loadOrTrain() {
+		return loadOrTrain(null);
+	}
+	
+	/**
+	 * <b><em>loadOrTrain</em></b>
+	 * 
+	 * <p>Loads the saved model or trains the filter (see
+	 * {@link #loadOrTrain()}), reporting the progress of training to a
+	 * listener. The model is only saved if training was not cancelled.</p>
+	 * 
+	 * @param listener - the listener, which may be null.
+	 * @return true if the model was loaded, false if it was trained.
+	 */
+	public boolean loadOrTrain(ProgressListener listener) {
+		
+		// Check if the saved model is up to date
+		File model = new File(root, MODEL_FILE);
+		if (model.isFile()) {
+			CorpusLayout layout = this.layout;
+			long trained = new File(root, TRAIN_DIR).lastModified();
+			for (String dir : layout.getFolders(
+					FilterMetrics.Phase.TRAIN).keySet()) {
+				trained = Math.max(trained,
+						new File(root, dir).lastModified());
+			}
+			if (layout.getManifest() != null) {
+				trained = Math.max(trained,
+						layout.getManifest().lastModified());
+			}
+			if (model.lastModified() > trained) {
+				try {
+					CorpusFingerprint files = CorpusFingerprint.scan(root,
+							layout, parallelism, metrics);
+					load(model);
+					if (getModel().getIndex().getBuckets() == hashBuckets
+							&& files.equals(getFingerprint())) {
+						return true;
+					}
+				} catch (IOException e) {
+					metrics.failed(model, e);
+				}
+			}
+		}
+		
+		// Train the filter and save the model
+		if (train(listener)) {
+			try {
+				save(model);
+			} catch (IOException e) {
+				metrics.failed(model, e);
+			}
+		}
+		return false;
+	}
+	
+	public File getRoot() {
+		return root;
+	}
+	
+	/**
+	 * <b><em>getFingerprint</em></b>
+	 * 
+	 * @return the fingerprint of the training files the model was trained
+	 * on, which is {@link CorpusFingerprint#unknown()} if files were added
+	 * or removed since or the model was pruned.
+	 */
+	public synchronized CorpusFingerprint getFingerprint() {
+		return fingerprint;
+	}
+	
+	public void setRoot(File root) {
+		this.root = (root == null)? new File(".") : root;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * <b><em>setParallelism</em></b>
+	 * 
+	 * <p>Sets the number of threads used by {@link #train()} and
+	 * {@link #test()}. A value of 1 or less trains and tests the filter on the
+	 * calling thread. Otherwise, the files are read by a {@link ReadPipeline}
+	 * (see {@link #setReadThreads(int)}) and each thread counts the words of
+	 * the files it is given in a separate vocabulary, and the vocabularies
+	 * are merged once all of the files have been read. The test files are
+	 * classified in parallel, but are still listed in the same order.</p>
+	 * 
+	 * @param parallelism - the number of training and testing threads.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = (parallelism < 1)? 1 : parallelism;
+	}
+	
+	public int getReadThreads() {
+		return readThreads;
+	}
+	
+	/**
+	 * <b><em>setReadThreads</em></b>
+	 * 
+	 * <p>Sets the number of threads that read the files while the other
+	 * threads find and count their words, when there is more than one thread
+	 * (see {@link #setParallelism(int)}). One is enough for a local disk, and
+	 * more keep more reads going at a time on a slow disk or a network file
+	 * system.</p>
+	 * 
+	 * @param readThreads - the number of threads that read files.
+	 */
+	public void setReadThreads(int readThreads) {
+		this.readThreads = (readThreads < 1)? 1 : readThreads;
+	}
+	
+	public int getSpamFiles() {
+		return spamFiles;
+	}
+	
+	public int getHamFiles() {
+		return hamFiles;
+	}
+	
+	public int getSpamGuesses() {
+		return spamGuesses.intValue();
+	}
+	
+	public int getCorrectSpamGuesses() {
+		return correctSpamGuesses.intValue();
+	}
+	
+	public int getCorrectGuessCount() {
+		return correctGuess.intValue();
+	}
+	
+	/**
+	 * <b><em>getCache</em></b>
+	 * 
+	 * <p>Gets the cache of the spam probabilities of the e-mails already
+	 * scored, which has the hit and miss counts.</p>
+	 * 
+	 * @return the result cache, or null if results are not cached.
+	 * @see {@link #setCacheSize(int)}
+	 */
+	public ResultCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * <b><em>setCacheSize</em></b>
+	 * 
+	 * <p>Sets the number of results kept by the result cache. E-mails with
+	 * exactly the same content as one in the cache are not scored again. The
+	 * cache is replaced by an empty one, or removed if the size is 0 or
+	 * less. The default size is {@value #DEFAULT_CACHE_SIZE}.</p>
+	 * 
+	 * @param size - the number of results to keep.
+	 * @see {@link #getCache()}
+	 */
+	public void setCacheSize(int size) {
+		this.cache = (size <= 0)? null : new ResultCache(size);
+	}
+	
+	public ScoringBudget getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * <b><em>setBudget</em></b>
+	 * 
+	 * <p>Sets the limits on how much of each e-mail is read and added up when
+	 * it is classified, which makes large e-mails faster to score but may
+	 * change the result. Training is not affected. By default, e-mails are
+	 * scored in full.</p>
+	 * 
+	 * @param budget - the budget, or null to score e-mails in full.
+	 * @see {@link #compare(ScoringBudget)}
+	 */
+	public void setBudget(ScoringBudget budget) {
+		this.budget = (budget == null)? ScoringBudget.FULL : budget;
+	}
+	
+	public int getHashBuckets() {
+		return hashBuckets;
+	}
+	
+	/**
+	 * <b><em>setHashBuckets</em></b>
+	 * 
+	 * <p>Sets how the next call to {@link #train()} counts the words. With 0,
+	 * every word is kept with its own counts. Otherwise, the words are hashed
+	 * into a fixed number of buckets (see {@link Vocabulary#hashed(int)}), so
+	 * the memory used by training and by the model is set by the number of
+	 * buckets instead of the number of words, at the cost of words in the
+	 * same bucket sharing their counts. The error this causes can be
+	 * measured with {@link #compareHashed(SpamFilter)}.</p>
+	 * 
+	 * @param buckets - the number of buckets, which is rounded up to a power
+	 * of two, or 0 to keep every word.
+	 */
+	public void setHashBuckets(int buckets) {
+		this.hashBuckets = Vocabulary.roundBuckets(buckets);
+	}
+	
+	public CorpusLayout getLayout() {
+		return layout;
+	}
+	
+	/**
+	 * <b><em>setLayout</em></b>
+	 * 
+	 * <p>Sets where the training and testing files are and whether they
+	 * are spam or ham. The next call to {@link #train()} or {@link #test()}
+	 * uses the new layout.</p>
+	 * 
+	 * @param layout - the layout, or null for {@link CorpusLayout#DEFAULT}.
+	 */
+	public void setLayout(CorpusLayout layout) {
+		this.layout = (layout == null)? CorpusLayout.DEFAULT : layout;
+	}
+	
+	public synchronized boolean isOffHeap() {
+		return offHeap;
+	}
+	
+	/**
+	 * <b><em>setOffHeap</em></b>
+	 * 
+	 * <p>Sets whether the model is compiled into an {@link OffHeapModel}. The
+	 * words, counts and weights of an off-heap model are kept in native
+	 * memory, and the vocabulary is dropped once it is compiled (see
+	 * {@link #compile()}), so the heap used by a trained or loaded filter
+	 * does not grow with the vocabulary. The scores are exactly the same
+	 * either way. If a model was already compiled, it is compiled again the
+	 * new way.</p>
+	 * 
+	 * <p>The vocabulary is copied back with the same word ids when it is
+	 * changed, so documents added before it was dropped (see
+	 * {@link #addDocument(File, boolean)}) can still be removed with
+	 * {@link #removeDocument(Document)}.</p>
+	 * 
+	 * @param offHeap - true to keep the model off the heap.
+	 */
+	public synchronized void setOffHeap(boolean offHeap) {
+		if (this.offHeap != offHeap) {
+			this.offHeap = offHeap;
+			if (model != null) {
+				compile();
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>getMetrics</em></b>
+	 * 
+	 * <p>Gets the times, throughput, token counts, scoring latency and I/O
+	 * failures of the filter. They are also written to the Java Flight
+	 * Recorder (see {@link FilterEvents}).</p>
+	 * 
+	 * @return the metrics.
+	 */
+	public FilterMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * <b><em>getVocabulary</em></b>
+	 * 
+	 * <p>Gets the words from training and their counts. The size and memory
+	 * footprint of the trained model can be checked with
+	 * {@link Vocabulary#size()} and {@link Vocabulary#memoryFootprint()}. If
+	 * the counts are only kept in an off-heap model, they are copied back
+	 * onto the heap first.</p>
+	 * 
+	 * @return the vocabulary.
+	 */
+	public synchronized Vocabulary getVocabulary() {
+		return vocabulary();
+	}
+	
+	/**
+	 * <b><em>vocabulary</em></b>
+	 * 
+	 * <p>Gets the trained vocabulary, copying it back from the off-heap model
+	 * if it was dropped when the model was compiled. The lock of the filter
+	 * must be held.</p>
+	 * 
+	 * @return the vocabulary.
+	 */
+	private Vocabulary vocabulary() {
+		
+		// The model is always an off-heap model when there is no vocabulary
+		if (vocabulary == null) {
+			this.vocabulary = ((OffHeapModel) model).toVocabulary();
+		}
+		return vocabulary;
+	}
+	
+	/**
+	 * <b><em>updateMap</em></b>
+	 * 
+	 * <p>Updates the vocabulary to include the words from this file. If a
+	 * particular word is already in the vocabulary, its counts are updated.
+	 * This is used during the training phase of the filter.</p>
+	 * 
+	 * @param vocabulary - the vocabulary to update.
+	 * @param extractor - the feature extractor used to read the words.
+	 * @param file - the file to scrape the words from.
+	 * @param isSpam - the actual class of the file.
+	 * @param timer - the timer of training, which counts the file.
+	 * 
+	 * @see {@link #train()}
+	 */
+	private static void updateMap(Vocabulary vocabulary,
+			FeatureExtractor extractor, File file, boolean isSpam,
+			FilterMetrics.Timer timer) {
+		
+		// Special case
+		if (file == null) {
+			return;
+		}
+		
+		// Read the file
+		try {
+			int words = extractor.extract(file, vocabulary, true);
+			
+			// Add the words to the vocabulary
+			for (int i = 0; i < words; i ++) {
+				vocabulary.count(extractor.id(i), isSpam, extractor.count(i));
+			}
+			timer.read(extractor);
+		
+		} catch (Exception e) {
+			timer.failed(file, e);
+		}
+	}
+	
+	/**
+	 * <b><em>updateMap</em></b>
+	 * 
+	 * <p>Updates the vocabulary to include the words of a file that was
+	 * already read (see {@link #updateMap(Vocabulary, FeatureExtractor,
+	 * File, boolean, FilterMetrics.Timer)}).</p>
+	 * 
+	 * @param vocabulary - the vocabulary to update.
+	 * @param extractor - the feature extractor used to find the words.
+	 * @param text - the bytes of the file.
+	 * @param length - the number of bytes.
+	 * @param isSpam - the actual class of the file.
+	 * @param timer - the timer of training, which counts the file.
+	 */
+	private static void updateMap(Vocabulary vocabulary,
+			FeatureExtractor extractor, byte[] text, int length,
+			boolean isSpam, FilterMetrics.Timer timer) {
+		int words = extractor.extract(text, 0, length, vocabulary, true);
+		for (int i = 0; i < words; i ++) {
+			vocabulary.count(extractor.id(i), isSpam, extractor.count(i));
+		}
+		timer.read(extractor);
+	}
+	
+	/**
+	 * <b><em>newTrainPipeline</em></b>
+	 * 
+	 * <p>Creates the pipeline that reads the training files, with one worker
+	 * for each vocabulary. The tag of each file is whether it is spam.</p>
+	 * 
+	 * @param vocabularies - the vocabulary of each worker.
+	 * @param extractors - the feature extractor of each worker.
+	 * @param progress - the progress of training.
+	 * @return the pipeline.
+	 */
+	private ReadPipeline<Boolean> newTrainPipeline(
+			final Vocabulary[] vocabularies,
+			final FeatureExtractor[] extractors, final Progress progress) {
+		return new ReadPipeline<>(readThreads, vocabularies.length, 0,
+				new ReadPipeline.Handler<Boolean>() {
+			@Override
+			public void read(int worker, Boolean isSpam, File file,
+					byte[] text, int length) {
+				if (!progress.isCancelled()) {
+					updateMap(vocabularies[worker], extractors[worker], text,
+							length, isSpam, progress.timer);
+					progress.step();
+				}
+			}
+			
+			@Override
+			public void failed(int worker, Boolean isSpam, File file,
+					Exception e) {
+				progress.timer.failed(file, e);
+				progress.step();
+			}
+		});
+	}
+	
+	/**
+	 * <b><em>newTestPipeline</em></b>
+	 * 
+	 * <p>Creates the pipeline that classifies test files with the scoring
+	 * budget of the filter. The tag of each file is its test file.</p>
+	 * 
+	 * @param model - the scoring model.
+	 * @param progress - the progress of testing.
+	 * @return the pipeline, or null if the files are classified on the
+	 * calling thread.
+	 */
+	private ReadPipeline<TestFile> newTestPipeline(final ScoringModel model,
+			final Progress progress) {
+		if (parallelism <= 1) {
+			return null;
+		}
+		final ScoringBudget budget = this.budget;
+		final FeatureExtractor[] extractors =
+				new FeatureExtractor[parallelism];
+		for (int i = 0; i < extractors.length; i ++) {
+			extractors[i] = new FeatureExtractor();
+		}
+		return new ReadPipeline<>(readThreads, parallelism,
+				budget.getMaxBytes(), new ReadPipeline.Handler<TestFile>() {
+			@Override
+			public void read(int worker, TestFile test, File file,
+					byte[] text, int length) {
+				if (!progress.isCancelled()) {
+					long begin = System.nanoTime();
+					test.setSpamProbability(score(text, 0, length, file,
+							model, budget, extractors[worker],
+							progress.timer, begin));
+					count(test);
+					progress.step();
+				}
+			}
+			
+			@Override
+			public void failed(int worker, TestFile test, File file,
+					Exception e) {
+				progress.timer.failed(file, e);
+				count(test);
+				progress.step();
+			}
+		});
+	}
+	
+	/**
+	 * <b><em>newCrossValidationPipeline</em></b>
+	 * 
+	 * <p>Creates the pipeline that adds the training files to a
+	 * cross-validator on one worker. The tag of each file is its entry.</p>
+	 * 
+	 * @param validator - the cross-validator.
+	 * @param vocabulary - the vocabulary that gives the words their ids.
+	 * @param progress - the progress of reading.
+	 * @return the pipeline.
+	 */
+	private ReadPipeline<CorpusScanner.Entry> newCrossValidationPipeline(
+			final CrossValidator validator, final Vocabulary vocabulary,
+			final Progress progress) {
+		final FeatureExtractor extractor = new FeatureExtractor();
+		return new ReadPipeline<>(readThreads, 1, 0,
+				new ReadPipeline.Handler<CorpusScanner.Entry>() {
+			@Override
+			public void read(int worker, CorpusScanner.Entry entry,
+					File file, byte[] text, int length) {
+				if (!progress.isCancelled()) {
+					extractor.extract(text, 0, length, vocabulary, true);
+					validator.add(extractor, entry.isSpam(),
+							entry.getName(true));
+					progress.timer.read(extractor);
+					progress.step();
+				}
+			}
+			
+			@Override
+			public void failed(int worker, CorpusScanner.Entry entry,
+					File file, Exception e) {
+				progress.timer.failed(file, e);
+				progress.step();
+			}
+		});
+	}
+	
+	/**
+	 * <b><em>newVocabulary</em></b>
+	 * 
+	 * @param buckets - the number of buckets to hash the words into, or 0 to
+	 * keep every word.
+	 * @return an empty vocabulary for training.
+	 */
+	private static Vocabulary newVocabulary(int buckets) {
+		return (buckets > 0)? Vocabulary.hashed(buckets) : new Vocabulary();
+	}
+	
+	/**
+	 * <b><em>merge</em></b>
+	 * 
+	 * <p>Adds the smaller of two partial vocabularies to the larger one.</p>
+	 * 
+	 * @param a - the first vocabulary.
+	 * @param b - the second vocabulary.
+	 * @return the vocabulary with the counts of both.
+	 */
+	private static Vocabulary merge(Vocabulary a, Vocabulary b) {
+		if (a.size() < b.size()) {
+			b.addAll(a);
+			return b;
+		}
+		a.addAll(b);
+		return a;
+	}
+	
+	/** The {@code ModelComparison} interface receives the spam
+	 * probabilities of a test file from two models. */
+	private interface ModelComparison {
+		
+		/**
+		 * Receives the scores of a test file.
+		 * 
+		 * @param isSpam - the actual class of the file.
+		 * @param first - the spam probability from the first model.
+		 * @param second - the spam probability from the second model.
+		 */
+		void scored(boolean isSpam, double first, double second);
+	}
+	
+	/** The {@code Progress} class counts the files read by all of the
+	 * threads and passes the count on to a {@link ProgressListener}. It also
+	 * holds the timer that the files are counted in for the metrics. */
+	private static class Progress {
+		
+		/** The listener, which may be null. */
+		private final ProgressListener listener;
+		
+		/** The total number of files. */
+		private final int total;
+		
+		/** The number of files read. */
+		private final AtomicInteger done;
+		
+		/** The timer of the phase. */
+		private final FilterMetrics.Timer timer;
+		
+		public Progress(ProgressListener listener, int total,
+				FilterMetrics.Timer timer) {
+			this.listener = listener;
+			this.total = total;
+			this.done = new AtomicInteger();
+			this.timer = timer;
+		}
+		
+		/** Counts one more file as read. */
+		public void step() {
+			int count = done.incrementAndGet();
+			if (listener != null) {
+				listener.progress(count, total);
+			}
+		}
+		
+		/** Gives a batch of classified test files to the listener. */
+		public void tested(List<TestFile> files) {
+			if (listener != null) {
+				listener.tested(files);
+			}
+		}
 		
-		public String toString() {
-			return hamFileCount + "\t" + hamTotal + "\t"
-					+ spamFileCount + "\t" + spamTotal;
+		public boolean isCancelled() {
+			return listener != null && listener.isCancelled();
 		}
 	}
 }
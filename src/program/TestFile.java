@@ -9,40 +9,73 @@ public class TestFile {
 	
 	/** This field corresponds to the non-spam (ham) class. */
 	public static final String NOT_SPAM = "Ham";
-
+	
+	/** The format of the rounded spam probability for each thread, since a
+	 * format cannot be shared between threads. */
+	private static final ThreadLocal<DecimalFormat> ROUNDED =
+			ThreadLocal.withInitial(() -> new DecimalFormat("0.00000"));
+	
 	private String filename;
 	
 	private double spamProbability;
 	
 	private String actualClass;
-
+	
+	/** The class the spam probability is in. */
+	private String predictedClass;
+	
+	/** The rounded spam probability, or null until it is shown. */
+	private String spamProbRounded;
+	
 	public TestFile(String filename,
 			double spamProbability,
 			String actualClass) {
 		this.filename = filename;
-		this.spamProbability = spamProbability;
 		this.actualClass = actualClass;
+		setSpamProbability(spamProbability);
 	}
-
+	
+	/** Constructs a test file for a subclass that keeps its own values,
+	 * such as a view of a row of a {@link ResultStore}. */
+	protected TestFile() {
+	}
+	
 	public String getFilename() { return this.filename; }
 	
 	public double getSpamProbability() { return this.spamProbability; }
 	
 	public String getSpamProbRounded() {
-		DecimalFormat df = new DecimalFormat("0.00000");
-		return df.format(this.spamProbability);
+		String rounded = this.spamProbRounded;
+		if (rounded == null) {
+			rounded = round(this.spamProbability);
+			this.spamProbRounded = rounded;
+		}
+		return rounded;
+	}
+	
+	/**
+	 * Rounds a spam probability to show it.
+	 * 
+	 * @param probability - the spam probability.
+	 * @return the probability with 5 decimal places.
+	 */
+	protected static String round(double probability) {
+		return ROUNDED.get().format(probability);
 	}
 	
 	public String getActualClass() { return this.actualClass; }
 	
 	
-	public String getPredictedClass() {
-		return (spamProbability > SpamFilter.SPAM_THRESHOLD)? SPAM : NOT_SPAM;
-	}
-
+	public String getPredictedClass() { return this.predictedClass; }
+	
 	public void setFilename(String value) { this.filename = value; }
 	
-	public void setSpamProbability(double val) { this.spamProbability = val; }
+	public void setSpamProbability(double val) {
+		this.spamProbability = val;
+		this.predictedClass = (val > SpamFilter.SPAM_THRESHOLD)? SPAM
+				: NOT_SPAM;
+		this.spamProbRounded = null;
+	}
 	
 	public void setActualClass(String value) { this.actualClass = value; }
 }
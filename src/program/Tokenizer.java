@@ -0,0 +1,383 @@
+/* Name: Tokenizer
+ * Author: Devon McGrath
+ * Description: This class splits the raw bytes of an e-mail into the words
+ * used by the spam filter without creating a string for each word.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added the content hash - Devon McGrath
+ * 1.2 - 10/16/2026 - Added reading part of a file - Devon McGrath
+ */
+
+package program;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * <p>The {@code Tokenizer} class reads the words of an e-mail directly from
+ * its bytes, which are expected to be UTF-8. It gives the same words as
+ * reading the file with a {@link java.util.Scanner}, converting each token to
+ * lower-case and only keeping the tokens made up of the characters a-z:</p>
+ * <ul>
+ * <li>Tokens are separated by any character where
+ * {@link Character#isWhitespace(int)} is true.</li>
+ * <li>The letters A-Z are converted to a-z, and so is the Kelvin sign
+ * (U+212A), which {@link String#toLowerCase()} converts to 'k'.</li>
+ * <li>A token with any other character is skipped.</li>
+ * <li>The file ends at the first byte that is not valid UTF-8. A
+ * {@code Scanner} stops reading at invalid input too, but where it stops
+ * depends on how much it had buffered, so words before an invalid byte may
+ * differ.</li>
+ * </ul>
+ * 
+ * <p>The words are given to a {@link TokenHandler} as a range of a byte
+ * array that is reused for the next word. A tokenizer is not thread-safe,
+ * but it can be reused for any number of files.</p>
+ */
+public class Tokenizer {
+	
+	/** The number of bytes the buffers have room for when created. */
+	private static final int INITIAL_CAPACITY = 8192;
+	
+	/** The byte class of an ASCII letter. */
+	private static final byte LETTER = 1;
+	
+	/** The byte class of an ASCII white space character. */
+	private static final byte SPACE = 2;
+	
+	/** The byte class of the bytes of a multi-byte character. */
+	private static final byte MULTI_BYTE = 3;
+	
+	/** The class of each byte value. Bytes that are not in a class (0) are
+	 * characters that make a token invalid. */
+	private static final byte[] CLASSES = new byte[256];
+	
+	static {
+		for (int c = 'a'; c <= 'z'; c ++) {
+			CLASSES[c] = LETTER;
+			CLASSES[c - 'a' + 'A'] = LETTER;
+		}
+		for (int c = 0; c < 0x80; c ++) {
+			if (Character.isWhitespace(c)) {
+				CLASSES[c] = SPACE;
+			}
+		}
+		for (int c = 0x80; c < 0x100; c ++) {
+			CLASSES[c] = MULTI_BYTE;
+		}
+	}
+	
+	/** The {@code TokenHandler} interface receives each word found by a
+	 * {@link Tokenizer}. */
+	public interface TokenHandler {
+		
+		/**
+		 * Handles a word. The bytes of the word are only valid until this
+		 * method returns.
+		 * 
+		 * @param word - the array with the characters a-z of the word.
+		 * @param start - the index of the first character.
+		 * @param len - the number of characters.
+		 */
+		void token(byte[] word, int start, int len);
+	}
+	
+	/** The bytes of the last file that was read. */
+	private byte[] data;
+	
+	/** The number of bytes in {@link #data} from the last file. */
+	private int length;
+	
+	/** The lower-case characters of the current word. */
+	private byte[] word;
+	
+	/** Constructs a tokenizer. */
+	public Tokenizer() {
+		this.data = new byte[INITIAL_CAPACITY];
+		this.word = new byte[64];
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads all of the bytes of a file into the buffer of this tokenizer,
+	 * replacing the previous file.</p>
+	 * 
+	 * @param file - the file to read.
+	 * @return the number of bytes read.
+	 * @throws IOException if the file could not be read.
+	 * @see {@link #tokenize(TokenHandler)}
+	 */
+	public int read(File file) throws IOException {
+		return read(file, 0);
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads the start of a file into the buffer of this tokenizer,
+	 * replacing the previous file. At most {@code maxBytes} bytes are kept,
+	 * less the word cut off at the end (see
+	 * {@link #prefix(byte[], int, int, int)}), and the rest of the file is
+	 * not read.</p>
+	 * 
+	 * @param file - the file to read.
+	 * @param maxBytes - the number of bytes to read, or 0 for all of them.
+	 * @return the number of bytes kept.
+	 * @throws IOException if the file could not be read.
+	 */
+	public int read(File file, int maxBytes) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			
+			// Read one byte more than the limit to see if a word was cut off
+			long limit = (maxBytes > 0)? maxBytes + 1L : Long.MAX_VALUE;
+			long size = Math.min(file.length(), limit);
+			if (size >= data.length && size < Integer.MAX_VALUE - 8) {
+				this.data = new byte[(int) size + 1];
+			}
+			
+			// Keep reading in case the file is larger than reported
+			int n = 0, read;
+			while (n < limit && (read = in.read(data, n,
+					(int) Math.min(data.length - n, limit - n))) >= 0) {
+				n += read;
+				if (n == data.length) {
+					this.data = Arrays.copyOf(data, data.length * 2);
+				}
+			}
+			this.length = prefix(data, 0, n, maxBytes);
+		}
+		return length;
+	}
+	
+	/**
+	 * <b><em>prefix</em></b>
+	 * 
+	 * <p>Gets the end of the first {@code maxBytes} bytes of a range. If the
+	 * range is longer, the end is moved back to the last white space so that
+	 * no word or character is cut in half. Only ASCII white space is
+	 * checked, so the end may move back one word more than it has to.</p>
+	 * 
+	 * @param text - the bytes.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param maxBytes - the number of bytes to keep, or 0 for all of them.
+	 * @return the index after the last byte to keep.
+	 */
+	public static int prefix(byte[] text, int start, int end, int maxBytes) {
+		if (maxBytes <= 0 || end - start <= maxBytes) {
+			return end;
+		}
+		int cut = start + maxBytes;
+		if (CLASSES[text[cut] & 0xFF] == SPACE) {
+			return cut;
+		}
+		while (cut > start && CLASSES[text[cut - 1] & 0xFF] != SPACE) {
+			cut --;
+		}
+		return cut;
+	}
+	
+	/**
+	 * <b><em>tokenize</em></b>
+	 * 
+	 * <p>Finds the words in the last file read by {@link #read(File)}.</p>
+	 * 
+	 * @param handler - the handler for each word.
+	 */
+	public void tokenize(TokenHandler handler) {
+		tokenize(data, 0, length, handler, 0);
+	}
+	
+	/**
+	 * <b><em>tokenize</em></b>
+	 * 
+	 * <p>Finds the words in the start of the last file read by
+	 * {@link #read(File)}.</p>
+	 * 
+	 * @param handler - the handler for each word.
+	 * @param maxBytes - the number of bytes to read (see
+	 * {@link #prefix(byte[], int, int, int)}), or 0 for all of them.
+	 * @param maxTokens - the number of words to find, or 0 for all of them.
+	 */
+	public void tokenize(TokenHandler handler, int maxBytes, int maxTokens) {
+		tokenize(data, 0, prefix(data, 0, length, maxBytes), handler,
+				maxTokens);
+	}
+	
+	/**
+	 * <b><em>hash</em></b>
+	 * 
+	 * <p>Computes the content hash of the last file read by
+	 * {@link #read(File)} (see {@link ResultCache#hash(byte[], int, int)}).</p>
+	 * 
+	 * @return the content hash.
+	 */
+	public long hash() {
+		return ResultCache.hash(data, 0, length);
+	}
+	
+	/**
+	 * <b><em>tokenize</em></b>
+	 * 
+	 * <p>Finds the words in a range of UTF-8 bytes. The bytes are not
+	 * modified.</p>
+	 * 
+	 * @param text - the bytes to split into words.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param handler - the handler for each word.
+	 */
+	public void tokenize(byte[] text, int start, int end,
+			TokenHandler handler) {
+		tokenize(text, start, end, handler, 0);
+	}
+	
+	/**
+	 * <b><em>tokenize</em></b>
+	 * 
+	 * <p>Finds the first words in a range of UTF-8 bytes. The bytes are not
+	 * modified.</p>
+	 * 
+	 * @param text - the bytes to split into words.
+	 * @param start - the index of the first byte.
+	 * @param end - the index after the last byte.
+	 * @param handler - the handler for each word.
+	 * @param maxTokens - the number of words to find, or 0 for all of them.
+	 */
+	public void tokenize(byte[] text, int start, int end,
+			TokenHandler handler, int maxTokens) {
+		
+		// A count that starts below 0 never reaches 0
+		int remaining = (maxTokens > 0)? maxTokens : -1;
+		int len = 0;
+		boolean inToken = false, valid = true;
+		int i = start;
+		while (i < end) {
+			int b = text[i] & 0xFF;
+			byte type = CLASSES[b];
+			int skip = 1;
+			
+			// Check characters that take more than one byte
+			if (type == MULTI_BYTE) {
+				skip = sequenceLength(text, i, end);
+				if (skip < 0) {
+					return;
+				}
+				int c = (skip == 3)? decode3(text, i) : -1;
+				if (c == 'k') {
+					type = LETTER;
+					b = 'k';
+				} else if (c == ' ') {
+					type = SPACE;
+				} else {
+					type = 0;
+				}
+			}
+			
+			// Handle the character
+			if (type == SPACE) {
+				if (inToken && valid) {
+					handler.token(word, 0, len);
+					if (-- remaining == 0) {
+						return;
+					}
+				}
+				inToken = false;
+			} else {
+				if (!inToken) {
+					inToken = true;
+					valid = true;
+					len = 0;
+				}
+				if (type == LETTER && valid) {
+					if (len == word.length) {
+						this.word = Arrays.copyOf(word, len * 2);
+					}
+					word[len ++] = (byte) (b | 0x20);
+				} else {
+					valid = false;
+				}
+			}
+			i += skip;
+		}
+		if (inToken && valid) {
+			handler.token(word, 0, len);
+		}
+	}
+	
+	/**
+	 * <b><em>sequenceLength</em></b>
+	 * 
+	 * <p>Gets the length of the UTF-8 sequence of a character that takes more
+	 * than one byte. Sequences are checked the same way as the UTF-8 decoder
+	 * of the JDK, so overlong forms and surrogates are invalid.</p>
+	 * 
+	 * @param text - the bytes.
+	 * @param i - the index of the first byte of the character.
+	 * @param end - the index after the last byte.
+	 * @return the number of bytes in the character or -1 if it is invalid.
+	 */
+	private static int sequenceLength(byte[] text, int i, int end) {
+		int b0 = text[i] & 0xFF;
+		int len, min = 0x80, max = 0xBF;
+		if (b0 >= 0xC2 && b0 <= 0xDF) {
+			len = 2;
+		} else if (b0 >= 0xE0 && b0 <= 0xEF) {
+			len = 3;
+			if (b0 == 0xE0) {
+				min = 0xA0;
+			} else if (b0 == 0xED) {
+				max = 0x9F;
+			}
+		} else if (b0 >= 0xF0 && b0 <= 0xF4) {
+			len = 4;
+			if (b0 == 0xF0) {
+				min = 0x90;
+			} else if (b0 == 0xF4) {
+				max = 0x8F;
+			}
+		} else {
+			return -1;
+		}
+		if (i + len > end) {
+			return -1;
+		}
+		
+		// The second byte has a limited range, the rest are any continuation
+		int b1 = text[i + 1] & 0xFF;
+		if (b1 < min || b1 > max) {
+			return -1;
+		}
+		for (int j = 2; j < len; j ++) {
+			if ((text[i + j] & 0xC0) != 0x80) {
+				return -1;
+			}
+		}
+		return len;
+	}
+	
+	/**
+	 * <b><em>decode3</em></b>
+	 * 
+	 * <p>Checks if a valid three byte UTF-8 sequence is one of the characters
+	 * that are white space or converted to a letter. Any other character makes
+	 * a token invalid, so it does not need to be decoded.</p>
+	 * 
+	 * @param text - the bytes.
+	 * @param i - the index of the first byte.
+	 * @return 'k' for the Kelvin sign, ' ' for white space and -1 otherwise.
+	 */
+	private static int decode3(byte[] text, int i) {
+		int c = ((text[i] & 0x0F) << 12) | ((text[i + 1] & 0x3F) << 6)
+				| (text[i + 2] & 0x3F);
+		if (c == 0x212A) {
+			return 'k';
+		}
+		return Character.isWhitespace(c)? ' ' : -1;
+	}
+}
@@ -0,0 +1,903 @@
+/* Name: Vocabulary
+ * Author: Devon McGrath
+ * Description: This class maps the words found during training to dense ids
+ * and keeps the spam/ham counts for each word in primitive arrays.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ * 1.1 - 10/16/2026 - Added reading and writing - Devon McGrath
+ * 1.2 - 10/16/2026 - Added removing counts - Devon McGrath
+ * 1.3 - 10/16/2026 - Added copying - Devon McGrath
+ * 1.4 - 10/16/2026 - Added selecting words - Devon McGrath
+ * 1.5 - 10/16/2026 - Added hashed vocabularies - Devon McGrath
+ * 1.6 - 10/16/2026 - Added writing to a buffer - Devon McGrath
+ */
+
+package program;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>The {@code Vocabulary} class is an open-addressed hash table from words
+ * to dense ids (0 to {@link #size()} - 1). The characters of every word are
+ * stored one after another in a single byte array and the four counts of a
+ * word are stored in parallel {@code int} arrays indexed by its id, so a word
+ * costs a few array slots instead of a map entry, a key and a counter
+ * object.</p>
+ * 
+ * <p>Words are expected to only contain the characters a-z (see
+ * {@link SpamFilter}), which means each character fits in a single byte.</p>
+ * 
+ * <p>A hashed vocabulary (see {@link #hashed(int)}) does not keep the words
+ * at all. Its ids are a fixed number of buckets and each word has the id of
+ * the bucket its hash falls in, so its memory does not grow with the number
+ * of words. Words that share a bucket share their counts, which is the
+ * "hashing trick".</p>
+ * 
+ * <p>The words and counts can be looked up without changing them through
+ * the {@link WordIndex} interface, which is also implemented by the
+ * {@link OffHeapModel} that keeps them off the heap.</p>
+ */
+public class Vocabulary implements WordIndex {
+	
+	/** The number of ids the arrays have room for when created. */
+	private static final int INITIAL_CAPACITY = 256;
+	
+	/** The value of an empty slot in the hash table. */
+	private static final int EMPTY = -1;
+	
+	/** The approximate size of an array header in bytes. */
+	private static final int ARRAY_HEADER = 16;
+	
+	/** The greatest number of buckets of a hashed vocabulary. */
+	private static final int MAX_BUCKETS = 1 << 30;
+	
+	/** The hash table. Each slot has the id of a word or {@link #EMPTY}. The
+	 * length is always a power of two and at least twice the size. */
+	private int[] table;
+	
+	/** The hash of each word, used to resize the table without re-hashing
+	 * the words. */
+	private int[] hashes;
+	
+	/** The characters of every word. */
+	private byte[] chars;
+	
+	/** The index in {@link #chars} where each word starts. The word with id
+	 * {@code i} ends where word {@code i + 1} starts. */
+	private int[] offsets;
+	
+	/** The number of files of each word that were ham. */
+	private int[] hamFileCount;
+	
+	/** The number of times each word shows up in all ham files. */
+	private int[] hamTotal;
+	
+	/** The number of files of each word that were spam. */
+	private int[] spamFileCount;
+	
+	/** The number of times each word shows up in all spam files. */
+	private int[] spamTotal;
+	
+	/** The number of words. */
+	private int size;
+	
+	/** The number of buckets the words are hashed into, or 0 if the words
+	 * are kept. */
+	private int buckets;
+	
+	/** Constructs an empty vocabulary. */
+	public Vocabulary() {
+		clear();
+	}
+	
+	/**
+	 * <b><em>hashed</em></b>
+	 * 
+	 * <p>Constructs an empty hashed vocabulary. Its size is always the
+	 * number of buckets, and every word is in it.</p>
+	 * 
+	 * @param buckets - the number of buckets, which is rounded up to a power
+	 * of two.
+	 * @return the hashed vocabulary.
+	 */
+	public static Vocabulary hashed(int buckets) {
+		Vocabulary v = new Vocabulary();
+		v.buckets = roundBuckets(buckets);
+		v.clear();
+		return v;
+	}
+	
+	/**
+	 * <b><em>roundBuckets</em></b>
+	 * 
+	 * @param buckets - a number of buckets.
+	 * @return the number of buckets a hashed vocabulary would have, or 0 if
+	 * the number is 0 or less.
+	 */
+	public static int roundBuckets(int buckets) {
+		if (buckets <= 0) {
+			return 0;
+		}
+		int n = 2;
+		while (n < buckets && n < MAX_BUCKETS) {
+			n *= 2;
+		}
+		return n;
+	}
+	
+	/**
+	 * <b><em>clear</em></b>
+	 * 
+	 * <p>Removes all of the words and their counts. A hashed vocabulary keeps
+	 * its buckets, with all of their counts at 0.</p>
+	 */
+	public void clear() {
+		if (buckets > 0) {
+			this.table = new int[0];
+			this.hashes = new int[0];
+			this.chars = new byte[0];
+			this.offsets = new int[1];
+			this.hamFileCount = new int[buckets];
+			this.hamTotal = new int[buckets];
+			this.spamFileCount = new int[buckets];
+			this.spamTotal = new int[buckets];
+			this.size = buckets;
+			return;
+		}
+		this.table = new int[INITIAL_CAPACITY * 2];
+		Arrays.fill(table, EMPTY);
+		this.hashes = new int[INITIAL_CAPACITY];
+		this.chars = new byte[INITIAL_CAPACITY * 8];
+		this.offsets = new int[INITIAL_CAPACITY + 1];
+		this.hamFileCount = new int[INITIAL_CAPACITY];
+		this.hamTotal = new int[INITIAL_CAPACITY];
+		this.spamFileCount = new int[INITIAL_CAPACITY];
+		this.spamTotal = new int[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+	
+	/**
+	 * <b><em>copy</em></b>
+	 * 
+	 * <p>Copies the vocabulary. The copy has the same ids and counts, and
+	 * only has as much room as it needs for the words it has.</p>
+	 * 
+	 * @return the copy.
+	 */
+	public Vocabulary copy() {
+		Vocabulary v = new Vocabulary();
+		if (buckets > 0) {
+			v.buckets = buckets;
+			v.table = table;
+			v.hashes = hashes;
+			v.chars = chars;
+			v.offsets = offsets;
+			v.hamFileCount = hamFileCount.clone();
+			v.hamTotal = hamTotal.clone();
+			v.spamFileCount = spamFileCount.clone();
+			v.spamTotal = spamTotal.clone();
+			v.size = size;
+			return v;
+		}
+		v.table = table.clone();
+		v.hashes = Arrays.copyOf(hashes, size);
+		v.chars = Arrays.copyOf(chars, offsets[size]);
+		v.offsets = Arrays.copyOf(offsets, size + 1);
+		v.hamFileCount = Arrays.copyOf(hamFileCount, size);
+		v.hamTotal = Arrays.copyOf(hamTotal, size);
+		v.spamFileCount = Arrays.copyOf(spamFileCount, size);
+		v.spamTotal = Arrays.copyOf(spamTotal, size);
+		v.size = size;
+		return v;
+	}
+	
+	/**
+	 * <b><em>select</em></b>
+	 * 
+	 * <p>Copies some of the words of the vocabulary along with their counts.
+	 * The words stay in the same order, but get new ids, and the copy only
+	 * has as much room as it needs. The buckets of a hashed vocabulary cannot
+	 * be removed, so the counts of the buckets that are not kept are set to 0
+	 * instead.</p>
+	 * 
+	 * @param keep - whether to keep each word, indexed by id.
+	 * @return the copy with only the words that are kept.
+	 */
+	public Vocabulary select(boolean[] keep) {
+		if (buckets > 0) {
+			Vocabulary v = copy();
+			for (int i = 0; i < size; i ++) {
+				if (!keep[i]) {
+					v.hamFileCount[i] = v.hamTotal[i] = 0;
+					v.spamFileCount[i] = v.spamTotal[i] = 0;
+				}
+			}
+			return v;
+		}
+		Vocabulary v = new Vocabulary();
+		for (int i = 0; i < size; i ++) {
+			if (!keep[i]) {
+				continue;
+			}
+			int start = offsets[i];
+			int id = v.add(chars, start, offsets[i + 1] - start, hashes[i]);
+			v.hamFileCount[id] = hamFileCount[i];
+			v.hamTotal[id] = hamTotal[i];
+			v.spamFileCount[id] = spamFileCount[i];
+			v.spamTotal[id] = spamTotal[i];
+		}
+		return v.copy();
+	}
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of words in the vocabulary.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * <b><em>getBuckets</em></b>
+	 * 
+	 * @return the number of buckets of a hashed vocabulary, or 0 if the
+	 * words are kept.
+	 * @see {@link #hashed(int)}
+	 */
+	public int getBuckets() {
+		return buckets;
+	}
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * <p>Gets the id of a word.</p>
+	 * 
+	 * @param word - the word.
+	 * @return the id of the word or -1 if it is not in the vocabulary.
+	 * @see {@link #add(CharSequence)}
+	 */
+	public int id(CharSequence word) {
+		if (word == null) {
+			return -1;
+		}
+		if (buckets > 0) {
+			return hash(word) & (buckets - 1);
+		}
+		int slot = find(word, hash(word));
+		return table[slot];
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds a word to the vocabulary if it is not already in it. New words
+	 * start with all of their counts at 0.</p>
+	 * 
+	 * @param word - the word, which only contains the characters a-z.
+	 * @return the id of the word.
+	 * @see {@link #id(CharSequence)}
+	 */
+	public int add(CharSequence word) {
+		int hash = hash(word);
+		if (buckets > 0) {
+			return hash & (buckets - 1);
+		}
+		int slot = find(word, hash);
+		if (table[slot] != EMPTY) {
+			return table[slot];
+		}
+		
+		// Copy the characters
+		int len = word.length();
+		int start = offsets[size];
+		ensureChars(start + len);
+		for (int i = 0; i < len; i ++) {
+			char c = word.charAt(i);
+			if (c > 0x7F) {
+				throw new IllegalArgumentException("Invalid word: " + word);
+			}
+			chars[start + i] = (byte) c;
+		}
+		return insert(slot, hash, start + len);
+	}
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * <p>Gets the id of a word that is stored as bytes.</p>
+	 * 
+	 * @param text - the array with the word.
+	 * @param start - the index of the first character.
+	 * @param len - the number of characters.
+	 * @return the id of the word or -1 if it is not in the vocabulary.
+	 * @see {@link #add(byte[], int, int)}
+	 */
+	public int id(byte[] text, int start, int len) {
+		int hash = hash(text, start, len);
+		if (buckets > 0) {
+			return hash & (buckets - 1);
+		}
+		int slot = find(text, start, len, hash);
+		return table[slot];
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds a word that is stored as bytes to the vocabulary if it is not
+	 * already in it.</p>
+	 * 
+	 * @param text - the array with the word, which only contains the
+	 * characters a-z.
+	 * @param start - the index of the first character.
+	 * @param len - the number of characters.
+	 * @return the id of the word.
+	 * @see {@link #id(byte[], int, int)}
+	 */
+	public int add(byte[] text, int start, int len) {
+		return add(text, start, len, hash(text, start, len));
+	}
+	
+	/**
+	 * <b><em>word</em></b>
+	 * 
+	 * @param id - the id of the word.
+	 * @return the word with the id, or "#" and the id for a bucket of a
+	 * hashed vocabulary.
+	 */
+	public String word(int id) {
+		checkId(id);
+		if (buckets > 0) {
+			return "#" + id;
+		}
+		int start = offsets[id];
+		char[] text = new char[offsets[id + 1] - start];
+		for (int i = 0; i < text.length; i ++) {
+			text[i] = (char) chars[start + i];
+		}
+		return new String(text);
+	}
+	
+	/**
+	 * <b><em>count</em></b>
+	 * 
+	 * <p>Counts a word that shows up in a training file. The file count of
+	 * the word goes up by one and the total goes up by the number of times it
+	 * shows up in the file.</p>
+	 * 
+	 * @param id - the id of the word.
+	 * @param isSpam - the actual class of the file.
+	 * @param occurrences - the number of times the word is in the file.
+	 */
+	public void count(int id, boolean isSpam, int occurrences) {
+		checkId(id);
+		if (isSpam) {
+			spamFileCount[id] ++;
+			spamTotal[id] += occurrences;
+		} else {
+			hamFileCount[id] ++;
+			hamTotal[id] += occurrences;
+		}
+	}
+	
+	/**
+	 * <b><em>uncount</em></b>
+	 * 
+	 * <p>Takes back the counts of a word from a training file that was
+	 * counted with {@link #count(int, boolean, int)}. The word stays in the
+	 * vocabulary even if all of its counts are 0.</p>
+	 * 
+	 * @param id - the id of the word.
+	 * @param isSpam - the actual class of the file.
+	 * @param occurrences - the number of times the word is in the file.
+	 */
+	public void uncount(int id, boolean isSpam, int occurrences) {
+		checkId(id);
+		if (isSpam) {
+			spamFileCount[id] --;
+			spamTotal[id] -= occurrences;
+		} else {
+			hamFileCount[id] --;
+			hamTotal[id] -= occurrences;
+		}
+	}
+	
+	/**
+	 * <b><em>addAll</em></b>
+	 * 
+	 * <p>Adds the words and counts of another vocabulary to this one. The ids
+	 * of the other vocabulary do not carry over. Hashed vocabularies can only
+	 * be added to each other if they have the same number of buckets, and
+	 * then the counts of each bucket are added.</p>
+	 * 
+	 * @param other - the vocabulary to add.
+	 * @throws IllegalArgumentException if only one of the vocabularies is
+	 * hashed or they have different numbers of buckets.
+	 */
+	public void addAll(Vocabulary other) {
+		if (buckets != other.buckets) {
+			throw new IllegalArgumentException("Cannot add a vocabulary with "
+					+ other.buckets + " buckets to one with " + buckets);
+		}
+		if (buckets > 0) {
+			for (int i = 0; i < size; i ++) {
+				this.hamFileCount[i] += other.hamFileCount[i];
+				this.hamTotal[i] += other.hamTotal[i];
+				this.spamFileCount[i] += other.spamFileCount[i];
+				this.spamTotal[i] += other.spamTotal[i];
+			}
+			return;
+		}
+		for (int i = 0; i < other.size; i ++) {
+			int start = other.offsets[i];
+			int len = other.offsets[i + 1] - start;
+			int id = add(other.chars, start, len, other.hashes[i]);
+			this.hamFileCount[id] += other.hamFileCount[i];
+			this.hamTotal[id] += other.hamTotal[i];
+			this.spamFileCount[id] += other.spamFileCount[i];
+			this.spamTotal[id] += other.spamTotal[i];
+		}
+	}
+	
+	public int getHamFileCount(int id) {
+		checkId(id);
+		return hamFileCount[id];
+	}
+	
+	public int getHamTotal(int id) {
+		checkId(id);
+		return hamTotal[id];
+	}
+	
+	public int getSpamFileCount(int id) {
+		checkId(id);
+		return spamFileCount[id];
+	}
+	
+	public int getSpamTotal(int id) {
+		checkId(id);
+		return spamTotal[id];
+	}
+	
+	/**
+	 * <b><em>memoryFootprint</em></b>
+	 * 
+	 * <p>Gets the approximate number of bytes used by the arrays of the
+	 * vocabulary, including the space reserved for words that have not been
+	 * added yet.</p>
+	 * 
+	 * @return the memory used in bytes.
+	 */
+	public long memoryFootprint() {
+		long bytes = 8L * ARRAY_HEADER + chars.length;
+		bytes += 4L * (table.length + hashes.length + offsets.length);
+		bytes += 4L * (hamFileCount.length + hamTotal.length
+				+ spamFileCount.length + spamTotal.length);
+		return bytes;
+	}
+	
+	/**
+	 * <b><em>write</em></b>
+	 * 
+	 * <p>Writes the words and counts to a stream. The format is the number of
+	 * words, the number of characters, the word hashes, the word offsets, the
+	 * four count arrays and then the characters, where every number is a
+	 * big-endian {@code int}. A hashed vocabulary has no characters, hashes
+	 * or offsets, so only the number of buckets, a 0 and the counts are
+	 * written.</p>
+	 * 
+	 * @param out - the stream to write to.
+	 * @throws IOException if the stream could not be written to.
+	 * @see {@link #read(ByteBuffer)}, {@link #readHashed(ByteBuffer, int)}
+	 */
+	void write(DataOutputStream out) throws IOException {
+		int length = (buckets == 0)? offsets[size] : 0;
+		out.writeInt(size);
+		out.writeInt(length);
+		if (buckets == 0) {
+			writeInts(out, hashes, size);
+			writeInts(out, offsets, size + 1);
+		}
+		writeInts(out, hamFileCount, size);
+		writeInts(out, hamTotal, size);
+		writeInts(out, spamFileCount, size);
+		writeInts(out, spamTotal, size);
+		out.write(chars, 0, length);
+	}
+	
+	/**
+	 * <b><em>write</em></b>
+	 * 
+	 * <p>Writes the words and counts to a buffer in the same format as
+	 * {@link #write(DataOutputStream)}. The arrays are copied in bulk.</p>
+	 * 
+	 * @param out - the buffer to write to, which must be big-endian and have
+	 * {@link #writtenSize()} bytes left.
+	 */
+	void write(ByteBuffer out) {
+		int length = (buckets == 0)? offsets[size] : 0;
+		out.putInt(size);
+		out.putInt(length);
+		if (buckets == 0) {
+			putInts(out, hashes, size);
+			putInts(out, offsets, size + 1);
+		}
+		putInts(out, hamFileCount, size);
+		putInts(out, hamTotal, size);
+		putInts(out, spamFileCount, size);
+		putInts(out, spamTotal, size);
+		out.put(chars, 0, length);
+	}
+	
+	/**
+	 * <b><em>writtenSize</em></b>
+	 * 
+	 * @return the number of bytes written by
+	 * {@link #write(DataOutputStream)}.
+	 */
+	long writtenSize() {
+		if (buckets > 0) {
+			return 8 + 16L * size;
+		}
+		return 8 + 4L * (6L * size + 1) + offsets[size];
+	}
+	
+	/**
+	 * <b><em>read</em></b>
+	 * 
+	 * <p>Reads a vocabulary written by {@link #write(DataOutputStream)}. The
+	 * arrays are copied out of the buffer in bulk and only the hash table is
+	 * rebuilt, so a memory-mapped file loads quickly.</p>
+	 * 
+	 * @param in - the buffer to read from, which must be big-endian.
+	 * @return the vocabulary.
+	 * @throws IOException if the data is not a valid vocabulary.
+	 */
+	static Vocabulary read(ByteBuffer in) throws IOException {
+		try {
+			int size = in.getInt(), length = in.getInt();
+			if (size < 0 || length < 0
+					|| 4L * (6L * size + 1) + length > in.remaining()) {
+				throw new IOException("Invalid vocabulary size");
+			}
+			int capacity = Math.max(size, INITIAL_CAPACITY);
+			Vocabulary v = new Vocabulary();
+			v.hashes = readInts(in, size, capacity);
+			v.offsets = readInts(in, size + 1, capacity + 1);
+			v.hamFileCount = readInts(in, size, capacity);
+			v.hamTotal = readInts(in, size, capacity);
+			v.spamFileCount = readInts(in, size, capacity);
+			v.spamTotal = readInts(in, size, capacity);
+			v.chars = new byte[Math.max(length, INITIAL_CAPACITY * 8)];
+			in.get(v.chars, 0, length);
+			for (int i = 0; i < size; i ++) {
+				if (v.offsets[i] > v.offsets[i + 1]) {
+					throw new IOException("Invalid word offsets");
+				}
+			}
+			if (v.offsets[0] != 0 || v.offsets[size] != length) {
+				throw new IOException("Invalid word offsets");
+			}
+			v.size = size;
+			int slots = INITIAL_CAPACITY * 2;
+			while (slots < size * 2) {
+				slots *= 2;
+			}
+			v.rehash(slots);
+			return v;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of vocabulary", e);
+		}
+	}
+	
+	/**
+	 * <b><em>readHashed</em></b>
+	 * 
+	 * <p>Reads a hashed vocabulary written by
+	 * {@link #write(DataOutputStream)}.</p>
+	 * 
+	 * @param in - the buffer to read from, which must be big-endian.
+	 * @param buckets - the number of buckets the vocabulary must have.
+	 * @return the hashed vocabulary.
+	 * @throws IOException if the data is not a valid hashed vocabulary with
+	 * that number of buckets.
+	 */
+	static Vocabulary readHashed(ByteBuffer in, int buckets)
+			throws IOException {
+		try {
+			int size = in.getInt(), length = in.getInt();
+			if (size != buckets || roundBuckets(size) != size || length != 0
+					|| 16L * size > in.remaining()) {
+				throw new IOException("Invalid hashed vocabulary size");
+			}
+			Vocabulary v = hashed(size);
+			v.hamFileCount = readInts(in, size, size);
+			v.hamTotal = readInts(in, size, size);
+			v.spamFileCount = readInts(in, size, size);
+			v.spamTotal = readInts(in, size, size);
+			return v;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of vocabulary", e);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "Vocabulary[size=" + size + ", bytes=" + memoryFootprint()
+				+ ((buckets > 0)? ", hashed" : "") + "]";
+	}
+	
+	/**
+	 * <b><em>add</em></b>
+	 * 
+	 * <p>Adds a word that is stored as bytes.</p>
+	 * 
+	 * @param text - the array with the word.
+	 * @param start - the index of the first character.
+	 * @param len - the number of characters.
+	 * @param hash - the hash of the word.
+	 * @return the id of the word.
+	 */
+	private int add(byte[] text, int start, int len, int hash) {
+		if (buckets > 0) {
+			return hash & (buckets - 1);
+		}
+		int slot = find(text, start, len, hash);
+		if (table[slot] != EMPTY) {
+			return table[slot];
+		}
+		int end = offsets[size];
+		ensureChars(end + len);
+		System.arraycopy(text, start, chars, end, len);
+		return insert(slot, hash, end + len);
+	}
+	
+	/**
+	 * <b><em>insert</em></b>
+	 * 
+	 * <p>Gives the next id to a word whose characters have already been
+	 * copied to the end of {@link #chars}.</p>
+	 * 
+	 * @param slot - the empty slot in the table for the word.
+	 * @param hash - the hash of the word.
+	 * @param end - the index after the last character of the word.
+	 * @return the id of the word.
+	 */
+	private int insert(int slot, int hash, int end) {
+		int id = size;
+		if (id + 1 >= offsets.length) {
+			grow();
+		}
+		this.hashes[id] = hash;
+		this.offsets[id + 1] = end;
+		this.table[slot] = id;
+		this.size ++;
+		
+		// Keep the table at most half full
+		if (size * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return id;
+	}
+	
+	/**
+	 * <b><em>find</em></b>
+	 * 
+	 * @param word - the word to find.
+	 * @param hash - the hash of the word.
+	 * @return the slot that has the word or the empty slot where it would be
+	 * inserted.
+	 */
+	private int find(CharSequence word, int hash) {
+		int mask = table.length - 1;
+		int len = word.length();
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = table[slot];
+			if (id == EMPTY) {
+				return slot;
+			}
+			if (hashes[id] != hash) {
+				continue;
+			}
+			int start = offsets[id];
+			if (offsets[id + 1] - start != len) {
+				continue;
+			}
+			int i = 0;
+			while (i < len && chars[start + i] == word.charAt(i)) {
+				i ++;
+			}
+			if (i == len) {
+				return slot;
+			}
+		}
+	}
+	
+	/**
+	 * <b><em>find</em></b>
+	 * 
+	 * @param text - the array with the word.
+	 * @param from - the index of the first character.
+	 * @param len - the number of characters.
+	 * @param hash - the hash of the word.
+	 * @return the slot that has the word or the empty slot where it would be
+	 * inserted.
+	 */
+	private int find(byte[] text, int from, int len, int hash) {
+		int mask = table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = table[slot];
+			if (id == EMPTY) {
+				return slot;
+			}
+			if (hashes[id] != hash) {
+				continue;
+			}
+			int start = offsets[id];
+			if (offsets[id + 1] - start != len) {
+				continue;
+			}
+			int i = 0;
+			while (i < len && chars[start + i] == text[from + i]) {
+				i ++;
+			}
+			if (i == len) {
+				return slot;
+			}
+		}
+	}
+	
+	/** Doubles the room for ids in the per-word arrays. */
+	private void grow() {
+		int capacity = Math.max(hashes.length * 2, INITIAL_CAPACITY);
+		this.hashes = Arrays.copyOf(hashes, capacity);
+		this.offsets = Arrays.copyOf(offsets, capacity + 1);
+		this.hamFileCount = Arrays.copyOf(hamFileCount, capacity);
+		this.hamTotal = Arrays.copyOf(hamTotal, capacity);
+		this.spamFileCount = Arrays.copyOf(spamFileCount, capacity);
+		this.spamTotal = Arrays.copyOf(spamTotal, capacity);
+	}
+	
+	/**
+	 * Makes sure the character array can hold a number of characters.
+	 * 
+	 * @param length - the number of characters.
+	 */
+	private void ensureChars(int length) {
+		if (length > chars.length) {
+			this.chars = Arrays.copyOf(chars,
+					Math.max(length, chars.length * 2));
+		}
+	}
+	
+	/**
+	 * Rebuilds the hash table with a new number of slots.
+	 * 
+	 * @param slots - the number of slots, which is a power of two.
+	 */
+	private void rehash(int slots) {
+		int[] newTable = new int[slots];
+		Arrays.fill(newTable, EMPTY);
+		int mask = slots - 1;
+		for (int id = 0; id < size; id ++) {
+			int slot = hashes[id] & mask;
+			while (newTable[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = id;
+		}
+		this.table = newTable;
+	}
+	
+	/**
+	 * Checks that an id belongs to a word in the vocabulary.
+	 * 
+	 * @param id - the id to check.
+	 */
+	private void checkId(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Invalid word id: " + id);
+		}
+	}
+	
+	/**
+	 * Writes the start of an array as big-endian ints.
+	 * 
+	 * @param out - the stream to write to.
+	 * @param values - the array.
+	 * @param count - the number of values to write.
+	 * @throws IOException if the stream could not be written to.
+	 */
+	private static void writeInts(DataOutputStream out, int[] values,
+			int count) throws IOException {
+		for (int i = 0; i < count; i ++) {
+			out.writeInt(values[i]);
+		}
+	}
+	
+	/**
+	 * Writes the start of an array to a buffer in bulk.
+	 * 
+	 * @param out - the buffer to write to.
+	 * @param values - the array.
+	 * @param count - the number of values to write.
+	 */
+	private static void putInts(ByteBuffer out, int[] values, int count) {
+		out.asIntBuffer().put(values, 0, count);
+		out.position(out.position() + 4 * count);
+	}
+	
+	/**
+	 * Reads big-endian ints into a new array.
+	 * 
+	 * @param in - the buffer to read from.
+	 * @param count - the number of values to read.
+	 * @param capacity - the length of the array, at least the count.
+	 * @return the array.
+	 */
+	private static int[] readInts(ByteBuffer in, int count, int capacity) {
+		int[] values = new int[capacity];
+		in.asIntBuffer().get(values, 0, count);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+	
+	/**
+	 * <b><em>hash</em></b>
+	 * 
+	 * <p>Hashes a word. Characters outside of a single byte still hash, but
+	 * will never match a word in the vocabulary.</p>
+	 * 
+	 * @param word - the word to hash.
+	 * @return the hash of the word.
+	 */
+	static int hash(CharSequence word) {
+		int h = 0;
+		for (int i = 0, len = word.length(); i < len; i ++) {
+			h = 31 * h + word.charAt(i);
+		}
+		return mix(h);
+	}
+	
+	/**
+	 * <b><em>hash</em></b>
+	 * 
+	 * <p>Hashes a word that is stored as bytes. The hash is the same as
+	 * {@link #hash(CharSequence)} for the same characters.</p>
+	 * 
+	 * @param text - the array with the word.
+	 * @param start - the index of the first character.
+	 * @param len - the number of characters.
+	 * @return the hash of the word.
+	 */
+	static int hash(byte[] text, int start, int len) {
+		int h = 0;
+		for (int i = start, end = start + len; i < end; i ++) {
+			h = 31 * h + (text[i] & 0xFF);
+		}
+		return mix(h);
+	}
+	
+	/**
+	 * Spreads the bits of a hash so that similar words do not end up in
+	 * neighbouring slots.
+	 * 
+	 * @param h - the hash.
+	 * @return the mixed hash.
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
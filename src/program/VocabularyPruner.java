@@ -0,0 +1,237 @@
+/* Name: VocabularyPruner
+ * Author: Devon McGrath
+ * Description: This class removes the words from a trained vocabulary that
+ * do little to tell spam from ham, so that the model is smaller and faster.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+import java.util.Arrays;
+
+/**
+ * <p>The {@code VocabularyPruner} class selects the words of a trained
+ * {@link Vocabulary} to keep (see {@link SpamFilter#prune(VocabularyPruner)}).
+ * Most of the words found in training are typos and other words that show up
+ * in only one or two files, which take up memory and slow down lookups but
+ * hardly change the score of a file. The words are removed in three steps,
+ * and a limit of 0 skips its step:</p>
+ * 
+ * <ol>
+ * <li>words in fewer than {@code minFileCount} training files</li>
+ * <li>all but the {@code maxWords} words in the most training files</li>
+ * <li>all but the {@code topWords} words with the best {@link Ranking}</li>
+ * </ol>
+ * 
+ * <p>Words that are in no training files, which are left over from files
+ * that were removed, are always removed. Words that rank the same are kept
+ * in the order of their ids, so the result is always the same for the same
+ * vocabulary. A pruner is never modified.</p>
+ */
+public class VocabularyPruner {
+	
+	/** The {@code Ranking} enum lists the ways the top words are
+	 * chosen. */
+	public enum Ranking {
+		
+		/** The information gain of whether a file has the word, which is how
+		 * much knowing that tells about the class of the file. This favours
+		 * words that are common as well as one-sided. */
+		INFORMATION_GAIN,
+		
+		/** The absolute log-odds weight of the word (see
+		 * {@link ScoringModel#weight(int, int, int, int)}), which favours
+		 * words that are one-sided no matter how common they are. */
+		LOG_ODDS
+	}
+	
+	/** The number of training files a word must be in to be kept. */
+	private final int minFileCount;
+	
+	/** The number of words kept by the ranking, or 0 for all. */
+	private final int topWords;
+	
+	/** The ranking of the top words. */
+	private final Ranking ranking;
+	
+	/** The number of most common words kept, or 0 for all. */
+	private final int maxWords;
+	
+	/**
+	 * Constructs a vocabulary pruner. Limits of 0 or less are turned off.
+	 * 
+	 * @param minFileCount - the number of training files a word must be in
+	 * to be kept.
+	 * @param topWords - the number of words with the best ranking to keep.
+	 * @param ranking - the ranking of the top words, which may be null if
+	 * {@code topWords} is 0.
+	 * @param maxWords - the number of words in the most training files to
+	 * keep.
+	 */
+	public VocabularyPruner(int minFileCount, int topWords, Ranking ranking,
+			int maxWords) {
+		this.minFileCount = Math.max(0, minFileCount);
+		this.topWords = Math.max(0, topWords);
+		this.ranking = (ranking == null)? Ranking.INFORMATION_GAIN : ranking;
+		this.maxWords = Math.max(0, maxWords);
+	}
+	
+	/**
+	 * <b><em>prune</em></b>
+	 * 
+	 * <p>Copies the words of a vocabulary that are kept, with their
+	 * counts. The vocabulary itself is not changed.</p>
+	 * 
+	 * @param vocabulary - the trained vocabulary.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the pruned vocabulary.
+	 */
+	public Vocabulary prune(Vocabulary vocabulary, int spamFiles,
+			int hamFiles) {
+		int size = vocabulary.size();
+		boolean[] keep = new boolean[size];
+		double[] scores = new double[size];
+		
+		// Remove the rare words
+		for (int id = 0; id < size; id ++) {
+			int files = vocabulary.getSpamFileCount(id)
+					+ vocabulary.getHamFileCount(id);
+			keep[id] = files > 0 && files >= minFileCount;
+			scores[id] = files;
+		}
+		
+		// Keep the most common words
+		if (maxWords > 0) {
+			keepBest(keep, scores, maxWords);
+		}
+		
+		// Keep the best words
+		if (topWords > 0) {
+			for (int id = 0; id < size; id ++) {
+				int spam = vocabulary.getSpamFileCount(id);
+				int ham = vocabulary.getHamFileCount(id);
+				scores[id] = (ranking == Ranking.LOG_ODDS)? Math.abs(
+						ScoringModel.weight(spam, ham, spamFiles, hamFiles))
+						: informationGain(spam, ham, spamFiles, hamFiles);
+			}
+			keepBest(keep, scores, topWords);
+		}
+		
+		return vocabulary.select(keep);
+	}
+	
+	/**
+	 * <b><em>informationGain</em></b>
+	 * 
+	 * <p>Computes how much the entropy of the class of a training file goes
+	 * down by knowing whether the file has a word.</p>
+	 * 
+	 * @param spam - the number of spam files with the word.
+	 * @param ham - the number of ham files with the word.
+	 * @param spamFiles - the number of spam training files.
+	 * @param hamFiles - the number of ham training files.
+	 * @return the information gain in bits.
+	 */
+	public static double informationGain(int spam, int ham, int spamFiles,
+			int hamFiles) {
+		double files = spamFiles + hamFiles;
+		if (files <= 0) {
+			return 0;
+		}
+		spam = Math.min(spam, spamFiles);
+		ham = Math.min(ham, hamFiles);
+		double with = spam + ham, without = files - with;
+		return entropy(spamFiles, hamFiles)
+				- with / files * entropy(spam, ham)
+				- without / files * entropy(spamFiles - spam, hamFiles - ham);
+	}
+	
+	public int getMinFileCount() {
+		return minFileCount;
+	}
+	
+	public int getTopWords() {
+		return topWords;
+	}
+	
+	public Ranking getRanking() {
+		return ranking;
+	}
+	
+	public int getMaxWords() {
+		return maxWords;
+	}
+	
+	@Override
+	public String toString() {
+		return "min files=" + minFileCount + ", max words="
+				+ ((maxWords == 0)? "all" : String.valueOf(maxWords))
+				+ ", top words=" + ((topWords == 0)? "all"
+				: topWords + " by " + ranking);
+	}
+	
+	/**
+	 * Keeps only the words with the highest scores of the words that are
+	 * being kept. Words with the same score are kept in the order of their
+	 * ids.
+	 * 
+	 * @param keep - whether each word is kept, which is updated.
+	 * @param scores - the score of each word.
+	 * @param limit - the number of words to keep.
+	 */
+	private static void keepBest(boolean[] keep, double[] scores,
+			int limit) {
+		
+		// Find the lowest score that is kept
+		double[] kept = new double[keep.length];
+		int n = 0;
+		for (int id = 0; id < keep.length; id ++) {
+			if (keep[id]) {
+				kept[n ++] = scores[id];
+			}
+		}
+		if (n <= limit) {
+			return;
+		}
+		Arrays.sort(kept, 0, n);
+		double lowest = kept[n - limit];
+		
+		// Keep the words above it, then the words at it until the limit
+		int above = 0;
+		for (int id = 0; id < keep.length; id ++) {
+			if (keep[id] && scores[id] > lowest) {
+				above ++;
+			}
+		}
+		int room = limit - above;
+		for (int id = 0; id < keep.length; id ++) {
+			if (!keep[id] || scores[id] > lowest) {
+				continue;
+			}
+			if (scores[id] == lowest && room > 0) {
+				room --;
+			} else {
+				keep[id] = false;
+			}
+		}
+	}
+	
+	/**
+	 * Computes the entropy of a split of files into two classes.
+	 * 
+	 * @param a - the number of files in the first class.
+	 * @param b - the number of files in the second class.
+	 * @return the entropy in bits.
+	 */
+	private static double entropy(double a, double b) {
+		double n = a + b;
+		if (a <= 0 || b <= 0) {
+			return 0;
+		}
+		double p = a / n, q = b / n;
+		return -(p * Math.log(p) + q * Math.log(q)) / Math.log(2);
+	}
+}
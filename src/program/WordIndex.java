@@ -0,0 +1,82 @@
+/* Name: WordIndex
+ * Author: Devon McGrath
+ * Description: This interface looks up the ids and training counts of the
+ * words of a trained model without being able to change them.
+ * 
+ * Version History:
+ * 1.0 - 10/16/2026 - Initial version - Devon McGrath
+ */
+
+package program;
+
+/**
+ * <p>The {@code WordIndex} interface is the read-only side of a
+ * {@link Vocabulary}. It is what a {@link ScoringModel} uses to look up the
+ * words of a document, so the words can be kept on the heap in a
+ * {@code Vocabulary} or off the heap in an {@link OffHeapModel}. Both give
+ * the same ids for the same words.</p>
+ */
+public interface WordIndex {
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * @param word - the word.
+	 * @return the id of the word or -1 if it is not in the index.
+	 */
+	int id(CharSequence word);
+	
+	/**
+	 * <b><em>id</em></b>
+	 * 
+	 * <p>Gets the id of a word that is stored as bytes, without creating a
+	 * string.</p>
+	 * 
+	 * @param text - the array with the word.
+	 * @param start - the index of the first character.
+	 * @param len - the number of characters.
+	 * @return the id of the word or -1 if it is not in the index.
+	 */
+	int id(byte[] text, int start, int len);
+	
+	/**
+	 * <b><em>word</em></b>
+	 * 
+	 * @param id - the id of the word.
+	 * @return the word with the id, or "#" and the id for a bucket of a
+	 * hashed index.
+	 */
+	String word(int id);
+	
+	/**
+	 * <b><em>size</em></b>
+	 * 
+	 * @return the number of words in the index.
+	 */
+	int size();
+	
+	/**
+	 * <b><em>getBuckets</em></b>
+	 * 
+	 * @return the number of buckets the words are hashed into, or 0 if the
+	 * words are kept.
+	 * @see {@link Vocabulary#hashed(int)}
+	 */
+	int getBuckets();
+	
+	/**
+	 * <b><em>getHamFileCount</em></b>
+	 * 
+	 * @param id - the id of the word.
+	 * @return the number of ham training files with the word.
+	 */
+	int getHamFileCount(int id);
+	
+	/**
+	 * <b><em>getSpamFileCount</em></b>
+	 * 
+	 * @param id - the id of the word.
+	 * @return the number of spam training files with the word.
+	 */
+	int getSpamFileCount(int id);
+}